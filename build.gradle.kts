@@ -8,6 +8,7 @@ plugins {
     id("io.spring.dependency-management")
     id("com.github.ben-manes.versions")
     id("com.diffplug.spotless")
+    id("me.champeau.jmh")
 }
 
 java {
@@ -28,11 +29,19 @@ sourceSets {
             srcDir("src/functional-test/java")
         }
     }
+    create("loadTest") {
+        java {
+            compileClasspath += sourceSets.main.get().output
+            runtimeClasspath += sourceSets.main.get().output
+            srcDir("src/load-test/java")
+        }
+    }
 }
 
 idea {
     module {
         testSources.from(sourceSets["functionalTest"].java.srcDirs)
+        testSources.from(sourceSets["loadTest"].java.srcDirs)
     }
 }
 
@@ -40,6 +49,9 @@ val functionalTestImplementation: Configuration by configurations.getting {
     extendsFrom(configurations.implementation.get())
 }
 val functionalTestRuntimeOnly: Configuration by configurations.getting
+val loadTestImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
 
 configurations {
     configurations["functionalTestImplementation"].extendsFrom(configurations.testImplementation.get())
@@ -64,8 +76,15 @@ val functionalTest = task<Test>("functionalTest") {
 
 
 dependencies {
+    val hdrhistogram_version: String by project
+
     /* Spring Boot */
     implementation ("org.springframework.boot:spring-boot-starter-web")
+    implementation ("org.springframework.boot:spring-boot-starter-actuator")
+    implementation ("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation ("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    implementation ("io.micrometer:micrometer-registry-prometheus")
+    loadTestImplementation ("org.hdrhistogram:HdrHistogram:$hdrhistogram_version")
     testImplementation("org.springframework.boot:spring-boot-starter-test") {
         exclude (group = "org.junit.vintage", module = "junit-vintage-engine")
     }
@@ -81,6 +100,29 @@ tasks.named<Test>("test") {
 
 tasks.check { dependsOn(functionalTest) }
 
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs a load test against a running instance. Pass options with --args."
+    group = "verification"
+
+    classpath = sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("uk.tw.energy.load.LoadTest")
+}
+
+tasks.check { dependsOn(tasks.named("loadTestClasses")) }
+
+jmh {
+    val jmh_version: String by project
+    jmhVersion.set(jmh_version)
+    fork.set(1)
+    warmupIterations.set(2)
+    iterations.set(5)
+    warmup.set("1s")
+    timeOnIteration.set("1s")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
 fun isNonStable(version: String): Boolean {
     val stableKeyword = listOf("RELEASE", "FINAL", "GA").any { version.uppercase().contains(it) }
     val regex = "^[0-9,.v-]+(-r)?$".toRegex()
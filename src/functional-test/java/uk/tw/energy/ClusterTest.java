@@ -0,0 +1,217 @@
+package uk.tw.energy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.cluster.ClusterClient;
+import uk.tw.energy.cluster.ClusterController;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+
+public class ClusterTest {
+
+    private static final int METERS = 20;
+    private static final String SECRET = "cluster-test-secret";
+    private static final String ROLLUP = "--joi.storage.rollup.tiers=1h:15m";
+    private static final String NO_SEEDING = "--joi.seed.meters=0";
+
+    private final TestRestTemplate restTemplate = new TestRestTemplate();
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    @AfterEach
+    public void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void givenReadingsStoredThroughOneInstanceShouldReadThemThroughAnother() throws IOException {
+        List<String> nodes = List.of(node(freePort()), node(freePort()));
+        nodes.forEach(node -> start(node, nodes, nodes));
+
+        List<MeterReadings> stored = storeReadings(nodes.get(0));
+
+        assertReadable(nodes.get(1), stored);
+        assertThat(localMeters(nodes.get(0))).isPositive();
+        assertThat(localMeters(nodes.get(1))).isPositive();
+    }
+
+    @Test
+    public void givenAddedInstanceShouldHandOffTheMetersItNowOwns() throws IOException {
+        List<String> nodes = List.of(node(freePort()), node(freePort()));
+        String added = node(freePort());
+        List<String> grown = List.of(nodes.get(0), nodes.get(1), added);
+        nodes.forEach(node -> start(node, nodes, grown));
+        List<MeterReadings> stored = storeReadings(nodes.get(0));
+        int metersBefore = localMeters(nodes.get(0)) + localMeters(nodes.get(1));
+        start(added, grown, grown);
+
+        ResponseEntity<ClusterController.Rebalance> rebalance =
+                updateNodes(nodes.get(0), grown, SECRET, ClusterController.Rebalance.class);
+
+        assertThat(rebalance.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rebalance.getBody().handedOff()).containsOnlyKeys(grown);
+        assertThat(rebalance.getBody().failed()).containsOnlyKeys(grown).doesNotContainValue(1);
+        assertThat(localMeters(added))
+                .isPositive()
+                .isEqualTo(rebalance.getBody().handedOff().values().stream()
+                        .mapToInt(Integer::intValue)
+                        .sum());
+        assertThat(localMeters(nodes.get(0)) + localMeters(nodes.get(1)) + localMeters(added))
+                .isEqualTo(metersBefore);
+        assertReadable(nodes.get(1), stored);
+    }
+
+    @Test
+    public void givenRolledUpReadingsShouldCostTheSameAfterHandingThemOff() throws IOException {
+        List<String> nodes = List.of(node(freePort()), node(freePort()));
+        String added = node(freePort());
+        List<String> grown = List.of(nodes.get(0), nodes.get(1), added);
+        nodes.forEach(node -> start(node, nodes, grown, ROLLUP));
+        start(added, grown, grown, ROLLUP);
+        List<MeterReadings> stored = storeReadings(nodes.get(0), 3000);
+        Map<String, String> costsBefore = costs(nodes.get(1), stored);
+
+        updateNodes(nodes.get(0), grown, SECRET, ClusterController.Rebalance.class);
+
+        assertThat(localMeters(added)).isPositive();
+        assertThat(costs(nodes.get(1), stored)).isEqualTo(costsBefore);
+    }
+
+    @Test
+    public void givenStoppedInstanceShouldRemoveItAndKeepServingTheOthersMeters() throws IOException {
+        List<String> nodes = List.of(node(freePort()), node(freePort()), node(freePort()));
+        nodes.forEach(node -> start(node, nodes, nodes, NO_SEEDING));
+        List<MeterReadings> stored = storeReadings(nodes.get(0));
+        List<String> survivors = nodes.subList(0, 2);
+        int survivingMeters = localMeters(nodes.get(0)) + localMeters(nodes.get(1));
+        instances.get(2).close();
+
+        ResponseEntity<ClusterController.Rebalance> rebalance =
+                updateNodes(nodes.get(0), survivors, SECRET, ClusterController.Rebalance.class);
+
+        assertThat(rebalance.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rebalance.getBody().nodes()).containsExactlyInAnyOrderElementsOf(survivors);
+        assertThat(rebalance.getBody().failed()).containsEntry(nodes.get(2), ClusterController.UNREACHABLE);
+        assertThat(rebalance.getBody().handedOff()).containsOnlyKeys(survivors);
+        int readable = 0;
+        for (MeterReadings readings : stored) {
+            ResponseEntity<ElectricityReading[]> read = restTemplate.getForEntity(
+                    nodes.get(1) + "/readings/read/" + readings.smartMeterId(), ElectricityReading[].class);
+            if (read.getStatusCode() == HttpStatus.OK) {
+                assertThat(read.getBody()).containsExactlyElementsOf(readings.electricityReadings());
+                readable++;
+            }
+        }
+        assertThat(readable).isEqualTo(survivingMeters);
+    }
+
+    @Test
+    public void givenMembershipChangeWithoutTheSecretOrToAnUnknownNodeShouldRejectIt() throws IOException {
+        List<String> nodes = List.of(node(freePort()), node(freePort()));
+        nodes.forEach(node -> start(node, nodes, nodes));
+        List<String> withStranger = List.of(nodes.get(0), node(freePort()));
+
+        assertThat(updateNodes(nodes.get(0), withStranger, null, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(updateNodes(nodes.get(0), withStranger, "wrong-secret", String.class)
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(updateNodes(nodes.get(0), withStranger, SECRET, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate
+                        .getForObject(nodes.get(0) + "/cluster", ClusterController.ClusterStatus.class)
+                        .nodes())
+                .containsExactlyInAnyOrderElementsOf(nodes);
+    }
+
+    private <T> ResponseEntity<T> updateNodes(String node, List<String> nodes, String secret, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        if (secret != null) {
+            headers.set(ClusterClient.SECRET_HEADER, secret);
+        }
+        return restTemplate.exchange(node + "/cluster/nodes", HttpMethod.PUT, new HttpEntity<>(nodes, headers), type);
+    }
+
+    private List<MeterReadings> storeReadings(String node) {
+        return storeReadings(node, 5);
+    }
+
+    private List<MeterReadings> storeReadings(String node, int readingsPerMeter) {
+        List<MeterReadings> stored = new ArrayList<>();
+        for (int meter = 0; meter < METERS; meter++) {
+            MeterReadings readings = new MeterReadingsBuilder()
+                    .setSmartMeterId("cluster-meter-" + meter)
+                    .generateElectricityReadings(readingsPerMeter)
+                    .build();
+            assertThat(restTemplate
+                            .postForEntity(node + "/readings/store", readings, String.class)
+                            .getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+            stored.add(readings);
+        }
+        return stored;
+    }
+
+    private void assertReadable(String node, List<MeterReadings> stored) {
+        for (MeterReadings readings : stored) {
+            ResponseEntity<ElectricityReading[]> read = restTemplate.getForEntity(
+                    node + "/readings/read/" + readings.smartMeterId(), ElectricityReading[].class);
+            assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(read.getBody()).containsExactlyElementsOf(readings.electricityReadings());
+        }
+    }
+
+    private Map<String, String> costs(String node, List<MeterReadings> stored) {
+        Map<String, String> costs = new HashMap<>();
+        for (MeterReadings readings : stored) {
+            ResponseEntity<String> compared = restTemplate.getForEntity(
+                    node + "/price-plans/compare-all/" + readings.smartMeterId(), String.class);
+            assertThat(compared.getStatusCode()).isEqualTo(HttpStatus.OK);
+            costs.put(readings.smartMeterId(), compared.getBody());
+        }
+        return costs;
+    }
+
+    private int localMeters(String node) {
+        return restTemplate
+                .getForObject(node + "/cluster", ClusterController.ClusterStatus.class)
+                .meters();
+    }
+
+    private void start(String node, List<String> nodes, List<String> peers, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=" + node.substring(node.lastIndexOf(':') + 1),
+                "--joi.cluster.self=" + node,
+                "--joi.cluster.nodes=" + String.join(",", nodes),
+                "--joi.cluster.peers=" + String.join(",", peers),
+                "--joi.cluster.secret=" + SECRET));
+        arguments.addAll(List.of(args));
+        instances.add(new SpringApplicationBuilder(App.class).run(arguments.toArray(String[]::new)));
+    }
+
+    private static String node(int port) {
+        return "http://localhost:" + port;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
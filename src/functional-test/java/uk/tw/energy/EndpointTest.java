@@ -9,17 +9,24 @@ import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.domain.Account;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.StoredMeterReadings;
+import uk.tw.energy.service.FleetRecommendationJob;
 
+@AutoConfigureObservability(tracing = false)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = App.class)
 public class EndpointTest {
 
@@ -27,9 +34,13 @@ public class EndpointTest {
     private TestRestTemplate restTemplate;
 
     private static HttpEntity<MeterReadings> toHttpEntity(MeterReadings meterReadings) {
+        return new HttpEntity<>(meterReadings, jsonHeaders());
+    }
+
+    private static HttpHeaders jsonHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-        return new HttpEntity<>(meterReadings, headers);
+        return headers;
     }
 
     @Test
@@ -43,6 +54,74 @@ public class EndpointTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void shouldStoreAndReadReadingsAsCborAndSmile() {
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId("binary-meter")
+                .generateElectricityReadings()
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_CBOR);
+
+        ResponseEntity<String> stored =
+                restTemplate.postForEntity("/readings/store", new HttpEntity<>(meterReadings, headers), String.class);
+        HttpHeaders accept = new HttpHeaders();
+        accept.setAccept(List.of(MediaType.valueOf("application/x-jackson-smile")));
+        ResponseEntity<ElectricityReading[]> read = restTemplate.exchange(
+                "/readings/read/binary-meter", HttpMethod.GET, new HttpEntity<>(accept), ElectricityReading[].class);
+
+        assertThat(stored.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(read.getHeaders().getContentType()).isEqualTo(MediaType.valueOf("application/x-jackson-smile"));
+        assertThat(Arrays.asList(read.getBody())).isEqualTo(meterReadings.electricityReadings());
+    }
+
+    @Test
+    public void shouldStoreReadingsOfManyMetersInOneRequest() {
+        List<MeterReadings> batch = List.of(
+                new MeterReadingsBuilder()
+                        .setSmartMeterId("batch-meter-0")
+                        .generateElectricityReadings()
+                        .build(),
+                new MeterReadingsBuilder()
+                        .setSmartMeterId("batch-meter-1")
+                        .generateElectricityReadings()
+                        .build());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<StoredMeterReadings[]> response = restTemplate.postForEntity(
+                "/readings/store-batch", new HttpEntity<>(batch, headers), StoredMeterReadings[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsExactly(
+                        new StoredMeterReadings(0, "batch-meter-0", true, 5),
+                        new StoredMeterReadings(1, "batch-meter-1", true, 5));
+        assertThat(restTemplate
+                        .getForEntity("/readings/read/batch-meter-1", ElectricityReading[].class)
+                        .getBody())
+                .hasSize(5);
+    }
+
+    @Test
+    public void shouldStoreNdjsonReadingsStream() {
+        String ndjson = "{\"smartMeterId\":\"ndjson-meter\",\"time\":1606636800,\"reading\":0.0503}\n"
+                + "{\"smartMeterId\":\"ndjson-meter\",\"time\":1606636860,\"reading\":0.0621}\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        ResponseEntity<String> response =
+                restTemplate.postForEntity("/readings/store", new HttpEntity<>(ndjson, headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate
+                        .getForEntity("/readings/read/ndjson-meter", ElectricityReading[].class)
+                        .getBody())
+                .containsExactly(
+                        new ElectricityReading(Instant.ofEpochSecond(1606636800), new BigDecimal("0.0503")),
+                        new ElectricityReading(Instant.ofEpochSecond(1606636860), new BigDecimal("0.0621")));
+    }
+
     @SuppressWarnings("DataFlowIssue")
     @Test
     public void givenMeterIdShouldReturnAMeterReadingAssociatedWithMeterId() {
@@ -60,6 +139,47 @@ public class EndpointTest {
         assertThat(Arrays.asList(response.getBody())).isEqualTo(data);
     }
 
+    @Test
+    public void givenTagOfUnchangedReadingsShouldReturnNotModified() {
+        String smartMeterId = "polled-meter";
+        populateReadingsForMeter(
+                smartMeterId,
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:20.00Z"), new BigDecimal(20))));
+        ResponseEntity<String> first = restTemplate.getForEntity("/readings/read/" + smartMeterId, String.class);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(first.getHeaders().getETag());
+        ResponseEntity<String> again = restTemplate.exchange(
+                "/readings/read/" + smartMeterId, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(first.getHeaders().getETag()).startsWith("\"");
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(again.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+        assertThat(again.getBody()).isNull();
+    }
+
+    @Test
+    public void givenLimitShouldPageThroughReadingsWithCursors() {
+        String smartMeterId = "paged-meter";
+        List<ElectricityReading> data = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20.00Z"), new BigDecimal(20)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30.00Z"), new BigDecimal(30)));
+        populateReadingsForMeter(smartMeterId, data);
+
+        ResponseEntity<ElectricityReading[]> first =
+                restTemplate.getForEntity("/readings/read/" + smartMeterId + "?limit=2", ElectricityReading[].class);
+        String cursor = first.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<ElectricityReading[]> second = restTemplate.getForEntity(
+                "/readings/read/" + smartMeterId + "?limit=2&cursor=" + cursor, ElectricityReading[].class);
+
+        assertThat(Arrays.asList(first.getBody())).isEqualTo(data.subList(0, 2));
+        assertThat(Arrays.asList(second.getBody())).isEqualTo(data.subList(2, 3));
+        assertThat(second.getHeaders().containsKey("X-Next-Cursor")).isFalse();
+    }
+
     @Test
     public void shouldCalculateAllPrices() {
         String smartMeterId = "bob";
@@ -78,6 +198,22 @@ public class EndpointTest {
                         Map.of("price-plan-0", 36000, "price-plan-1", 7200, "price-plan-2", 3600), null));
     }
 
+    @Test
+    public void shouldExposeLatencyHistogramsAndIngestMetrics() {
+        populateReadingsForMeter("metrics-meter", List.of(new ElectricityReading(Instant.now(), BigDecimal.ONE)));
+        restTemplate.getForEntity("/price-plans/compare-all/smart-meter-0", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("http_server_requests_seconds_bucket")
+                .contains("uri=\"/price-plans/compare-all/{smartMeterId}\"")
+                .contains("joi_readings_ingested_readings_total")
+                .contains("joi_series_length_readings_bucket")
+                .contains("joi_pricing_costs_seconds_bucket{plans=\"all\"");
+    }
+
     @SuppressWarnings("rawtypes")
     @Test
     public void givenMeterIdAndLimitShouldReturnRecommendedCheapestPricePlans() {
@@ -94,6 +230,40 @@ public class EndpointTest {
         assertThat(response.getBody()).containsExactly(Map.of("price-plan-2", 3600), Map.of("price-plan-1", 7200));
     }
 
+    @Test
+    public void shouldStreamRecommendationsForEveryMeter() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/price-plans/recommend-all?limit=1", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().lines()).anyMatch(line -> line.startsWith("{\"smartMeterId\":\"smart-meter-0\""));
+        String jobId = response.getHeaders().getFirst("X-Job-Id");
+        ResponseEntity<FleetRecommendationJob.Progress> progress = restTemplate.getForEntity(
+                "/price-plans/recommend-all/jobs/" + jobId, FleetRecommendationJob.Progress.class);
+        assertThat(progress.getBody().state()).isEqualTo(FleetRecommendationJob.State.COMPLETED);
+    }
+
+    @Test
+    public void shouldImportAccountsAndCompareCostsAgainstTheImportedPlan() {
+        populateReadingsForMeter(
+                "imported-meter",
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:20.00Z"), new BigDecimal(20))));
+        List<Account> accounts =
+                List.of(new Account("imported-meter", "price-plan-2"), new Account("other-meter", "no-such-plan"));
+
+        ResponseEntity<Map<String, Integer>> imported = restTemplate.exchange(
+                "/accounts",
+                HttpMethod.PUT,
+                new HttpEntity<>(accounts, jsonHeaders()),
+                new ParameterizedTypeReference<Map<String, Integer>>() {});
+        ResponseEntity<CompareAllResponse> compared =
+                restTemplate.getForEntity("/price-plans/compare-all/imported-meter", CompareAllResponse.class);
+
+        assertThat(imported.getBody()).isEqualTo(Map.of("opened", 1, "updated", 0, "rejected", 1));
+        assertThat(compared.getBody().pricePlanId()).isEqualTo("price-plan-2");
+    }
+
     private void populateReadingsForMeter(String smartMeterId, List<ElectricityReading> data) {
         MeterReadings readings = new MeterReadings(smartMeterId, data);
 
@@ -0,0 +1,51 @@
+package uk.tw.energy.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+/**
+ * Serialises and deserialises {@link MeterReadings} with an {@link ObjectMapper} configured as the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeterReadingsJsonBenchmark {
+
+    @Param({"20", "10000"})
+    public int seriesLength;
+
+    private ObjectMapper objectMapper;
+    private MeterReadings meterReadings;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        meterReadings = new MeterReadings("smart-meter-0", new ElectricityReadingsGenerator().generate(seriesLength));
+        json = objectMapper.writeValueAsBytes(meterReadings);
+    }
+
+    @Benchmark
+    public byte[] serialise() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(meterReadings);
+    }
+
+    @Benchmark
+    public MeterReadings deserialise() throws IOException {
+        return objectMapper.readValue(json, MeterReadings.class);
+    }
+}
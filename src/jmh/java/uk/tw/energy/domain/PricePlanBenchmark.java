@@ -0,0 +1,61 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Prices every reading time of a series against every plan, each plan having a multiplier for some days of the week.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PricePlanBenchmark {
+
+    @Param({"20", "10000"})
+    public int seriesLength;
+
+    @Param({"3", "100"})
+    public int planCount;
+
+    private PricePlan[] pricePlans;
+    private LocalDateTime[] dateTimes;
+
+    @Setup
+    public void setUp() {
+        pricePlans = new PricePlan[planCount];
+        for (int i = 0; i < planCount; i++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers = new ArrayList<>();
+            for (int day = 0; day < i % 8; day++) {
+                multipliers.add(new PricePlan.PeakTimeMultiplier(DayOfWeek.of(day + 1), BigDecimal.valueOf(2)));
+            }
+            pricePlans[i] = new PricePlan("price-plan-" + i, "supplier-" + i, BigDecimal.valueOf(i + 1), multipliers);
+        }
+        dateTimes = new LocalDateTime[seriesLength];
+        LocalDateTime start = LocalDateTime.of(2024, 4, 26, 0, 0);
+        for (int i = 0; i < seriesLength; i++) {
+            dateTimes[i] = start.plusMinutes(i * 15L);
+        }
+    }
+
+    @Benchmark
+    public void getPrice(Blackhole blackhole) {
+        for (PricePlan pricePlan : pricePlans) {
+            for (LocalDateTime dateTime : dateTimes) {
+                blackhole.consume(pricePlan.getPrice(dateTime));
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package uk.tw.energy.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Decodes a meter's readings into a {@link ReadingBuffer}, as {@code /readings/store} does, and encodes a stored
+ * series, as {@code /readings/read} does, in each wire format. The Jackson formats are configured as the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadingsWireFormatBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+
+    @Param({"json", "cbor", "smile", "packed"})
+    public String format;
+
+    @Param({"20", "10000"})
+    public int seriesLength;
+
+    private final PackedReadingsFormat packedReadingsFormat = new PackedReadingsFormat();
+    private ObjectMapper objectMapper;
+    private ReadingSeries series;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = objectMapper(format);
+        ColumnarReadingStore store = new ColumnarReadingStore();
+        store.append(SMART_METER_ID, new ElectricityReadingsGenerator().generate(seriesLength));
+        series = store.getSeries(SMART_METER_ID).get();
+        payload = format.equals("packed")
+                ? packedReadingsFormat.write(SMART_METER_ID, series, 0, series.size())
+                : objectMapper.writeValueAsBytes(new MeterReadings(SMART_METER_ID, series.asList()));
+    }
+
+    private static ObjectMapper objectMapper(String format) {
+        if (format.equals("cbor")) {
+            return Jackson2ObjectMapperBuilder.cbor()
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+        }
+        if (format.equals("smile")) {
+            return Jackson2ObjectMapperBuilder.smile()
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+        }
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    @Benchmark
+    public ReadingBuffer decode() throws IOException {
+        if (format.equals("packed")) {
+            return packedReadingsFormat.read(new ByteArrayInputStream(payload)).readings();
+        }
+        MeterReadings meterReadings = objectMapper.readValue(payload, MeterReadings.class);
+        return ReadingBuffer.of(meterReadings.electricityReadings());
+    }
+
+    @Benchmark
+    public byte[] encode() throws JsonProcessingException {
+        if (format.equals("packed")) {
+            return packedReadingsFormat.write(SMART_METER_ID, series, 0, series.size());
+        }
+        return objectMapper.writeValueAsBytes(series.asList());
+    }
+}
@@ -0,0 +1,114 @@
+package uk.tw.energy.service;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingBuffer;
+
+/**
+ * Stores batches from several threads at once. With one meter every thread contends on the same series; with more
+ * meters than threads they mostly write to different series. With metrics, every store is also counted and its series
+ * length recorded in a histogram.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class MeterReadingServiceBenchmark {
+
+    @Param({"10", "500"})
+    public int seriesLength;
+
+    @Param({"1", "64"})
+    public int meterCount;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private static final long TEN_SECONDS = 10_000_000_000L;
+
+    private final AtomicLong batches = new AtomicLong();
+    private MeterReadingService meterReadingService;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        MeterRegistry meterRegistry = new CompositeMeterRegistry();
+        if (metrics) {
+            meterRegistry = new SimpleMeterRegistry();
+            meterRegistry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+            });
+        }
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore(), meterRegistry);
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private String[] smartMeterIds;
+        private List<ElectricityReading> readings;
+        private ReadingBuffer buffer;
+        private AtomicLong batches;
+        private int next;
+
+        @Setup
+        public void setUp(MeterReadingServiceBenchmark benchmark) {
+            smartMeterIds = new String[benchmark.meterCount];
+            for (int i = 0; i < smartMeterIds.length; i++) {
+                smartMeterIds[i] = "smart-meter-" + i;
+            }
+            readings = new ElectricityReadingsGenerator().generate(benchmark.seriesLength);
+            buffer = ReadingBuffer.of(readings);
+            batches = benchmark.batches;
+        }
+
+        /**
+         * Refills the buffer with the same readings moved past the batches taken so far, so batches only arrive out of
+         * order when threads race each other.
+         */
+        ReadingBuffer nextBatch() {
+            long offset = batches.incrementAndGet() * readings.size() * TEN_SECONDS;
+            buffer.clear();
+            for (ElectricityReading reading : readings) {
+                buffer.add(EpochNanos.of(reading.time()) + offset, reading.reading());
+            }
+            return buffer;
+        }
+
+        String nextMeter() {
+            next = next + 1 == smartMeterIds.length ? 0 : next + 1;
+            return smartMeterIds[next];
+        }
+    }
+
+    @Benchmark
+    public void storeReadings(Writer writer) {
+        meterReadingService.storeReadings(writer.nextMeter(), writer.nextBatch());
+    }
+}
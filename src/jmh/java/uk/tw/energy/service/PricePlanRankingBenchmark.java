@@ -0,0 +1,65 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Recommends the three cheapest plans from a large catalogue, half of which have a peak day, against costing and
+ * sorting every plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PricePlanRankingBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+    private static final int LIMIT = 3;
+
+    @Param({"100", "10000"})
+    public int planCount;
+
+    private PricePlanService pricePlanService;
+    private ReadingSeries series;
+
+    @Setup
+    public void setUp() {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(1000));
+        series = meterReadingService.getSeries(SMART_METER_ID).orElseThrow();
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int i = 0; i < planCount; i++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers = i % 2 == 0
+                    ? List.of()
+                    : List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.of(i % 7 + 1), BigDecimal.valueOf(2)));
+            pricePlans.add(new PricePlan(
+                    "price-plan-" + i, "supplier-" + i, BigDecimal.valueOf(i * 7919L % 10000 + 1, 4), multipliers));
+        }
+        pricePlanService = new PricePlanService(pricePlans, meterReadingService);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, BigDecimal>> rankCheapest() {
+        return pricePlanService.rankCheapestPricePlans(series, LIMIT);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, BigDecimal>> sortEveryPlan() {
+        return pricePlanService.rankCheapestPricePlans(series, null).subList(0, LIMIT);
+    }
+}
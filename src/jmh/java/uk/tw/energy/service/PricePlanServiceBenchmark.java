@@ -0,0 +1,60 @@
+package uk.tw.energy.service;
+
+import static java.util.Collections.emptyList;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PricePlanServiceBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+
+    @Param({"20", "10000", "1000000"})
+    public int seriesLength;
+
+    @Param({"3", "100"})
+    public int planCount;
+
+    @Param({"0", "10000"})
+    public int cacheCapacity;
+
+    @Param({"DECIMAL", "FIXED_POINT"})
+    public CostEngine.Type costEngine;
+
+    private PricePlanService pricePlanService;
+
+    @Setup
+    public void setUp() {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(seriesLength));
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int i = 0; i < planCount; i++) {
+            pricePlans.add(new PricePlan("price-plan-" + i, "supplier-" + i, BigDecimal.valueOf(i + 1), emptyList()));
+        }
+        pricePlanService = new PricePlanService(
+                pricePlans, meterReadingService, new PricePlanCostCache(cacheCapacity), costEngine);
+    }
+
+    @Benchmark
+    public Optional<Map<String, BigDecimal>> costForEachPricePlan() {
+        return pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+    }
+}
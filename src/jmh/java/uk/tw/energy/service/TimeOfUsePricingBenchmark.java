@@ -0,0 +1,63 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Applies peak time multipliers to a series' costs when every plan has a peak day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeOfUsePricingBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+
+    @Param({"20", "10000", "1000000"})
+    public int seriesLength;
+
+    @Param({"3", "100"})
+    public int planCount;
+
+    private TimeOfUsePricing timeOfUsePricing;
+    private ReadingSeries series;
+    private Map<String, BigDecimal> costs;
+
+    @Setup
+    public void setUp() {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(seriesLength));
+        series = meterReadingService.getSeries(SMART_METER_ID).orElseThrow();
+        List<PricePlan> pricePlans = new ArrayList<>();
+        costs = new HashMap<>();
+        for (int i = 0; i < planCount; i++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers =
+                    List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.of(i % 7 + 1), BigDecimal.valueOf(2)));
+            pricePlans.add(new PricePlan("price-plan-" + i, "supplier-" + i, BigDecimal.valueOf(i + 1), multipliers));
+            costs.put("price-plan-" + i, BigDecimal.valueOf(i + 1, 4));
+        }
+        timeOfUsePricing = new TimeOfUsePricing(pricePlans);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> apply() {
+        return timeOfUsePricing.apply(series, costs);
+    }
+}
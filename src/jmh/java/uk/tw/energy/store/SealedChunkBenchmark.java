@@ -0,0 +1,61 @@
+package uk.tw.energy.store;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Streams through a full chunk of regular readings, from the open chunk and from its sealed copy, and seals it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SealedChunkBenchmark {
+
+    private static final long TEN_SECONDS = 10_000_000_000L;
+
+    private ReadingChunk chunk;
+    private SealedChunk sealed;
+
+    @Setup
+    public void setUp() {
+        chunk = new ReadingChunk(MeterSeries.CHUNK_CAPACITY);
+        Random random = new Random(42);
+        long value = 5000;
+        for (int i = 0; i < MeterSeries.CHUNK_CAPACITY; i++) {
+            value += random.nextInt(-20, 21);
+            chunk.append(1_714_089_600_000_000_000L + i * TEN_SECONDS, value, 4);
+        }
+        sealed = SealedChunk.seal(chunk);
+    }
+
+    @Benchmark
+    public long scanOpenChunk() {
+        long sum = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            sum += chunk.times[i] + chunk.values[i] + chunk.scales[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long scanSealedChunk() {
+        long sum = 0;
+        SealedChunk.Decoder decoder = sealed.decoder();
+        while (decoder.next()) {
+            sum += decoder.time() + decoder.value() + decoder.scale();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public SealedChunk seal() {
+        return SealedChunk.seal(chunk);
+    }
+}
@@ -0,0 +1,58 @@
+package uk.tw.energy.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+/**
+ * Synthetic smart meters, each with readings ten seconds apart made by {@link ElectricityReadingsGenerator}. The
+ * oldest readings are stored up front as the meter's history; the rest are stored one at a time during the test.
+ */
+final class Fleet {
+
+    private final List<String> smartMeterIds;
+    private final List<List<ElectricityReading>> readings;
+    private final int history;
+    private final int[] stored;
+
+    private Fleet(List<String> smartMeterIds, List<List<ElectricityReading>> readings, int history) {
+        this.smartMeterIds = smartMeterIds;
+        this.readings = readings;
+        this.history = history;
+        this.stored = new int[smartMeterIds.size()];
+    }
+
+    static Fleet generate(int meters, int history, int storesPerMeter) {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        List<String> smartMeterIds = new ArrayList<>(meters);
+        List<List<ElectricityReading>> readings = new ArrayList<>(meters);
+        for (int meter = 0; meter < meters; meter++) {
+            smartMeterIds.add("load-meter-" + meter);
+            readings.add(generator.generate(history + storesPerMeter));
+        }
+        return new Fleet(smartMeterIds, readings, history);
+    }
+
+    int size() {
+        return smartMeterIds.size();
+    }
+
+    String smartMeterId(int meter) {
+        return smartMeterIds.get(meter);
+    }
+
+    MeterReadings history(int meter) {
+        return new MeterReadings(smartMeterIds.get(meter), readings.get(meter).subList(0, history));
+    }
+
+    /**
+     * Takes the meter's next reading. Not thread safe; once a meter runs out, its last reading is sent again.
+     */
+    MeterReadings nextReading(int meter) {
+        List<ElectricityReading> series = readings.get(meter);
+        int index = Math.min(history + stored[meter]++, series.size() - 1);
+        return new MeterReadings(smartMeterIds.get(meter), List.of(series.get(index)));
+    }
+}
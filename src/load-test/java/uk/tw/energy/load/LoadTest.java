@@ -0,0 +1,220 @@
+package uk.tw.energy.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import uk.tw.energy.domain.MeterReadings;
+
+/**
+ * Drives a running instance with a synthetic fleet of meters and reports the throughput and latency percentiles of
+ * each kind of request.
+ *
+ * <p>Requests are sent on a fixed schedule however long the responses take, and each latency is measured from when its
+ * request was due. A stalled response therefore also counts against the requests that should have been sent while it
+ * stalled, rather than hiding them.
+ */
+public final class LoadTest {
+
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final long SEED = 42;
+
+    private final LoadTestOptions options;
+    private final Fleet fleet;
+    private final HttpClient httpClient =
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    LoadTest(LoadTestOptions options, Fleet fleet) {
+        this.options = options;
+        this.fleet = fleet;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.printf(
+                Locale.ROOT, "Generating %d meters with %d readings of history%n", options.meters(), options.history());
+        LoadTest loadTest =
+                new LoadTest(options, Fleet.generate(options.meters(), options.history(), options.storesPerMeter()));
+        loadTest.seed();
+        System.out.printf(
+                Locale.ROOT,
+                "Sending %.1f requests a second to %s for %d s, recording after %d s%n",
+                options.rate(),
+                options.url(),
+                options.warmupSeconds() + options.durationSeconds(),
+                options.warmupSeconds());
+        loadTest.run();
+        loadTest.report(System.out);
+    }
+
+    /**
+     * Stores each meter's history, so every meter can be read and costed from the start.
+     */
+    void seed() throws IOException, InterruptedException {
+        for (int from = 0; from < fleet.size(); from += SEED_BATCH_SIZE) {
+            List<MeterReadings> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int meter = from; meter < Math.min(fleet.size(), from + SEED_BATCH_SIZE); meter++) {
+                batch.add(fleet.history(meter));
+            }
+            HttpResponse<String> response =
+                    httpClient.send(post("/readings/store-batch", batch), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException(
+                        "Storing the fleet's history failed with " + response.statusCode() + ": " + response.body());
+            }
+        }
+    }
+
+    void run() throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Operation[] weighted = weighted(options.mix());
+        double nanosBetweenRequests = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        int nextStore = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long sent = 0; ; sent++) {
+                long due = start + (long) (sent * nanosBetweenRequests);
+                if (due >= end) {
+                    break;
+                }
+                LockSupport.parkNanos(due - System.nanoTime());
+                Operation operation = weighted[random.nextInt(weighted.length)];
+                String smartMeterId =
+                        URLEncoder.encode(fleet.smartMeterId(random.nextInt(fleet.size())), StandardCharsets.UTF_8);
+                HttpRequest request =
+                        switch (operation) {
+                            case STORE -> {
+                                MeterReadings reading = fleet.nextReading(nextStore);
+                                nextStore = (nextStore + 1) % fleet.size();
+                                yield post("/readings/store", reading);
+                            }
+                            case READ -> get("/readings/read/" + smartMeterId);
+                            case COMPARE_ALL -> get("/price-plans/compare-all/" + smartMeterId);
+                            case RECOMMEND -> get("/price-plans/recommend/" + smartMeterId);
+                        };
+                boolean recorded = due >= recordFrom;
+                executor.execute(() -> send(operation, request, due, recorded));
+            }
+        }
+    }
+
+    private void send(Operation operation, HttpRequest request, long due, boolean recorded) {
+        boolean failed;
+        try {
+            failed = httpClient
+                            .send(request, HttpResponse.BodyHandlers.discarding())
+                            .statusCode()
+                    >= 400;
+        } catch (IOException e) { // including timeouts
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (recorded) {
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+            if (failed) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    void report(PrintStream out) {
+        out.printf(
+                Locale.ROOT,
+                "%-12s %10s %8s %11s %9s %9s %9s %9s%n",
+                "operation",
+                "requests",
+                "errors",
+                "per second",
+                "p50 ms",
+                "p99 ms",
+                "p99.9 ms",
+                "max ms");
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                long operationErrors = errors.get(operation).sum();
+                reportLine(out, operation.label(), histogram, operationErrors);
+                all.add(histogram);
+                allErrors += operationErrors;
+            }
+        }
+        reportLine(out, "all", all, allErrors);
+    }
+
+    private void reportLine(PrintStream out, String label, Histogram histogram, long errors) {
+        out.printf(
+                Locale.ROOT,
+                "%-12s %10d %8d %11.1f %9.2f %9.2f %9.2f %9.2f%n",
+                label,
+                histogram.getTotalCount(),
+                errors,
+                (double) histogram.getTotalCount() / options.durationSeconds(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * @return each operation repeated as many times as its weight, so a uniform pick follows the mix
+     */
+    private static Operation[] weighted(Map<Operation, Integer> mix) {
+        List<Operation> weighted = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        return weighted.toArray(Operation[]::new);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(options.url().resolve(path))
+                .timeout(Duration.ofSeconds(options.timeoutSeconds()))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(options.url().resolve(path))
+                .timeout(Duration.ofSeconds(options.timeoutSeconds()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+}
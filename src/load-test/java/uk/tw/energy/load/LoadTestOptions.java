@@ -0,0 +1,92 @@
+package uk.tw.energy.load;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of a load test, given as {@code --name=value} arguments.
+ *
+ * @param meters meters in the synthetic fleet
+ * @param intervalSeconds how often each meter stores a reading
+ * @param history readings stored for each meter before the test starts
+ * @param warmupSeconds seconds of traffic sent before latencies are recorded
+ * @param durationSeconds seconds of traffic whose latencies are recorded
+ * @param mix relative weight of each operation
+ * @param rate requests sent a second, by default enough for each meter to store a reading every interval
+ * @param timeoutSeconds how long a request may take before it counts as an error
+ */
+record LoadTestOptions(
+        URI url,
+        int meters,
+        int intervalSeconds,
+        int history,
+        int warmupSeconds,
+        int durationSeconds,
+        Map<Operation, Integer> mix,
+        double rate,
+        int timeoutSeconds) {
+
+    static final String DEFAULT_MIX = "store=90,read=5,compare-all=4,recommend=1";
+
+    static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int meters = Integer.parseInt(values.getOrDefault("meters", "10000"));
+        int intervalSeconds = Integer.parseInt(values.getOrDefault("interval-seconds", "10"));
+        Map<Operation, Integer> mix = parseMix(values.getOrDefault("mix", DEFAULT_MIX));
+        double rate = values.containsKey("rate")
+                ? Double.parseDouble(values.get("rate"))
+                : defaultRate(meters, intervalSeconds, mix);
+        return new LoadTestOptions(
+                URI.create(values.getOrDefault("url", "http://localhost:8080")),
+                meters,
+                intervalSeconds,
+                Integer.parseInt(values.getOrDefault("history", "20")),
+                Integer.parseInt(values.getOrDefault("warmup-seconds", "10")),
+                Integer.parseInt(values.getOrDefault("duration-seconds", "60")),
+                mix,
+                rate,
+                Integer.parseInt(values.getOrDefault("timeout-seconds", "10")));
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight but got " + entry);
+            }
+            weights.put(Operation.fromLabel(weight[0]), Integer.parseInt(weight[1]));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs a positive weight");
+        }
+        return weights;
+    }
+
+    private static double defaultRate(int meters, int intervalSeconds, Map<Operation, Integer> mix) {
+        int stores = mix.getOrDefault(Operation.STORE, 0);
+        if (stores == 0) {
+            throw new IllegalArgumentException("--rate is needed when the mix has no stores");
+        }
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        return (double) meters / intervalSeconds * total / stores;
+    }
+
+    /**
+     * @return readings each meter needs beyond its history, if stores are spread evenly over the fleet
+     */
+    int storesPerMeter() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double storeRate = rate * mix.getOrDefault(Operation.STORE, 0) / total;
+        return (int) Math.ceil(storeRate * (warmupSeconds + durationSeconds) / meters) + 1;
+    }
+}
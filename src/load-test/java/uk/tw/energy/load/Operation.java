@@ -0,0 +1,30 @@
+package uk.tw.energy.load;
+
+import java.util.Arrays;
+
+/**
+ * The kinds of request the load test sends, named as in {@code --mix}.
+ */
+enum Operation {
+    STORE("store"),
+    READ("read"),
+    COMPARE_ALL("compare-all"),
+    RECOMMEND("recommend");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Operation fromLabel(String label) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.label.equals(label))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + label));
+    }
+}
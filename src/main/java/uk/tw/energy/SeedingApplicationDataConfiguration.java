@@ -4,18 +4,34 @@ import static java.util.Collections.emptyList;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
-import uk.tw.energy.domain.ElectricityReading;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import uk.tw.energy.cluster.ClusterMembership;
 import uk.tw.energy.domain.PricePlan;
-import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.generator.FleetSeeder;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.DurableReadingStore;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingStore;
+import uk.tw.energy.store.RollupPolicy;
+import uk.tw.energy.store.SmartMeterRegistry;
 
 @Configuration
 public class SeedingApplicationDataConfiguration {
@@ -34,15 +50,57 @@ public class SeedingApplicationDataConfiguration {
     }
 
     @Bean
-    public Map<String, List<ElectricityReading>> perMeterElectricityReadings() {
-        final Map<String, List<ElectricityReading>> readings = new HashMap<>();
-        final ElectricityReadingsGenerator electricityReadingsGenerator = new ElectricityReadingsGenerator();
-        smartMeterToPricePlanAccounts()
-                .keySet()
-                .forEach(smartMeterId -> readings.put(smartMeterId, electricityReadingsGenerator.generate(20)));
+    public ReadingStore readingStore(
+            @Value("${joi.storage.wal.enabled:false}") boolean walEnabled,
+            @Value("${joi.storage.wal.directory:data/wal}") String walDirectory,
+            @Value("${joi.storage.wal.segment-size:67108864}") int walSegmentSize,
+            @Value("${joi.storage.wal.checkpoint-segments:8}") int walCheckpointSegments,
+            @Value("${joi.storage.rollup.tiers:}") String rollupTiers,
+            SmartMeterRegistry smartMeterRegistry,
+            FleetSeeder fleetSeeder,
+            @Value("${joi.seed.until:}") String seedUntil,
+            Optional<ClusterMembership> clusterMembership)
+            throws IOException {
+        final ColumnarReadingStore columnarReadings =
+                new ColumnarReadingStore(smartMeterRegistry, RollupPolicy.parse(rollupTiers));
+        final ReadingStore readings = walEnabled
+                ? new DurableReadingStore(
+                        columnarReadings, Path.of(walDirectory), walSegmentSize, walCheckpointSegments)
+                : columnarReadings;
+        if (readings instanceof DurableReadingStore durableReadings
+                && !durableReadings.smartMeterIds().isEmpty()) {
+            return readings;
+        }
+        fleetSeeder.seed(
+                readings,
+                EpochNanos.of(seedUntil.isBlank() ? Instant.now() : Instant.parse(seedUntil)),
+                smartMeterId -> clusterMembership
+                        .map(membership -> membership.isLocal(smartMeterId))
+                        .orElse(true));
         return readings;
     }
 
+    /**
+     * Numbers every meter once for both the reading store and the accounts.
+     */
+    @Bean
+    public SmartMeterRegistry smartMeterRegistry() {
+        return new SmartMeterRegistry();
+    }
+
+    /**
+     * Generates the demo fleet. The first five meters have accounts; the rest only have readings.
+     */
+    @Bean
+    public FleetSeeder fleetSeeder(
+            @Value("${joi.seed.meters:5}") int meters,
+            @Value("${joi.seed.readings-per-meter:20}") int readingsPerMeter,
+            @Value("${joi.seed.interval-seconds:10}") long intervalSeconds,
+            @Value("${joi.seed.random-seed:42}") long seed,
+            @Value("${joi.seed.parallelism:0}") int parallelism) {
+        return new FleetSeeder(meters, readingsPerMeter, Duration.ofSeconds(intervalSeconds), seed, parallelism);
+    }
+
     @Bean
     public Map<String, String> smartMeterToPricePlanAccounts() {
         final Map<String, String> smartMeterToPricePlanAccounts = new HashMap<>();
@@ -61,4 +119,21 @@ public class SeedingApplicationDataConfiguration {
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         return objectMapper;
     }
+
+    /**
+     * Binary formats write times as epoch seconds with a nanosecond fraction rather than as ISO-8601 text.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+    }
 }
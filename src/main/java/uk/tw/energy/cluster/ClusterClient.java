@@ -0,0 +1,182 @@
+package uk.tw.energy.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.controller.MeterReadingController;
+import uk.tw.energy.ingest.PackedReadingsFormat;
+import uk.tw.energy.store.SeriesAggregates;
+
+/**
+ * Sends requests to other instances of the cluster. Every request carries {@link #FORWARDED_HEADER}, so the instance
+ * receiving it handles it itself instead of forwarding it again, and the cluster's shared secret in
+ * {@link #SECRET_HEADER}, which the instances check before accepting readings or membership changes from each other.
+ */
+@Component
+@ConditionalOnProperty(name = "joi.cluster.nodes")
+public class ClusterClient {
+
+    public static final String FORWARDED_HEADER = "X-Joi-Forwarded";
+    public static final String SECRET_HEADER = "X-Joi-Cluster-Secret";
+    private static final List<String> PROXIED_REQUEST_HEADERS = List.of(HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> PROXIED_RESPONSE_HEADERS =
+            List.of(HttpHeaders.ETAG, HttpHeaders.VARY, MeterReadingController.NEXT_CURSOR_HEADER);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final String secret;
+
+    public ClusterClient(
+            ObjectMapper objectMapper,
+            @Value("${joi.cluster.timeout-millis:5000}") long timeoutMillis,
+            @Value("${joi.cluster.secret}") String secret) {
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("joi.cluster.secret must be set to run a cluster");
+        }
+        this.secret = secret;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param secret the value of a request's {@link #SECRET_HEADER}
+     * @return whether it is the cluster's secret, compared in constant time
+     */
+    public boolean isFromPeer(String secret) {
+        return secret != null
+                && MessageDigest.isEqual(
+                        secret.getBytes(StandardCharsets.UTF_8), this.secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores packed readings on {@code node}, which stores them itself whichever node it thinks owns the meter.
+     *
+     * @return the number of readings the node holds for the meter afterwards
+     * @throws UncheckedIOException if the node could not be reached or did not store the readings
+     */
+    public int storeReadings(String node, byte[] packedReadings) {
+        return storePacked(node, "/cluster/readings", packedReadings);
+    }
+
+    /**
+     * Stores packed samples on {@code node} without counting them in the meter's aggregates, like
+     * {@link #storeReadings}.
+     */
+    public int storeSamples(String node, byte[] packedSamples) {
+        return storePacked(node, "/cluster/samples", packedSamples);
+    }
+
+    /**
+     * Counts readings in the aggregates of the meter on {@code node} without adding samples of them.
+     *
+     * @throws UncheckedIOException if the node could not be reached or did not count them
+     */
+    public void storeAggregates(String node, String smartMeterId, SeriesAggregates aggregates) {
+        try {
+            send(request(node, "/cluster/aggregates")
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                            new ClusterController.MeterAggregates(smartMeterId, aggregates))))
+                    .build());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tells {@code node} the new members of the cluster.
+     *
+     * @return the node's JSON response
+     * @throws UncheckedIOException if the node could not be reached or refused the update
+     */
+    public String updateNodes(String node, List<String> nodes) {
+        try {
+            return send(request(node, "/cluster/nodes")
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(nodes)))
+                            .build())
+                    .body();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends a GET request on to {@code node} and copies its status, content type, entity tag and body into the
+     * response.
+     */
+    public void proxy(String node, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder forwarded = request(node, request.getRequestURI() + (query == null ? "" : "?" + query));
+        for (String header : PROXIED_REQUEST_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                forwarded.header(header, value);
+            }
+        }
+        HttpResponse<InputStream> owner;
+        try {
+            owner = httpClient.send(forwarded.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted forwarding to " + node);
+        }
+        response.setStatus(owner.statusCode());
+        owner.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(response::setContentType);
+        for (String header : PROXIED_RESPONSE_HEADERS) {
+            owner.headers().firstValue(header).ifPresent(value -> response.setHeader(header, value));
+        }
+        try (InputStream body = owner.body()) {
+            body.transferTo(response.getOutputStream());
+        }
+    }
+
+    private int storePacked(String node, String path, byte[] packed) {
+        HttpResponse<String> response = send(request(node, path)
+                .header(HttpHeaders.CONTENT_TYPE, PackedReadingsFormat.MEDIA_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(packed))
+                .build());
+        return Integer.parseInt(response.body().trim());
+    }
+
+    private HttpRequest.Builder request(String node, String path) {
+        return HttpRequest.newBuilder(URI.create(node + path))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, "true")
+                .header(SECRET_HEADER, secret);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException(request.uri() + " answered " + response.statusCode() + ": " + response.body());
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted sending to " + request.uri()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
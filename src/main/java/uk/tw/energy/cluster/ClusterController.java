@@ -0,0 +1,189 @@
+package uk.tw.energy.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.tw.energy.ingest.NdjsonReadingsReader;
+import uk.tw.energy.ingest.PackedReadingsFormat;
+import uk.tw.energy.store.SeriesAggregates;
+
+@RestController
+@RequestMapping("/cluster")
+@ConditionalOnProperty(name = "joi.cluster.nodes")
+public class ClusterController {
+
+    /**
+     * Reported in {@link Rebalance#failed} for an instance that could not be told about the change.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterController.class);
+
+    private final ClusterMembership membership;
+    private final ClusteredReadingStore readingStore;
+    private final ClusterClient clusterClient;
+    private final ObjectMapper objectMapper;
+    private final PackedReadingsFormat packedReadingsFormat = new PackedReadingsFormat();
+
+    public ClusterController(
+            ClusterMembership membership,
+            ClusteredReadingStore readingStore,
+            ClusterClient clusterClient,
+            ObjectMapper objectMapper) {
+        this.membership = membership;
+        this.readingStore = readingStore;
+        this.clusterClient = clusterClient;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping
+    public ResponseEntity<ClusterStatus> status() {
+        return ResponseEntity.ok(new ClusterStatus(
+                membership.self(),
+                membership.nodes(),
+                readingStore.smartMeterIds().size()));
+    }
+
+    /**
+     * Stores readings forwarded by another instance.
+     *
+     * @return the number of readings held for the meter afterwards, or {@code 403 Forbidden} without the cluster's
+     *     secret
+     */
+    @PostMapping(value = "/readings", consumes = PackedReadingsFormat.MEDIA_TYPE)
+    public ResponseEntity<Integer> storeForwardedReadings(
+            InputStream body, @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret)
+            throws IOException {
+        if (!clusterClient.isFromPeer(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            PackedReadingsFormat.PackedReadings packed = packedReadingsFormat.read(body);
+            return ResponseEntity.ok(readingStore.appendLocal(packed.smartMeterId(), packed.readings()));
+        } catch (NdjsonReadingsReader.MalformedReadingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stores the samples of a meter another instance is handing over, without counting them in its aggregates.
+     *
+     * @return the number of samples held for the meter afterwards
+     */
+    @PostMapping(value = "/samples", consumes = PackedReadingsFormat.MEDIA_TYPE)
+    public ResponseEntity<Integer> storeHandedOffSamples(
+            InputStream body, @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret)
+            throws IOException {
+        if (!clusterClient.isFromPeer(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            PackedReadingsFormat.PackedReadings packed = packedReadingsFormat.read(body);
+            return ResponseEntity.ok(readingStore.appendSamplesLocal(packed.smartMeterId(), packed.readings()));
+        } catch (NdjsonReadingsReader.MalformedReadingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Counts the readings of a meter another instance is handing over, once it has sent their samples.
+     */
+    @PostMapping("/aggregates")
+    public ResponseEntity<Void> storeHandedOffAggregates(
+            @RequestBody MeterAggregates aggregates,
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret) {
+        if (!clusterClient.isFromPeer(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (aggregates.smartMeterId() == null || aggregates.aggregates() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        readingStore.addAggregatesLocal(aggregates.smartMeterId(), aggregates.aggregates());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Replaces the members of the cluster and hands off the meters that moved. Unless the request was forwarded by
+     * another instance, the new members, and any members being removed, are told about the change too.
+     *
+     * <p>Handing off sends readings to the new members, so the request must carry the cluster's secret, and every
+     * member must be one of the configured peers.
+     *
+     * <p>An instance that cannot be reached, such as a crashed one being removed, is reported as {@link #UNREACHABLE}
+     * and the change carries on, so this instance still hands off the meters it no longer owns.
+     */
+    @PutMapping("/nodes")
+    public ResponseEntity<Rebalance> updateNodes(
+            @RequestBody List<String> nodes,
+            @RequestHeader(value = ClusterClient.FORWARDED_HEADER, required = false) String forwarded,
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret) {
+        if (!clusterClient.isFromPeer(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (nodes == null || nodes.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> notify = new LinkedHashSet<>(membership.nodes());
+        try {
+            membership.update(nodes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        notify.addAll(membership.nodes());
+        notify.remove(membership.self());
+
+        Map<String, Integer> handedOff = new TreeMap<>();
+        Map<String, Integer> failed = new TreeMap<>();
+        if (forwarded == null) {
+            for (String node : notify) {
+                Rebalance rebalance;
+                try {
+                    rebalance = objectMapper.readValue(
+                            clusterClient.updateNodes(node, membership.nodes()), Rebalance.class);
+                } catch (UncheckedIOException | JsonProcessingException e) {
+                    LOGGER.warn("Could not tell {} about the new members", node, e);
+                    failed.put(node, UNREACHABLE);
+                    continue;
+                }
+                handedOff.putAll(rebalance.handedOff());
+                failed.putAll(rebalance.failed());
+            }
+        }
+        ClusteredReadingStore.HandOff handOff = readingStore.handOff();
+        handedOff.put(membership.self(), handOff.handedOff());
+        failed.put(membership.self(), handOff.failed());
+        return ResponseEntity.ok(new Rebalance(membership.nodes(), handedOff, failed));
+    }
+
+    /**
+     * @param meters number of meters whose readings this instance holds
+     */
+    public record ClusterStatus(String self, List<String> nodes, int meters) {}
+
+    /**
+     * @param handedOff number of meters each instance handed off to their new owners
+     * @param failed number of meters each instance could not hand off, and still holds, or {@link #UNREACHABLE}
+     */
+    public record Rebalance(List<String> nodes, Map<String, Integer> handedOff, Map<String, Integer> failed) {}
+
+    public record MeterAggregates(String smartMeterId, SeriesAggregates aggregates) {}
+}
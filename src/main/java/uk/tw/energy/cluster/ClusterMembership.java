@@ -0,0 +1,82 @@
+package uk.tw.energy.cluster;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The instances of a cluster, identified by their base URLs, and which of them owns each smart meter. Membership is
+ * configured statically with {@code joi.cluster.nodes} and can be replaced at runtime when nodes are added or removed,
+ * but only by nodes listed in {@code joi.cluster.peers}, so that membership can never name an arbitrary URL.
+ */
+@Component
+@ConditionalOnProperty(name = "joi.cluster.nodes")
+public class ClusterMembership {
+
+    private final String self;
+    private final Set<String> peers;
+    private final int virtualNodes;
+    private volatile ConsistentHashRing ring;
+
+    public ClusterMembership(
+            @Value("${joi.cluster.self}") String self,
+            @Value("${joi.cluster.nodes}") List<String> nodes,
+            @Value("${joi.cluster.peers:${joi.cluster.nodes}}") List<String> peers,
+            @Value("${joi.cluster.virtual-nodes:128}") int virtualNodes) {
+        this.self = normalise(self);
+        this.peers = peers.stream().map(ClusterMembership::normalise).collect(Collectors.toUnmodifiableSet());
+        this.virtualNodes = virtualNodes;
+        this.ring = ring(nodes);
+        if (!ring.nodes().contains(this.self)) {
+            throw new IllegalArgumentException("Cluster nodes " + ring.nodes() + " do not include " + this.self);
+        }
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    public String ownerOf(String smartMeterId) {
+        return ring.ownerOf(smartMeterId);
+    }
+
+    public boolean isLocal(String smartMeterId) {
+        return ring.ownerOf(smartMeterId).equals(self);
+    }
+
+    /**
+     * Replaces the members of the cluster. Meters move only between nodes whose arcs of the ring changed. The new
+     * members need not include this instance, which then owns no meters and hands all of them off.
+     *
+     * @throws IllegalArgumentException if any of the nodes is not one of the configured peers
+     */
+    public void update(List<String> nodes) {
+        ConsistentHashRing updated = ring(nodes);
+        for (String node : updated.nodes()) {
+            if (!peers.contains(node)) {
+                throw new IllegalArgumentException(node + " is not one of the cluster's peers");
+            }
+        }
+        ring = updated;
+    }
+
+    private ConsistentHashRing ring(List<String> nodes) {
+        return new ConsistentHashRing(
+                nodes.stream().map(ClusterMembership::normalise).toList(), virtualNodes);
+    }
+
+    /**
+     * @return the URL without surrounding spaces or a trailing slash, so each node has a single id
+     */
+    private static String normalise(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
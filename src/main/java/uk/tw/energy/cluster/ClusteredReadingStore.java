@@ -0,0 +1,179 @@
+package uk.tw.energy.cluster;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.ingest.PackedReadingsFormat;
+import uk.tw.energy.store.IngestStats;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+import uk.tw.energy.store.ReadingStore;
+import uk.tw.energy.store.SeriesAggregates;
+import uk.tw.energy.store.StorageStats;
+
+/**
+ * {@link ReadingStore} that keeps the readings of the meters this instance owns in a local store, and sends readings
+ * of other meters on to their owners. Reads only see the local store; requests to read a meter are sent to its owner
+ * by {@link MeterForwardingFilter}.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "joi.cluster.nodes")
+public class ClusteredReadingStore implements ReadingStore {
+
+    static final int HAND_OFF_BATCH_SIZE = 65_536;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusteredReadingStore.class);
+
+    private final ReadingStore local;
+    private final ClusterMembership membership;
+    private final ClusterClient clusterClient;
+    private final PackedReadingsFormat packedReadingsFormat = new PackedReadingsFormat();
+
+    public ClusteredReadingStore(
+            @Qualifier("readingStore") ReadingStore local, ClusterMembership membership, ClusterClient clusterClient) {
+        this.local = local;
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+    }
+
+    /**
+     * @return the number of readings held for the meter afterwards, by whichever instance owns it
+     */
+    @Override
+    public int append(String smartMeterId, ReadingBuffer readings) {
+        String owner = membership.ownerOf(smartMeterId);
+        if (owner.equals(membership.self())) {
+            return local.append(smartMeterId, readings);
+        }
+        return clusterClient.storeReadings(owner, packedReadingsFormat.write(smartMeterId, readings));
+    }
+
+    /**
+     * Stores readings sent by another instance here, even if this instance does not think it owns the meter, so that
+     * instances briefly disagreeing about membership never send readings back and forth.
+     */
+    public int appendLocal(String smartMeterId, ReadingBuffer readings) {
+        return local.append(smartMeterId, readings);
+    }
+
+    @Override
+    public int appendSamples(String smartMeterId, ReadingBuffer samples) {
+        String owner = membership.ownerOf(smartMeterId);
+        if (owner.equals(membership.self())) {
+            return local.appendSamples(smartMeterId, samples);
+        }
+        return clusterClient.storeSamples(owner, packedReadingsFormat.write(smartMeterId, samples));
+    }
+
+    /**
+     * Stores samples sent by another instance here, like {@link #appendLocal}.
+     */
+    public int appendSamplesLocal(String smartMeterId, ReadingBuffer samples) {
+        return local.appendSamples(smartMeterId, samples);
+    }
+
+    @Override
+    public void addAggregates(String smartMeterId, SeriesAggregates aggregates) {
+        String owner = membership.ownerOf(smartMeterId);
+        if (owner.equals(membership.self())) {
+            local.addAggregates(smartMeterId, aggregates);
+        } else {
+            clusterClient.storeAggregates(owner, smartMeterId, aggregates);
+        }
+    }
+
+    /**
+     * Counts readings sent by another instance here, like {@link #appendLocal}.
+     */
+    public void addAggregatesLocal(String smartMeterId, SeriesAggregates aggregates) {
+        local.addAggregates(smartMeterId, aggregates);
+    }
+
+    /**
+     * @return whether this instance still holds readings of the meter, either because it owns it or because it has not
+     *     handed it off yet
+     */
+    public boolean holdsLocally(String smartMeterId) {
+        return local.smartMeterIds().contains(smartMeterId);
+    }
+
+    @Override
+    public Optional<ReadingSeries> getSeries(String smartMeterId) {
+        return local.getSeries(smartMeterId);
+    }
+
+    @Override
+    public Set<String> smartMeterIds() {
+        return local.smartMeterIds();
+    }
+
+    @Override
+    public boolean remove(String smartMeterId) {
+        return local.remove(smartMeterId);
+    }
+
+    @Override
+    public Optional<StorageStats> storageStats() {
+        return local.storageStats();
+    }
+
+    @Override
+    public Optional<IngestStats> ingestStats() {
+        return local.ingestStats();
+    }
+
+    /**
+     * Sends the readings of every local meter that another instance now owns to that instance, then drops them here.
+     * Readings stored for such a meter while it is being handed off may be lost.
+     *
+     * <p>The samples are sent as they are held, some of them perhaps rolled up, without being counted, followed by the
+     * meter's aggregates, so the new owner counts every reading that was counted here exactly as it was. A meter is
+     * only dropped once all of that has been sent. Meters that could not be sent stay here, and are still read from
+     * here, until a later hand off succeeds; sending them again is harmless, as the new owner drops the samples it
+     * already has.
+     */
+    public HandOff handOff() {
+        int handedOff = 0;
+        int failed = 0;
+        for (String smartMeterId : List.copyOf(local.smartMeterIds())) {
+            String owner = membership.ownerOf(smartMeterId);
+            if (owner.equals(membership.self())) {
+                continue;
+            }
+            try {
+                Optional<ReadingSeries> series = local.getSeries(smartMeterId);
+                if (series.isPresent()) {
+                    send(owner, smartMeterId, series.get());
+                }
+                local.remove(smartMeterId);
+                handedOff++;
+            } catch (UncheckedIOException e) {
+                LOGGER.warn("Could not hand off {} to {}; keeping its readings here", smartMeterId, owner, e);
+                failed++;
+            }
+        }
+        return new HandOff(handedOff, failed);
+    }
+
+    private void send(String owner, String smartMeterId, ReadingSeries series) {
+        int size = series.size();
+        for (int from = 0; from < size; from += HAND_OFF_BATCH_SIZE) {
+            int to = Math.min(size, from + HAND_OFF_BATCH_SIZE);
+            clusterClient.storeSamples(owner, packedReadingsFormat.write(smartMeterId, series, from, to));
+        }
+        clusterClient.storeAggregates(owner, smartMeterId, series.aggregates());
+    }
+
+    /**
+     * @param handedOff number of meters handed off
+     * @param failed number of meters that could not be sent to their new owners, so are still held here
+     */
+    public record HandOff(int handedOff, int failed) {}
+}
@@ -0,0 +1,89 @@
+package uk.tw.energy.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Assigns smart meters to nodes by consistent hashing. Each node is placed on a ring of 64-bit hashes at
+ * {@code virtualNodes} points, and a meter belongs to the node at the first point at or after its id's hash.
+ *
+ * <p>Adding a node only takes over the arcs just before its own points, so the only meters that move are those that
+ * move to the new node, about {@code 1 / nodes} of them. Removing a node likewise only moves the meters it owned.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes ids of the nodes, in any order; the same set of nodes always gives the same assignment
+     * @param virtualNodes points placed on the ring for each node
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(new TreeSet<>(nodes));
+        if (this.nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Each node needs at least one point on the ring");
+        }
+        Point[] ring = new Point[this.nodes.size() * virtualNodes];
+        for (int node = 0; node < this.nodes.size(); node++) {
+            for (int point = 0; point < virtualNodes; point++) {
+                ring[node * virtualNodes + point] = new Point(hash(this.nodes.get(node) + "#" + point), node);
+            }
+        }
+        Arrays.sort(ring, Comparator.comparingLong(Point::hash).thenComparingInt(Point::node));
+        this.points = new long[ring.length];
+        this.owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash();
+            owners[i] = ring[i].node();
+        }
+    }
+
+    /**
+     * @return the ids of the nodes, sorted
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public String ownerOf(String smartMeterId) {
+        long hash = hash(smartMeterId);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return nodes.get(owners[low == points.length ? 0 : low]);
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, followed by MurmurHash3's finaliser to spread similar ids over the whole ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53a62bd7fa3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Point(long hash, int node) {}
+}
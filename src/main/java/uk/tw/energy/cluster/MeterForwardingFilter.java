@@ -0,0 +1,68 @@
+package uk.tw.energy.cluster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * Sends requests for one meter's readings or costs on to the instance that owns the meter, and answers with its
+ * response. Requests already forwarded by another instance, and requests for meters this instance has not handed off
+ * yet, are handled here.
+ */
+@Component
+@ConditionalOnProperty(name = "joi.cluster.nodes")
+public class MeterForwardingFilter extends OncePerRequestFilter {
+
+    private static final Pattern METER_PATH =
+            Pattern.compile("/(?:readings/read|price-plans/compare-all|price-plans/recommend)/([^/]+)");
+
+    private final ClusterMembership membership;
+    private final ClusterClient clusterClient;
+    private final ClusteredReadingStore readingStore;
+
+    public MeterForwardingFilter(
+            ClusterMembership membership, ClusterClient clusterClient, ClusteredReadingStore readingStore) {
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+        this.readingStore = readingStore;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (HttpMethod.GET.matches(request.getMethod()) && request.getHeader(ClusterClient.FORWARDED_HEADER) == null) {
+            Matcher matcher = METER_PATH.matcher(
+                    request.getRequestURI().substring(request.getContextPath().length()));
+            if (matcher.matches()) {
+                String smartMeterId = UriUtils.decode(matcher.group(1), StandardCharsets.UTF_8);
+                String owner = membership.ownerOf(smartMeterId);
+                if (!owner.equals(membership.self()) && !readingStore.holdsLocally(smartMeterId)) {
+                    forward(owner, request, response);
+                    return;
+                }
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void forward(String owner, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            clusterClient.proxy(owner, request, response);
+        } catch (IOException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.BAD_GATEWAY.value(), "Owner " + owner + " is unavailable");
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package uk.tw.energy.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.tw.energy.domain.Account;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+
+@RestController
+@RequestMapping("/accounts")
+public class AccountController {
+
+    public static final String OPENED_KEY = "opened";
+    public static final String UPDATED_KEY = "updated";
+    public static final String REJECTED_KEY = "rejected";
+    public static final String ERROR_KEY = "error";
+
+    private final AccountService accountService;
+    private final Set<String> pricePlanIds;
+    private final ObjectReader accountReader;
+
+    public AccountController(AccountService accountService, List<PricePlan> pricePlans, ObjectMapper objectMapper) {
+        this.accountService = accountService;
+        this.pricePlanIds = pricePlans.stream().map(PricePlan::getPlanName).collect(Collectors.toUnmodifiableSet());
+        this.accountReader = objectMapper.readerFor(Account.class);
+    }
+
+    @GetMapping("/{smartMeterId}")
+    public ResponseEntity<Account> getAccount(@PathVariable String smartMeterId) {
+        String pricePlanId = accountService.getPricePlanIdForSmartMeterId(smartMeterId);
+        return pricePlanId == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(new Account(smartMeterId, pricePlanId));
+    }
+
+    /**
+     * Opens or updates the accounts in a JSON array, reading it one account at a time so that millions can be
+     * imported in one request. Accounts without a meter id or price plan, or with an unknown plan, are skipped. If the
+     * array is malformed, the accounts before the error have already been imported.
+     */
+    @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> importAccounts(InputStream body) throws IOException {
+        int opened = 0;
+        int updated = 0;
+        int rejected = 0;
+        try (MappingIterator<Account> accounts = accountReader.readValues(body)) {
+            while (accounts.hasNextValue()) {
+                Account account = accounts.nextValue();
+                if (!isAccountValid(account)) {
+                    rejected++;
+                } else if (accountService.assignPricePlan(account.smartMeterId(), account.pricePlanId())) {
+                    opened++;
+                } else {
+                    updated++;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of(ERROR_KEY, e.getOriginalMessage(), OPENED_KEY, opened, UPDATED_KEY, updated));
+        }
+        return ResponseEntity.ok(Map.of(OPENED_KEY, opened, UPDATED_KEY, updated, REJECTED_KEY, rejected));
+    }
+
+    private boolean isAccountValid(Account account) {
+        return account != null
+                && account.smartMeterId() != null
+                && !account.smartMeterId().isEmpty()
+                && account.pricePlanId() != null
+                && pricePlanIds.contains(account.pricePlanId());
+    }
+}
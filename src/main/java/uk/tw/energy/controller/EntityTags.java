@@ -0,0 +1,42 @@
+package uk.tw.energy.controller;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong entity tags for responses computed from a meter's series, so that clients polling for changes get a
+ * {@code 304} instead of the same body again. A tag holds a number picked at random when the application starts, so
+ * tags handed out before a restart never match; the versions the response was computed from; and a hash of the query
+ * parameters and {@code Accept} header that pick its representation.
+ */
+final class EntityTags {
+
+    private static final String INSTANCE =
+            Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private EntityTags() {}
+
+    static String of(int representation, long... versions) {
+        StringBuilder tag = new StringBuilder().append('"').append(INSTANCE);
+        for (long version : versions) {
+            tag.append('-').append(Long.toHexString(version));
+        }
+        return tag.append('-')
+                .append(Integer.toHexString(representation))
+                .append('"')
+                .toString();
+    }
+
+    static ResponseEntity.BodyBuilder ok(String tag) {
+        return ResponseEntity.ok().eTag(tag).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    static <T> ResponseEntity<T> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(tag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+}
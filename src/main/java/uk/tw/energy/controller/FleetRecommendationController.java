@@ -0,0 +1,67 @@
+package uk.tw.energy.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.domain.FleetRecommendation;
+import uk.tw.energy.service.FleetRecommendationJob;
+import uk.tw.energy.service.FleetRecommendationService;
+
+@RestController
+@RequestMapping("/price-plans")
+public class FleetRecommendationController {
+
+    public static final String JOB_ID_HEADER = "X-Job-Id";
+    private final FleetRecommendationService fleetRecommendationService;
+    private final ObjectWriter recommendationWriter;
+    private final ObjectMapper objectMapper;
+
+    public FleetRecommendationController(
+            FleetRecommendationService fleetRecommendationService, ObjectMapper objectMapper) {
+        this.fleetRecommendationService = fleetRecommendationService;
+        this.objectMapper = objectMapper;
+        this.recommendationWriter =
+                objectMapper.writerFor(FleetRecommendation.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @GetMapping(value = "/recommend-all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> recommendAll(
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (limit != null && limit < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        FleetRecommendationJob job = fleetRecommendationService.createJob();
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator =
+                    objectMapper.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(new SerializedString(""));
+                fleetRecommendationService.recommendAll(job, limit, recommendation -> {
+                    recommendationWriter.writeValue(generator, recommendation);
+                    generator.writeRaw('\n');
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .header(JOB_ID_HEADER, Long.toString(job.getId()))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/recommend-all/jobs/{jobId}")
+    public ResponseEntity<FleetRecommendationJob.Progress> recommendAllProgress(@PathVariable long jobId) {
+        return fleetRecommendationService
+                .getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.progress()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
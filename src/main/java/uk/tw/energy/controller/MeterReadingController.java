@@ -1,38 +1,220 @@
 package uk.tw.energy.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.StoredMeterReadings;
+import uk.tw.energy.ingest.NdjsonReadingsReader;
+import uk.tw.energy.ingest.PackedReadingsFormat;
+import uk.tw.energy.ingest.ReadingIngestQueue;
 import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.PageCursor;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+import uk.tw.energy.store.StorageStats;
 
 @RestController
 @RequestMapping("/readings")
 public class MeterReadingController {
 
+    public static final String READINGS_KEY = "readings";
+    public static final String ERROR_KEY = "error";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String RETRY_AFTER_SECONDS = "1";
     private final MeterReadingService meterReadingService;
+    private final Optional<ReadingIngestQueue> ingestQueue;
+    private final NdjsonReadingsReader ndjsonReadingsReader = new NdjsonReadingsReader();
+    private final PackedReadingsFormat packedReadingsFormat = new PackedReadingsFormat();
 
     public MeterReadingController(MeterReadingService meterReadingService) {
+        this(meterReadingService, Optional.empty());
+    }
+
+    /**
+     * @param ingestQueue queue to hand readings to instead of storing them on the request thread, if present
+     */
+    @Autowired
+    public MeterReadingController(MeterReadingService meterReadingService, Optional<ReadingIngestQueue> ingestQueue) {
         this.meterReadingService = meterReadingService;
+        this.ingestQueue = ingestQueue;
     }
 
     @PostMapping("/store")
-    public ResponseEntity storeReadings(@RequestBody MeterReadings meterReadings) {
+    public ResponseEntity<Map<String, Object>> storeReadings(@RequestBody MeterReadings meterReadings) {
         if (!isMeterReadingsValid(meterReadings)) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+        Optional<String> unstorable = findUnstorableReading(meterReadings.electricityReadings());
+        if (unstorable.isPresent()) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, unstorable.get()));
+        }
+        if (ingestQueue.isPresent()) {
+            return ingestQueue.get().offer(meterReadings.smartMeterId(), toBuffer(meterReadings))
+                    ? ResponseEntity.accepted().build()
+                    : serviceUnavailable().build();
+        }
         meterReadingService.storeReadings(meterReadings.smartMeterId(), meterReadings.electricityReadings());
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping(value = "/store", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Map<String, Object>> storeReadingsStream(InputStream body) throws IOException {
+        try {
+            long readings = ndjsonReadingsReader.read(body, meterReadingService::storeReadings);
+            return ResponseEntity.ok(Map.of(READINGS_KEY, readings));
+        } catch (NdjsonReadingsReader.MalformedReadingException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getOriginalMessage()));
+        }
+    }
+
+    @PostMapping(value = "/store", consumes = PackedReadingsFormat.MEDIA_TYPE)
+    public ResponseEntity<Map<String, Object>> storePackedReadings(InputStream body) throws IOException {
+        PackedReadingsFormat.PackedReadings packed;
+        try {
+            packed = packedReadingsFormat.read(body);
+        } catch (NdjsonReadingsReader.MalformedReadingException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+        if (packed.smartMeterId().isEmpty() || packed.readings().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        if (ingestQueue.isPresent()) {
+            return ingestQueue.get().offer(packed.smartMeterId(), packed.readings())
+                    ? ResponseEntity.accepted().build()
+                    : serviceUnavailable().build();
+        }
+        meterReadingService.storeReadings(packed.smartMeterId(), packed.readings());
+        return ResponseEntity.ok(Map.of(READINGS_KEY, packed.readings().size()));
+    }
+
+    @PostMapping("/store-batch")
+    public ResponseEntity<List<StoredMeterReadings>> storeReadingsBatch(@RequestBody List<MeterReadings> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        List<MeterReadings> valid = new ArrayList<>(batch.size());
+        List<StoredMeterReadings> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            MeterReadings meterReadings = batch.get(i);
+            if (meterReadings != null
+                    && isMeterReadingsValid(meterReadings)
+                    && findUnstorableReading(meterReadings.electricityReadings())
+                            .isEmpty()) {
+                valid.add(meterReadings);
+                results.add(new StoredMeterReadings(
+                        i,
+                        meterReadings.smartMeterId(),
+                        true,
+                        meterReadings.electricityReadings().size()));
+            } else {
+                results.add(new StoredMeterReadings(
+                        i, meterReadings == null ? null : meterReadings.smartMeterId(), false, 0));
+            }
+        }
+        if (ingestQueue.isPresent()) {
+            return queueBatch(valid, results);
+        }
+        meterReadingService.storeReadings(valid);
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/ingest-stats")
+    public ResponseEntity<ReadingIngestQueue.IngestStats> ingestStats() {
+        return ingestQueue
+                .map(queue -> ResponseEntity.ok(queue.stats()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/storage-stats")
+    public ResponseEntity<StorageStats> storageStats() {
+        return meterReadingService
+                .getStorageStats()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Queues each valid entry, marking those the queue refuses as not stored. The response is 503 if any were
+     * refused, so the client knows to retry them.
+     */
+    private ResponseEntity<List<StoredMeterReadings>> queueBatch(
+            List<MeterReadings> valid, List<StoredMeterReadings> results) {
+        boolean refused = false;
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            StoredMeterReadings result = results.get(i);
+            if (!result.stored()) {
+                continue;
+            }
+            MeterReadings meterReadings = valid.get(next++);
+            if (!ingestQueue.get().offer(meterReadings.smartMeterId(), toBuffer(meterReadings))) {
+                results.set(i, new StoredMeterReadings(i, result.smartMeterId(), false, 0));
+                refused = true;
+            }
+        }
+        return refused
+                ? serviceUnavailable().body(results)
+                : ResponseEntity.accepted().body(results);
+    }
+
+    private static ReadingBuffer toBuffer(MeterReadings meterReadings) {
+        return ReadingBuffer.of(meterReadings.electricityReadings());
+    }
+
+    private static ResponseEntity.BodyBuilder serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * Times are held as epoch nanoseconds, from 1677 to 2262, and readings as fixed-point numbers of up to 16
+     * significant digits with an exponent that fits in a byte.
+     *
+     * @return why the first reading that cannot be stored cannot be, if there is one
+     */
+    private static Optional<String> findUnstorableReading(List<ElectricityReading> electricityReadings) {
+        for (ElectricityReading electricityReading : electricityReadings) {
+            if (electricityReading == null
+                    || electricityReading.time() == null
+                    || electricityReading.reading() == null) {
+                return Optional.of("Reading without a time or value");
+            }
+            if (!EpochNanos.isInRange(electricityReading.time())) {
+                return Optional.of("Time out of range: " + electricityReading.time());
+            }
+            if (!FixedPoint.isInRange(electricityReading.reading())) {
+                return Optional.of("Reading out of range: " + electricityReading.reading());
+            }
+        }
+        return Optional.empty();
+    }
+
     private boolean isMeterReadingsValid(MeterReadings meterReadings) {
         String smartMeterId = meterReadings.smartMeterId();
         List<ElectricityReading> electricityReadings = meterReadings.electricityReadings();
@@ -42,11 +224,73 @@ public class MeterReadingController {
                 && !electricityReadings.isEmpty();
     }
 
+    /**
+     * Returns readings a page at a time when {@code limit} is given: the {@value #NEXT_CURSOR_HEADER} header then
+     * carries a cursor to pass instead of {@code from} to get the next page, and is left out on the last one.
+     *
+     * <p>Answers {@code If-None-Match} with a {@code 304} from the series' version alone, without reading any samples.
+     */
     @GetMapping("/read/{smartMeterId}")
-    public ResponseEntity readReadings(@PathVariable String smartMeterId) {
-        Optional<List<ElectricityReading>> readings = meterReadingService.getReadings(smartMeterId);
-        return readings.isPresent()
-                ? ResponseEntity.ok(readings.get())
-                : ResponseEntity.notFound().build();
+    public ResponseEntity<List<ElectricityReading>> readReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest request) {
+        return readRange(smartMeterId, from, to, limit, cursor, request, MeterReadingService.ReadingRange::asList);
+    }
+
+    @GetMapping(value = "/read/{smartMeterId}", produces = PackedReadingsFormat.MEDIA_TYPE)
+    public ResponseEntity<byte[]> readPackedReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest request) {
+        return readRange(
+                smartMeterId,
+                from,
+                to,
+                limit,
+                cursor,
+                request,
+                range -> packedReadingsFormat.write(smartMeterId, range.series(), range.fromIndex(), range.toIndex()));
+    }
+
+    private <T> ResponseEntity<T> readRange(
+            String smartMeterId,
+            Instant from,
+            Instant to,
+            Integer limit,
+            String cursor,
+            WebRequest request,
+            Function<MeterReadingService.ReadingRange, T> body) {
+        if (limit != null && limit < 1 || from != null && cursor != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        PageCursor pageCursor;
+        try {
+            pageCursor = cursor == null ? null : PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<ReadingSeries> series = meterReadingService.getSeries(smartMeterId);
+        if (series.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String tag = EntityTags.of(
+                Objects.hash(from, to, limit, cursor, request.getHeader(HttpHeaders.ACCEPT)),
+                series.get().version());
+        if (request.checkNotModified(tag)) {
+            return EntityTags.notModified(tag);
+        }
+        MeterReadingService.ReadingRange range = pageCursor == null
+                ? meterReadingService.rangeOf(series.get(), from, to, limit)
+                : meterReadingService.rangeOf(series.get(), pageCursor, to, limit);
+        ResponseEntity.BodyBuilder response = EntityTags.ok(tag);
+        range.next().ifPresent(next -> response.header(NEXT_CURSOR_HEADER, next.encode()));
+        return response.body(body.apply(range));
     }
 }
@@ -1,20 +1,24 @@
 package uk.tw.energy.controller;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.PricePlanCostCache;
 import uk.tw.energy.service.PricePlanService;
+import uk.tw.energy.store.ReadingSeries;
 
 @RestController
 @RequestMapping("/price-plans")
@@ -24,49 +28,64 @@ public class PricePlanComparatorController {
     public static final String PRICE_PLAN_COMPARISONS_KEY = "pricePlanComparisons";
     private final PricePlanService pricePlanService;
     private final AccountService accountService;
+    private final MeterReadingService meterReadingService;
 
-    public PricePlanComparatorController(PricePlanService pricePlanService, AccountService accountService) {
+    public PricePlanComparatorController(
+            PricePlanService pricePlanService, AccountService accountService, MeterReadingService meterReadingService) {
         this.pricePlanService = pricePlanService;
         this.accountService = accountService;
+        this.meterReadingService = meterReadingService;
     }
 
+    /**
+     * Answers {@code If-None-Match} with a {@code 304} from the versions of the series and the accounts alone, without
+     * costing anything.
+     */
     @GetMapping("/compare-all/{smartMeterId}")
-    public ResponseEntity<Map<String, Object>> calculatedCostForEachPricePlan(@PathVariable String smartMeterId) {
-        String pricePlanId = accountService.getPricePlanIdForSmartMeterId(smartMeterId);
-        Optional<Map<String, BigDecimal>> consumptionsForPricePlans =
-                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId);
-
-        if (!consumptionsForPricePlans.isPresent()) {
+    public ResponseEntity<Map<String, Object>> calculatedCostForEachPricePlan(
+            @PathVariable String smartMeterId, WebRequest request) {
+        long accountsVersion = accountService.version();
+        Optional<ReadingSeries> series = meterReadingService.getSeries(smartMeterId);
+        if (series.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
+        String tag = EntityTags.of(
+                Objects.hashCode(request.getHeader(HttpHeaders.ACCEPT)),
+                series.get().version(),
+                accountsVersion);
+        if (request.checkNotModified(tag)) {
+            return EntityTags.notModified(tag);
+        }
 
         Map<String, Object> pricePlanComparisons = new HashMap<>();
-        pricePlanComparisons.put(PRICE_PLAN_ID_KEY, pricePlanId);
-        pricePlanComparisons.put(PRICE_PLAN_COMPARISONS_KEY, consumptionsForPricePlans.get());
+        pricePlanComparisons.put(PRICE_PLAN_ID_KEY, accountService.getPricePlanIdForSmartMeterId(smartMeterId));
+        pricePlanComparisons.put(
+                PRICE_PLAN_COMPARISONS_KEY,
+                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId, series.get()));
 
-        return consumptionsForPricePlans.isPresent()
-                ? ResponseEntity.ok(pricePlanComparisons)
-                : ResponseEntity.notFound().build();
+        return EntityTags.ok(tag).body(pricePlanComparisons);
     }
 
     @GetMapping("/recommend/{smartMeterId}")
     public ResponseEntity<List<Map.Entry<String, BigDecimal>>> recommendCheapestPricePlans(
-            @PathVariable String smartMeterId, @RequestParam(value = "limit", required = false) Integer limit) {
-        Optional<Map<String, BigDecimal>> consumptionsForPricePlans =
-                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId);
-
-        if (!consumptionsForPricePlans.isPresent()) {
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request) {
+        Optional<ReadingSeries> series = meterReadingService.getSeries(smartMeterId);
+        if (series.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-
-        List<Map.Entry<String, BigDecimal>> recommendations =
-                new ArrayList<>(consumptionsForPricePlans.get().entrySet());
-        recommendations.sort(Comparator.comparing(Map.Entry::getValue));
-
-        if (limit != null && limit < recommendations.size()) {
-            recommendations = recommendations.subList(0, limit);
+        String tag = EntityTags.of(
+                Objects.hash(limit, request.getHeader(HttpHeaders.ACCEPT)),
+                series.get().version());
+        if (request.checkNotModified(tag)) {
+            return EntityTags.notModified(tag);
         }
+        return EntityTags.ok(tag).body(pricePlanService.recommendCheapestPricePlans(smartMeterId, series.get(), limit));
+    }
 
-        return ResponseEntity.ok(recommendations);
+    @GetMapping("/cache-stats")
+    public ResponseEntity<PricePlanCostCache.CacheStats> costCacheStats() {
+        return ResponseEntity.ok(pricePlanService.getCostCacheStats());
     }
 }
@@ -0,0 +1,50 @@
+package uk.tw.energy.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.time.Instant;
+import org.springframework.boot.jackson.JsonComponent;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingSeriesList;
+
+/**
+ * Writes readings straight from the series' columns as they stream out, in the same shape as a list of
+ * {@link ElectricityReading}s but without creating the records or looking up their properties. Times go through the
+ * mapper's own {@link Instant} serialiser, so each format still writes them its own way.
+ */
+@JsonComponent
+public class ReadingSeriesListSerializer extends StdSerializer<ReadingSeriesList> {
+
+    private static final long serialVersionUID = 1L;
+    private static final SerializedString TIME = new SerializedString("time");
+    private static final SerializedString READING = new SerializedString("reading");
+
+    public ReadingSeriesListSerializer() {
+        super(ReadingSeriesList.class);
+    }
+
+    @Override
+    public void serialize(ReadingSeriesList readings, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        JsonSerializer<Object> instantSerializer = provider.findValueSerializer(Instant.class);
+        ReadingCursor cursor = readings.series().cursor(readings.fromIndex());
+        int size = readings.size();
+        generator.writeStartArray(readings, size);
+        for (int i = 0; i < size && cursor.next(); i++) {
+            generator.writeStartObject();
+            generator.writeFieldName(TIME);
+            instantSerializer.serialize(EpochNanos.toInstant(cursor.time()), generator, provider);
+            generator.writeFieldName(READING);
+            generator.writeNumber(FixedPoint.toBigDecimal(cursor.value(), cursor.scale()));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,3 @@
+package uk.tw.energy.domain;
+
+public record Account(String smartMeterId, String pricePlanId) {}
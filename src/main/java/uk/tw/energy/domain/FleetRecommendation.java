@@ -0,0 +1,13 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Price plans recommended to one meter, cheapest first.
+ *
+ * @param pricePlanId the plan the meter is on, or {@code null} if it has no account
+ */
+public record FleetRecommendation(
+        String smartMeterId, String pricePlanId, List<Map.Entry<String, BigDecimal>> recommendations) {}
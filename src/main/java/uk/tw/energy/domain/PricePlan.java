@@ -10,14 +10,14 @@ public class PricePlan {
     private final String energySupplier;
     private final String planName;
     private final BigDecimal unitRate; // unit price per kWh
-    private final List<PeakTimeMultiplier> peakTimeMultipliers;
+    private final TariffTable tariffTable;
 
     public PricePlan(
             String planName, String energySupplier, BigDecimal unitRate, List<PeakTimeMultiplier> peakTimeMultipliers) {
         this.planName = planName;
         this.energySupplier = energySupplier;
         this.unitRate = unitRate;
-        this.peakTimeMultipliers = peakTimeMultipliers;
+        this.tariffTable = TariffTable.compile(unitRate, peakTimeMultipliers);
     }
 
     public String getEnergySupplier() {
@@ -32,15 +32,15 @@ public class PricePlan {
         return unitRate;
     }
 
+    public TariffTable getTariffTable() {
+        return tariffTable;
+    }
+
     public BigDecimal getPrice(LocalDateTime dateTime) {
-        return peakTimeMultipliers.stream()
-                .filter(multiplier -> multiplier.dayOfWeek.equals(dateTime.getDayOfWeek()))
-                .findFirst()
-                .map(multiplier -> unitRate.multiply(multiplier.multiplier))
-                .orElse(unitRate);
+        return tariffTable.priceAt(TariffTable.slotOf(dateTime));
     }
 
-    static class PeakTimeMultiplier {
+    public static class PeakTimeMultiplier {
 
         DayOfWeek dayOfWeek;
         BigDecimal multiplier;
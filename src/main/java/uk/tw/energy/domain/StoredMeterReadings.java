@@ -0,0 +1,9 @@
+package uk.tw.energy.domain;
+
+/**
+ * Outcome of storing one entry of a batch of {@link MeterReadings}.
+ *
+ * @param index position of the entry in the batch
+ * @param readings number of readings stored, 0 if the entry was rejected
+ */
+public record StoredMeterReadings(int index, String smartMeterId, boolean stored, int readings) {}
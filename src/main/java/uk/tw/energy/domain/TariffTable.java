@@ -0,0 +1,104 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prices of a {@link PricePlan} compiled into a flat table with one entry per half-hour of the week, starting on
+ * Monday at midnight.
+ *
+ * <p>Slots that share a multiplier share a rate class, so a calculation can total usage per class rather than per
+ * slot. Class 0 is the plan's unit rate.
+ */
+public final class TariffTable {
+
+    public static final int SLOTS_PER_DAY = 48;
+    public static final int SLOTS_PER_WEEK = 7 * SLOTS_PER_DAY;
+    private static final int MINUTES_PER_SLOT = 30;
+    private static final long SECONDS_PER_SLOT = MINUTES_PER_SLOT * 60L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final long EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
+
+    private final BigDecimal[] prices;
+    private final byte[] rateClasses;
+    private final BigDecimal[] multipliers;
+
+    private TariffTable(BigDecimal[] prices, byte[] rateClasses, BigDecimal[] multipliers) {
+        this.prices = prices;
+        this.rateClasses = rateClasses;
+        this.multipliers = multipliers;
+    }
+
+    /**
+     * Compiles the prices, taking the first multiplier given for a day if there are several.
+     */
+    static TariffTable compile(BigDecimal unitRate, List<PricePlan.PeakTimeMultiplier> peakTimeMultipliers) {
+        BigDecimal[] prices = new BigDecimal[SLOTS_PER_WEEK];
+        byte[] rateClasses = new byte[SLOTS_PER_WEEK];
+        List<BigDecimal> multipliers = new ArrayList<>(List.of(BigDecimal.ONE));
+        for (DayOfWeek day : DayOfWeek.values()) {
+            PricePlan.PeakTimeMultiplier peakTimeMultiplier = peakTimeMultipliers == null
+                    ? null
+                    : peakTimeMultipliers.stream()
+                            .filter(multiplier -> multiplier.dayOfWeek.equals(day))
+                            .findFirst()
+                            .orElse(null);
+            BigDecimal price = unitRate;
+            int rateClass = 0;
+            if (peakTimeMultiplier != null) {
+                price = unitRate == null ? null : unitRate.multiply(peakTimeMultiplier.multiplier);
+                rateClass = multipliers.indexOf(peakTimeMultiplier.multiplier);
+                if (rateClass < 0) {
+                    rateClass = multipliers.size();
+                    multipliers.add(peakTimeMultiplier.multiplier);
+                }
+            }
+            for (int slot = day.ordinal() * SLOTS_PER_DAY; slot < (day.ordinal() + 1) * SLOTS_PER_DAY; slot++) {
+                prices[slot] = price;
+                rateClasses[slot] = (byte) rateClass;
+            }
+        }
+        return new TariffTable(prices, rateClasses, multipliers.toArray(new BigDecimal[0]));
+    }
+
+    public static int slotOf(LocalDateTime dateTime) {
+        return dateTime.getDayOfWeek().ordinal() * SLOTS_PER_DAY
+                + (dateTime.getHour() * 60 + dateTime.getMinute()) / MINUTES_PER_SLOT;
+    }
+
+    /**
+     * @return the slot of an instant given in seconds since the epoch, taking days in UTC
+     */
+    public static int slotOfEpochSecond(long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int dayOfWeek = (int) Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, 7L);
+        int slotOfDay = (int) (Math.floorMod(epochSecond, SECONDS_PER_DAY) / SECONDS_PER_SLOT);
+        return dayOfWeek * SLOTS_PER_DAY + slotOfDay;
+    }
+
+    public BigDecimal priceAt(int slot) {
+        return prices[slot];
+    }
+
+    public int rateClassAt(int slot) {
+        return rateClasses[slot];
+    }
+
+    public int rateClassCount() {
+        return multipliers.length;
+    }
+
+    /**
+     * @return the multiplier applied to the unit rate in slots of the rate class
+     */
+    public BigDecimal multiplier(int rateClass) {
+        return multipliers[rateClass];
+    }
+
+    public boolean isFlat() {
+        return multipliers.length == 1;
+    }
+}
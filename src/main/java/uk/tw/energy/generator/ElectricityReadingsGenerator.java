@@ -1,29 +1,61 @@
 package uk.tw.energy.generator;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.ReadingBuffer;
 
+/**
+ * Generates readings with values drawn from the absolute of a standard normal distribution, rounded up to four
+ * decimal places. Readings are generated oldest first, so they never need sorting. A generator created
+ * with a seed always generates the same values; it is not thread safe, so each thread needs its own.
+ */
 public class ElectricityReadingsGenerator {
 
+    private static final int SCALE = 4;
+    private static final double UNSCALED_PER_UNIT = 10_000;
+
+    private final SplittableRandom random;
+
+    public ElectricityReadingsGenerator() {
+        this(new SplittableRandom());
+    }
+
+    public ElectricityReadingsGenerator(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private ElectricityReadingsGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * @return {@code number} readings ten seconds apart, the last of them timed now
+     */
     public List<ElectricityReading> generate(int number) {
-        List<ElectricityReading> readings = new ArrayList<>();
+        List<ElectricityReading> readings = new ArrayList<>(number);
         Instant now = Instant.now();
+        for (int i = number - 1; i >= 0; i--) {
+            BigDecimal reading = BigDecimal.valueOf(nextUnscaled(), SCALE);
+            readings.add(new ElectricityReading(now.minusSeconds(i * 10L), reading));
+        }
+        return readings;
+    }
 
-        Random readingRandomiser = new Random();
+    /**
+     * Adds {@code number} readings to the buffer, the first timed {@code firstTime} and each following one
+     * {@code intervalNanos} later, without creating an object per reading.
+     */
+    public void generate(ReadingBuffer buffer, long firstTime, long intervalNanos, int number) {
         for (int i = 0; i < number; i++) {
-            double positiveRandomValue = Math.abs(readingRandomiser.nextGaussian());
-            BigDecimal randomReading = BigDecimal.valueOf(positiveRandomValue).setScale(4, RoundingMode.CEILING);
-            ElectricityReading electricityReading = new ElectricityReading(now.minusSeconds(i * 10L), randomReading);
-            readings.add(electricityReading);
+            buffer.add(firstTime + i * intervalNanos, nextUnscaled(), SCALE);
         }
+    }
 
-        readings.sort(Comparator.comparing(ElectricityReading::time));
-        return readings;
+    private long nextUnscaled() {
+        return (long) Math.ceil(Math.abs(random.nextGaussian()) * UNSCALED_PER_UNIT);
     }
 }
@@ -0,0 +1,151 @@
+package uk.tw.energy.generator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingStore;
+
+/**
+ * Fills a {@link ReadingStore} with a synthetic fleet of meters, {@code smart-meter-0} upwards, each with readings at a
+ * fixed interval up to a common last reading time.
+ *
+ * <p>Meters are split into ranges that a pool of threads works through, each thread writing readings in time order
+ * into one reusable {@link ReadingBuffer} and appending it to the store whenever it fills. Every meter draws its
+ * values from its own generator, seeded from the fleet's seed and the meter's number, so the same settings always
+ * give the same fleet however the meters are shared between threads.
+ */
+public final class FleetSeeder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetSeeder.class);
+
+    static final int BATCH_SIZE = 8192;
+    static final int METERS_PER_TASK = 1024;
+
+    private final int meters;
+    private final int readingsPerMeter;
+    private final long intervalNanos;
+    private final long seed;
+    private final int parallelism;
+
+    /**
+     * @param parallelism threads seeding at once; {@code 0} for one per core
+     */
+    public FleetSeeder(int meters, int readingsPerMeter, Duration interval, long seed, int parallelism) {
+        if (meters < 0 || readingsPerMeter < 0) {
+            throw new IllegalArgumentException("Meters and readings per meter cannot be negative");
+        }
+        if (!interval.isPositive()) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.meters = meters;
+        this.readingsPerMeter = readingsPerMeter;
+        this.intervalNanos = interval.toNanos();
+        this.seed = seed;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static String smartMeterId(int meter) {
+        return "smart-meter-" + meter;
+    }
+
+    /**
+     * Seeds the meters that {@code include} accepts, ending each meter's readings at {@code lastTime}.
+     *
+     * @param lastTime time of every meter's last reading, in nanoseconds since the epoch
+     */
+    public SeedingStats seed(ReadingStore readingStore, long lastTime, Predicate<String> include) {
+        long started = System.nanoTime();
+        long firstTime = lastTime - (readingsPerMeter - 1L) * intervalNanos;
+        List<Future<Seeded>> tasks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            for (int from = 0; from < meters; from += METERS_PER_TASK) {
+                int first = from;
+                int last = Math.min(meters, from + METERS_PER_TASK);
+                tasks.add(executor.submit(() -> seed(readingStore, first, last, firstTime, include)));
+            }
+        }
+        int seeded = 0;
+        long readings = 0;
+        for (Future<Seeded> task : tasks) {
+            Seeded range = join(task);
+            seeded += range.meters();
+            readings += range.readings();
+        }
+        SeedingStats stats = new SeedingStats(seeded, readings, Duration.ofNanos(System.nanoTime() - started));
+        LOGGER.info(
+                "Seeded {} meters with {} readings in {} ms on {} threads ({} readings a second)",
+                stats.meters(),
+                stats.readings(),
+                stats.elapsed().toMillis(),
+                parallelism,
+                Math.round(stats.readingsPerSecond()));
+        return stats;
+    }
+
+    private Seeded seed(ReadingStore readingStore, int first, int last, long firstTime, Predicate<String> include) {
+        ReadingBuffer buffer = new ReadingBuffer(Math.max(1, Math.min(BATCH_SIZE, readingsPerMeter)));
+        int seeded = 0;
+        long readings = 0;
+        for (int meter = first; meter < last; meter++) {
+            String smartMeterId = smartMeterId(meter);
+            if (!include.test(smartMeterId)) {
+                continue;
+            }
+            ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator(meterSeed(meter));
+            for (int from = 0; from < readingsPerMeter; from += buffer.capacity()) {
+                int count = Math.min(buffer.capacity(), readingsPerMeter - from);
+                buffer.clear();
+                generator.generate(buffer, firstTime + from * intervalNanos, intervalNanos, count);
+                readingStore.append(smartMeterId, buffer);
+            }
+            seeded++;
+            readings += readingsPerMeter;
+        }
+        return new Seeded(seeded, readings);
+    }
+
+    /**
+     * Spreads the fleet's seed and the meter's number over all 64 bits with MurmurHash3's finaliser, so neighbouring
+     * meters get unrelated sequences.
+     */
+    long meterSeed(int meter) {
+        long mixed = seed + meter * 0x9e3779b97f4a7c15L;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb53a62bd7fa3L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+
+    private static Seeded join(Future<Seeded> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted seeding readings", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Seeding readings failed", e.getCause());
+        }
+    }
+
+    private record Seeded(int meters, long readings) {}
+
+    public record SeedingStats(int meters, long readings, Duration elapsed) {
+
+        public double readingsPerSecond() {
+            return elapsed.isZero() ? 0 : readings / (elapsed.toNanos() / 1e9);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package uk.tw.energy.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.function.BiConsumer;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingBuffer;
+
+/**
+ * Reads newline-delimited JSON readings, one object per line:
+ *
+ * <pre>{"smartMeterId":"smart-meter-0","time":1606636800,"reading":0.0503}</pre>
+ *
+ * <p>The input is parsed token by token and handed on in batches of at most {@code batchSize} readings of a single
+ * meter, through one reused {@link ReadingBuffer}, so memory use does not depend on the size of the input.
+ * {@code time} is either epoch seconds, possibly with a fraction, or an ISO-8601 instant.
+ */
+public class NdjsonReadingsReader {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final JsonFactory jsonFactory;
+    private final int batchSize;
+
+    public NdjsonReadingsReader() {
+        this(new JsonFactory(), DEFAULT_BATCH_SIZE);
+    }
+
+    public NdjsonReadingsReader(JsonFactory jsonFactory, int batchSize) {
+        this.jsonFactory = jsonFactory;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param sink receives each batch; the buffer is cleared and reused once the sink returns
+     * @return the number of readings read
+     * @throws MalformedReadingException if a line is not a valid reading; the readings on the lines before it are
+     *     still handed to the sink
+     */
+    public long read(InputStream input, BiConsumer<String, ReadingBuffer> sink) throws IOException {
+        ReadingBuffer buffer = new ReadingBuffer(batchSize);
+        ReadingBuffer reading = new ReadingBuffer(1);
+        String batchMeterId = null;
+        long readings = 0;
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw malformed(parser, "expected a JSON object");
+                }
+                String smartMeterId = null;
+                long time = 0;
+                boolean hasTime = false;
+                reading.clear();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "smartMeterId" -> smartMeterId = parser.getValueAsString();
+                        case "time" -> {
+                            time = parseTime(parser, value);
+                            hasTime = true;
+                        }
+                        case "reading" -> {
+                            reading.clear();
+                            parseReading(parser, value, reading);
+                        }
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (smartMeterId == null || smartMeterId.isEmpty() || !hasTime || reading.isEmpty()) {
+                    throw malformed(parser, "smartMeterId, time and reading are required");
+                }
+                if (!smartMeterId.equals(batchMeterId) || buffer.isFull()) {
+                    flush(sink, batchMeterId, buffer);
+                    batchMeterId = smartMeterId;
+                }
+                buffer.add(time, reading.valueAt(0), reading.scaleAt(0));
+                readings++;
+            }
+        } finally {
+            flush(sink, batchMeterId, buffer);
+        }
+        return readings;
+    }
+
+    private static void flush(BiConsumer<String, ReadingBuffer> sink, String smartMeterId, ReadingBuffer buffer) {
+        if (!buffer.isEmpty()) {
+            sink.accept(smartMeterId, buffer);
+            buffer.clear();
+        }
+    }
+
+    private static long parseTime(JsonParser parser, JsonToken value) throws IOException {
+        try {
+            return switch (value) {
+                case VALUE_NUMBER_INT -> Math.multiplyExact(parser.getLongValue(), 1_000_000_000L);
+                case VALUE_NUMBER_FLOAT -> EpochNanos.of(epochSeconds(parser.getDecimalValue()));
+                case VALUE_STRING -> EpochNanos.of(Instant.parse(parser.getText()));
+                default -> throw malformed(parser, "time must be epoch seconds or an ISO-8601 instant");
+            };
+        } catch (ArithmeticException | DateTimeException e) {
+            throw malformed(parser, "time must be epoch seconds or an ISO-8601 instant");
+        }
+    }
+
+    private static Instant epochSeconds(BigDecimal seconds) {
+        long wholeSeconds = seconds.longValue();
+        int nanos = seconds.subtract(BigDecimal.valueOf(wholeSeconds))
+                .movePointRight(9)
+                .intValue();
+        return Instant.ofEpochSecond(wholeSeconds, nanos);
+    }
+
+    private static void parseReading(JsonParser parser, JsonToken value, ReadingBuffer reading) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT
+                && value != JsonToken.VALUE_NUMBER_FLOAT
+                && value != JsonToken.VALUE_STRING) {
+            throw malformed(parser, "reading must be a number");
+        }
+        try {
+            reading.addDecimal(0, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw malformed(parser, "reading must be a number");
+        }
+    }
+
+    private static MalformedReadingException malformed(JsonParser parser, String reason) {
+        return new MalformedReadingException("Line " + parser.currentLocation().getLineNr() + ": " + reason);
+    }
+
+    public static class MalformedReadingException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public MalformedReadingException(String message) {
+            super(message);
+        }
+    }
+}
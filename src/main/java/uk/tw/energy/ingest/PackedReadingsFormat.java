@@ -0,0 +1,110 @@
+package uk.tw.energy.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Packed binary encoding of one meter's readings, in the store's own representation. All numbers are little-endian:
+ *
+ * <pre>
+ * int32          length of the smart meter id in bytes
+ * byte[length]   smart meter id, UTF-8
+ * int32          number of readings, n
+ * int64[n]       times, epoch nanoseconds
+ * int64[n]       readings' unscaled values
+ * int8[n]        readings' decimal scales
+ * </pre>
+ *
+ * Each column is stored contiguously, so readings are read straight into a {@link ReadingBuffer} without parsing
+ * text or creating an object per reading.
+ */
+public class PackedReadingsFormat {
+
+    public static final String MEDIA_TYPE = "application/vnd.joi.readings";
+
+    private static final int READING_BYTES = 2 * Long.BYTES + 1;
+
+    /**
+     * @throws NdjsonReadingsReader.MalformedReadingException if the input is not exactly one packed set of readings
+     */
+    public PackedReadings read(InputStream input) throws IOException {
+        ByteBuffer packed = ByteBuffer.wrap(input.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int idLength = packed.getInt();
+            if (idLength < 0 || idLength > packed.remaining()) {
+                throw new NdjsonReadingsReader.MalformedReadingException("Invalid smart meter id length: " + idLength);
+            }
+            byte[] id = new byte[idLength];
+            packed.get(id);
+            int count = packed.getInt();
+            if (count < 0 || (long) count * READING_BYTES != packed.remaining()) {
+                throw new NdjsonReadingsReader.MalformedReadingException(
+                        "Expected " + count + " readings but found " + packed.remaining() + " bytes");
+            }
+            int valuesOffset = packed.position() + count * Long.BYTES;
+            int scalesOffset = valuesOffset + count * Long.BYTES;
+            ReadingBuffer readings = new ReadingBuffer(count);
+            for (int i = 0; i < count; i++) {
+                readings.add(
+                        packed.getLong(), packed.getLong(valuesOffset + i * Long.BYTES), packed.get(scalesOffset + i));
+            }
+            return new PackedReadings(new String(id, StandardCharsets.UTF_8), readings);
+        } catch (BufferUnderflowException e) {
+            throw new NdjsonReadingsReader.MalformedReadingException("Packed readings are truncated");
+        }
+    }
+
+    /**
+     * @return the readings of the series from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive
+     */
+    public byte[] write(String smartMeterId, ReadingSeries series, int fromIndex, int toIndex) {
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        int count = toIndex - fromIndex;
+        ByteBuffer packed = allocate(id, count);
+        int readingsOffset = packed.position();
+        int valuesOffset = readingsOffset + count * Long.BYTES;
+        int scalesOffset = valuesOffset + count * Long.BYTES;
+        ReadingCursor cursor = series.cursor(fromIndex);
+        for (int i = 0; i < count && cursor.next(); i++) {
+            packed.putLong(readingsOffset + i * Long.BYTES, cursor.time());
+            packed.putLong(valuesOffset + i * Long.BYTES, cursor.value());
+            packed.put(scalesOffset + i, (byte) cursor.scale());
+        }
+        return packed.array();
+    }
+
+    public byte[] write(String smartMeterId, ReadingBuffer readings) {
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        int count = readings.size();
+        ByteBuffer packed = allocate(id, count);
+        for (int i = 0; i < count; i++) {
+            packed.putLong(readings.timeAt(i));
+        }
+        for (int i = 0; i < count; i++) {
+            packed.putLong(readings.valueAt(i));
+        }
+        for (int i = 0; i < count; i++) {
+            packed.put((byte) readings.scaleAt(i));
+        }
+        return packed.array();
+    }
+
+    /**
+     * @return a little-endian buffer holding the header, positioned at the start of the times
+     */
+    private static ByteBuffer allocate(byte[] id, int count) {
+        int readingsOffset = 2 * Integer.BYTES + id.length;
+        ByteBuffer packed = ByteBuffer.allocate(Math.addExact(readingsOffset, Math.multiplyExact(count, READING_BYTES)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return packed.putInt(id.length).put(id).putInt(count);
+    }
+
+    public record PackedReadings(String smartMeterId, ReadingBuffer readings) {}
+}
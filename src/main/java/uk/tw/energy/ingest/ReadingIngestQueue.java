@@ -0,0 +1,265 @@
+package uk.tw.energy.ingest;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ReadingBuffer;
+
+/**
+ * Accepts readings on the request thread and stores them later on writer threads, so a burst of writes cannot tie up
+ * the threads that serve reads.
+ *
+ * <p>Meters are hashed to partitions, each a bounded queue drained by a single writer, so a meter's readings are
+ * stored in the order they were accepted. A writer takes everything waiting in its queue, up to a batch, and stores
+ * all of a meter's readings in the batch with one append. Each partition holds up to its capacity in readings, however
+ * they are split into requests; when the readings would not fit, {@link #offer} refuses them rather than waiting. A
+ * request larger than the capacity is still taken by an empty partition, so it is not refused forever.
+ *
+ * <p>Offers hold the read side of a lock that {@link #shutdown} takes to stop accepting, so nothing is queued after a
+ * writer has seen the queue stopped and empty.
+ */
+@Component
+@ConditionalOnProperty(name = "joi.ingest.async", havingValue = "true")
+public class ReadingIngestQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadingIngestQueue.class);
+    private static final long POLL_MILLIS = 100;
+    private static final long SHUTDOWN_MILLIS = 10_000;
+
+    private final MeterReadingService meterReadingService;
+    private final List<Partition> partitions;
+    private final List<Thread> writers;
+    private final int partitionCapacity;
+    private final int maxBatch;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder drainNanos = new LongAdder();
+    private final LongAccumulator maxDrainNanos = new LongAccumulator(Math::max, 0);
+    private final ReentrantReadWriteLock accepting = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public ReadingIngestQueue(
+            MeterReadingService meterReadingService,
+            @Value("${joi.ingest.partitions:4}") int partitionCount,
+            @Value("${joi.ingest.queue-capacity:100000}") int partitionCapacity,
+            @Value("${joi.ingest.max-batch:512}") int maxBatch) {
+        if (partitionCount < 1 || partitionCapacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Partitions, queue capacity and batch size must be positive");
+        }
+        this.meterReadingService = meterReadingService;
+        this.partitionCapacity = partitionCapacity;
+        this.maxBatch = maxBatch;
+        this.partitions = new ArrayList<>(partitionCount);
+        this.writers = new ArrayList<>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Partition queue = new Partition();
+            partitions.add(queue);
+            Thread writer = new Thread(() -> drain(queue), "reading-ingest-" + partition);
+            writer.setDaemon(true);
+            writers.add(writer);
+            writer.start();
+        }
+    }
+
+    /**
+     * Queues the readings to be stored. The buffer must not be used by the caller afterwards.
+     *
+     * @return whether the readings were accepted; {@code false} if the meter's partition is full or the queue is
+     *     shutting down
+     */
+    public boolean offer(String smartMeterId, ReadingBuffer readings) {
+        Lock lock = accepting.readLock();
+        lock.lock();
+        try {
+            Partition partition = partitionOf(smartMeterId);
+            if (running && partition.reserve(readings.size())) {
+                partition.queue.add(new Pending(smartMeterId, readings, System.nanoTime()));
+                accepted.increment();
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public IngestStats stats() {
+        int depth = 0;
+        int maxPartitionDepth = 0;
+        for (Partition partition : partitions) {
+            int partitionDepth = partition.readings.get();
+            depth += partitionDepth;
+            maxPartitionDepth = Math.max(maxPartitionDepth, partitionDepth);
+        }
+        long storedCount = stored.sum();
+        return new IngestStats(
+                partitions.size(),
+                partitionCapacity,
+                depth,
+                maxPartitionDepth,
+                accepted.sum(),
+                rejected.sum(),
+                storedCount,
+                failed.sum(),
+                storedCount == 0 ? 0 : drainNanos.sum() / 1e6 / storedCount,
+                maxDrainNanos.get() / 1e6);
+    }
+
+    /**
+     * Stops accepting readings and waits for the writers to store those already queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        Lock lock = accepting.writeLock();
+        lock.lock();
+        try {
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_MILLIS);
+        for (Thread writer : writers) {
+            writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+    }
+
+    private Partition partitionOf(String smartMeterId) {
+        return partitions.get(Math.floorMod(smartMeterId.hashCode(), partitions.size()));
+    }
+
+    private void drain(Partition partition) {
+        BlockingQueue<Pending> queue = partition.queue;
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                store(batch);
+                partition.release(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void store(List<Pending> batch) {
+        Map<String, List<Pending>> byMeter = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byMeter.computeIfAbsent(pending.smartMeterId(), smartMeterId -> new ArrayList<>(1))
+                    .add(pending);
+        }
+        for (Map.Entry<String, List<Pending>> meter : byMeter.entrySet()) {
+            List<Pending> pendings = meter.getValue();
+            try {
+                meterReadingService.storeReadings(meter.getKey(), merge(pendings));
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to store queued readings for {}", meter.getKey(), e);
+                failed.add(pendings.size());
+                continue;
+            }
+            long now = System.nanoTime();
+            for (Pending pending : pendings) {
+                long latency = now - pending.enqueuedAt();
+                drainNanos.add(latency);
+                maxDrainNanos.accumulate(latency);
+            }
+            stored.add(pendings.size());
+        }
+    }
+
+    private static ReadingBuffer merge(List<Pending> pendings) {
+        if (pendings.size() == 1) {
+            return pendings.get(0).readings();
+        }
+        int size = 0;
+        for (Pending pending : pendings) {
+            size += pending.readings().size();
+        }
+        ReadingBuffer merged = new ReadingBuffer(size);
+        for (Pending pending : pendings) {
+            ReadingBuffer readings = pending.readings();
+            for (int i = 0; i < readings.size(); i++) {
+                merged.add(readings.timeAt(i), readings.valueAt(i), readings.scaleAt(i));
+            }
+        }
+        return merged;
+    }
+
+    private final class Partition {
+
+        private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger readings = new AtomicInteger();
+
+        boolean reserve(int count) {
+            int queued;
+            do {
+                queued = readings.get();
+                if (queued > 0 && queued + count > partitionCapacity) {
+                    return false;
+                }
+            } while (!readings.compareAndSet(queued, queued + count));
+            return true;
+        }
+
+        void release(List<Pending> batch) {
+            int count = 0;
+            for (Pending pending : batch) {
+                count += pending.readings().size();
+            }
+            readings.addAndGet(-count);
+        }
+    }
+
+    private record Pending(String smartMeterId, ReadingBuffer readings, long enqueuedAt) {}
+
+    /**
+     * Capacity and depth are measured in readings; the counters count requests, each once however many readings it
+     * held.
+     *
+     * @param partitionCapacity readings each partition holds before refusing more
+     * @param depth readings waiting or being stored across all partitions
+     * @param maxPartitionDepth readings waiting or being stored in the fullest partition
+     * @param accepted requests queued
+     * @param rejected requests refused because their readings did not fit or the queue was shutting down
+     * @param stored requests whose readings were stored
+     * @param failed requests whose readings could not be stored
+     * @param averageDrainMillis mean time from a request being accepted to its readings being stored
+     */
+    public record IngestStats(
+            int partitions,
+            int partitionCapacity,
+            int depth,
+            int maxPartitionDepth,
+            long accepted,
+            long rejected,
+            long stored,
+            long failed,
+            double averageDrainMillis,
+            double maxDrainMillis) {}
+}
@@ -1,18 +1,106 @@
 package uk.tw.energy.service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.tw.energy.store.PagedIntArray;
+import uk.tw.energy.store.SmartMeterRegistry;
 
+/**
+ * Price plan of each smart meter's account. Meters are numbered by a {@link SmartMeterRegistry} shared with the
+ * reading store, and each meter's plan is kept as a number in a primitive array, so an account costs four bytes on
+ * top of the meter's id and plan ids are held once however many meters are on the plan.
+ */
 @Service
 public class AccountService {
 
-    private final Map<String, String> smartMeterToPricePlanAccounts;
+    private static final int NO_PLAN = 0;
+
+    private final SmartMeterRegistry registry;
+    private final PagedIntArray planByMeter = new PagedIntArray();
+    private final List<String> pricePlanIds = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> planNumbers = new ConcurrentHashMap<>();
+    private final AtomicInteger accounts = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private final Set<String> smartMeterIds;
 
     public AccountService(Map<String, String> smartMeterToPricePlanAccounts) {
-        this.smartMeterToPricePlanAccounts = smartMeterToPricePlanAccounts;
+        this(new SmartMeterRegistry(), smartMeterToPricePlanAccounts);
+    }
+
+    @Autowired
+    public AccountService(SmartMeterRegistry registry, Map<String, String> smartMeterToPricePlanAccounts) {
+        this.registry = registry;
+        // Capture the fields rather than this, which is not fully built yet
+        PagedIntArray plans = planByMeter;
+        AtomicInteger accountCount = accounts;
+        this.smartMeterIds = registry.smartMeterIds(number -> plans.get(number) != NO_PLAN, accountCount::get);
+        for (Map.Entry<String, String> account : smartMeterToPricePlanAccounts.entrySet()) {
+            assign(account.getKey(), account.getValue());
+        }
     }
 
     public String getPricePlanIdForSmartMeterId(String smartMeterId) {
-        return smartMeterToPricePlanAccounts.get(smartMeterId);
+        int number = registry.numberOf(smartMeterId);
+        if (number == SmartMeterRegistry.UNKNOWN) {
+            return null;
+        }
+        int plan = planByMeter.get(number);
+        return plan == NO_PLAN ? null : pricePlanIds.get(plan - 1);
+    }
+
+    /**
+     * @return a live, unmodifiable view of the meters with accounts
+     */
+    public Set<String> getSmartMeterIds() {
+        return smartMeterIds;
+    }
+
+    /**
+     * @return a number that changes every time a price plan is assigned to any meter
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Puts the meter on the price plan, opening an account for it if it has none.
+     *
+     * @return {@code true} if the meter had no account before
+     */
+    public boolean assignPricePlan(String smartMeterId, String pricePlanId) {
+        return assign(smartMeterId, pricePlanId);
+    }
+
+    private boolean assign(String smartMeterId, String pricePlanId) {
+        int previous = planByMeter.getAndSet(registry.register(smartMeterId), planNumber(pricePlanId));
+        version.incrementAndGet();
+        if (previous == NO_PLAN) {
+            accounts.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the plan's number, counting from one so that {@link #NO_PLAN} can mark meters without an account
+     */
+    private int planNumber(String pricePlanId) {
+        Integer number = planNumbers.get(pricePlanId);
+        if (number != null) {
+            return number;
+        }
+        synchronized (pricePlanIds) {
+            return planNumbers.computeIfAbsent(pricePlanId, id -> {
+                pricePlanIds.add(id);
+                return pricePlanIds.size();
+            });
+        }
     }
 }
@@ -0,0 +1,101 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import uk.tw.energy.domain.TariffTable;
+import uk.tw.energy.store.DecimalSum;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Energy a meter used in each half-hour slot of the week, in kW milliseconds. Each reading is taken to last until the
+ * next one, and its energy is shared between the slots that interval covers in proportion to the time spent in each.
+ *
+ * <p>Slots are totalled exactly; the totals per day of the week are also kept as {@code double}s for ranking plans.
+ */
+final class ConsumptionProfile {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long NANOS_PER_SLOT = 30 * 60 * 1_000_000_000L;
+
+    private final BigDecimal[] energyBySlot;
+    private final double[] energyByDay;
+    private final BigDecimal totalEnergy;
+
+    private ConsumptionProfile(BigDecimal[] energyBySlot, double[] energyByDay, BigDecimal totalEnergy) {
+        this.energyBySlot = energyBySlot;
+        this.energyByDay = energyByDay;
+        this.totalEnergy = totalEnergy;
+    }
+
+    /**
+     * Builds the profile in one pass over the series, allocating nothing per reading.
+     */
+    static ConsumptionProfile of(ReadingSeries series) {
+        DecimalSum[] sums = new DecimalSum[TariffTable.SLOTS_PER_WEEK];
+        ReadingCursor cursor = series.cursor();
+        if (cursor.next()) {
+            long time = cursor.time();
+            long value = cursor.value();
+            int scale = cursor.scale();
+            while (cursor.next()) {
+                addInterval(sums, time, cursor.time(), value, scale);
+                time = cursor.time();
+                value = cursor.value();
+                scale = cursor.scale();
+            }
+        }
+        BigDecimal[] energyBySlot = new BigDecimal[TariffTable.SLOTS_PER_WEEK];
+        double[] energyByDay = new double[7];
+        BigDecimal totalEnergy = BigDecimal.ZERO;
+        for (int slot = 0; slot < TariffTable.SLOTS_PER_WEEK; slot++) {
+            if (sums[slot] != null) {
+                energyBySlot[slot] = sums[slot].toBigDecimal();
+                energyByDay[slot / TariffTable.SLOTS_PER_DAY] += energyBySlot[slot].doubleValue();
+                totalEnergy = totalEnergy.add(energyBySlot[slot]);
+            }
+        }
+        return new ConsumptionProfile(energyBySlot, energyByDay, totalEnergy);
+    }
+
+    /**
+     * Adds a reading lasting from {@code from} to {@code to}, split at slot boundaries. Each part is measured from
+     * {@code from} before truncating to milliseconds, so the parts add up to the whole interval in milliseconds.
+     */
+    private static void addInterval(DecimalSum[] sums, long from, long to, long value, int scale) {
+        long counted = 0;
+        long start = from;
+        while (start < to) {
+            long untilBoundary = NANOS_PER_SLOT - Math.floorMod(start, NANOS_PER_SLOT);
+            long end = to - start <= untilBoundary ? to : start + untilBoundary;
+            long elapsed = (end - from) / NANOS_PER_MILLI;
+            if (elapsed > counted) {
+                int slot = TariffTable.slotOfEpochSecond(EpochNanos.toEpochSeconds(start));
+                if (sums[slot] == null) {
+                    sums[slot] = new DecimalSum();
+                }
+                sums[slot].addProduct(value, elapsed - counted, scale);
+                counted = elapsed;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * @return the energy used in the slot, or {@code null} if none was recorded in it
+     */
+    BigDecimal energyAt(int slot) {
+        return energyBySlot[slot];
+    }
+
+    /**
+     * @return energy per day of the week, Monday first
+     */
+    double energyOnDay(int day) {
+        return energyByDay[day];
+    }
+
+    BigDecimal totalEnergy() {
+        return totalEnergy;
+    }
+}
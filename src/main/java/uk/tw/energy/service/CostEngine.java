@@ -0,0 +1,40 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.SeriesAggregates;
+
+/**
+ * Calculates what a meter's readings cost under each of a fixed list of price plans.
+ */
+public interface CostEngine {
+
+    /**
+     * @return the cost under each price plan, keyed by plan name
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    Map<String, BigDecimal> costOfEachPricePlan(SeriesAggregates aggregates);
+
+    /**
+     * @param pricePlanIndices positions in the engine's list of price plans
+     * @return the cost under each of the given plans, in the same order
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    BigDecimal[] costOfPricePlans(SeriesAggregates aggregates, int[] pricePlanIndices);
+
+    enum Type {
+        /** Calculates with {@link BigDecimal}s. */
+        DECIMAL,
+        /** Calculates with scaled {@code long}s, giving the same results as {@link #DECIMAL}. */
+        FIXED_POINT;
+
+        public CostEngine create(List<PricePlan> pricePlans) {
+            return switch (this) {
+                case DECIMAL -> new DecimalCostEngine(pricePlans);
+                case FIXED_POINT -> new FixedPointCostEngine(pricePlans);
+            };
+        }
+    }
+}
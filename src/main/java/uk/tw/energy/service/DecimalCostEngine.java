@@ -0,0 +1,64 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.SeriesAggregates;
+
+/**
+ * Cost engine working in {@link BigDecimal}s: the average reading divided by the hours elapsed, times each plan's unit
+ * rate, rounding half up at the scale of the readings' sum.
+ */
+final class DecimalCostEngine implements CostEngine {
+
+    private final List<PricePlan> pricePlans;
+
+    DecimalCostEngine(List<PricePlan> pricePlans) {
+        this.pricePlans = pricePlans;
+    }
+
+    @Override
+    public Map<String, BigDecimal> costOfEachPricePlan(SeriesAggregates aggregates) {
+        BigDecimal averagedCost = calculateAveragedCost(aggregates);
+        return pricePlans.stream()
+                .collect(Collectors.toMap(PricePlan::getPlanName, t -> calculateCost(averagedCost, t)));
+    }
+
+    @Override
+    public BigDecimal[] costOfPricePlans(SeriesAggregates aggregates, int[] pricePlanIndices) {
+        BigDecimal averagedCost = calculateAveragedCost(aggregates);
+        BigDecimal[] costs = new BigDecimal[pricePlanIndices.length];
+        for (int i = 0; i < pricePlanIndices.length; i++) {
+            costs[i] = calculateCost(averagedCost, pricePlans.get(pricePlanIndices[i]));
+        }
+        return costs;
+    }
+
+    private BigDecimal calculateCost(BigDecimal averagedCost, PricePlan pricePlan) {
+        return averagedCost.multiply(pricePlan.getUnitRate());
+    }
+
+    private BigDecimal calculateAveragedCost(SeriesAggregates aggregates) {
+        BigDecimal average = calculateAverageReading(aggregates);
+        BigDecimal timeElapsed = calculateTimeElapsed(aggregates);
+
+        return average.divide(timeElapsed, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal calculateAverageReading(SeriesAggregates aggregates) {
+        return aggregates.sum().divide(BigDecimal.valueOf(aggregates.count()), RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal calculateTimeElapsed(SeriesAggregates aggregates) {
+        return BigDecimal.valueOf(elapsedHours(aggregates));
+    }
+
+    static double elapsedHours(SeriesAggregates aggregates) {
+        long elapsedSeconds = EpochNanos.toEpochSeconds(aggregates.latestTime() - aggregates.earliestTime());
+        return elapsedSeconds / 3600.0;
+    }
+}
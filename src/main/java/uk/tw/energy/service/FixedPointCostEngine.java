@@ -0,0 +1,134 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.SeriesAggregates;
+
+/**
+ * Cost engine doing the same calculation as {@link DecimalCostEngine} on unscaled {@code long}s, creating only the
+ * resulting {@link BigDecimal}s.
+ *
+ * <p>Every step rounds exactly as its {@link BigDecimal} counterpart, so the results are equal, scale included. The
+ * elapsed hours are taken from the shortest decimal representation of the {@code double}, as
+ * {@link BigDecimal#valueOf(double)} does. Whenever an intermediate value does not fit in a {@code long} the whole
+ * calculation falls back to {@link DecimalCostEngine}.
+ */
+final class FixedPointCostEngine implements CostEngine {
+
+    private final DecimalCostEngine fallback;
+    private final String[] planNames;
+    private final long[] unitRates;
+    private final int[] unitRateScales;
+    private final boolean unitRatesFit;
+
+    FixedPointCostEngine(List<PricePlan> pricePlans) {
+        this.fallback = new DecimalCostEngine(pricePlans);
+        this.planNames = new String[pricePlans.size()];
+        this.unitRates = new long[pricePlans.size()];
+        this.unitRateScales = new int[pricePlans.size()];
+        boolean fit = true;
+        for (int i = 0; i < pricePlans.size(); i++) {
+            BigDecimal unitRate = pricePlans.get(i).getUnitRate();
+            planNames[i] = pricePlans.get(i).getPlanName();
+            fit &= unitRate.unscaledValue().bitLength() < Long.SIZE;
+            unitRates[i] = unitRate.unscaledValue().longValue();
+            unitRateScales[i] = unitRate.scale();
+        }
+        this.unitRatesFit = fit;
+    }
+
+    @Override
+    public Map<String, BigDecimal> costOfEachPricePlan(SeriesAggregates aggregates) {
+        if (!fitsLongs(aggregates)) {
+            return fallback.costOfEachPricePlan(aggregates);
+        }
+        try {
+            long averagedCost = averagedCost(aggregates);
+            Map<String, BigDecimal> costs = new HashMap<>(planNames.length * 4 / 3 + 1);
+            for (int i = 0; i < planNames.length; i++) {
+                costs.put(planNames[i], cost(averagedCost, aggregates.sum().scale(), i));
+            }
+            return costs;
+        } catch (ArithmeticException e) {
+            return fallback.costOfEachPricePlan(aggregates);
+        }
+    }
+
+    @Override
+    public BigDecimal[] costOfPricePlans(SeriesAggregates aggregates, int[] pricePlanIndices) {
+        if (!fitsLongs(aggregates)) {
+            return fallback.costOfPricePlans(aggregates, pricePlanIndices);
+        }
+        try {
+            long averagedCost = averagedCost(aggregates);
+            BigDecimal[] costs = new BigDecimal[pricePlanIndices.length];
+            for (int i = 0; i < pricePlanIndices.length; i++) {
+                costs[i] = cost(averagedCost, aggregates.sum().scale(), pricePlanIndices[i]);
+            }
+            return costs;
+        } catch (ArithmeticException e) {
+            return fallback.costOfPricePlans(aggregates, pricePlanIndices);
+        }
+    }
+
+    private boolean fitsLongs(SeriesAggregates aggregates) {
+        return unitRatesFit
+                && aggregates.count() > 0
+                && DecimalCostEngine.elapsedHours(aggregates) > 0
+                && aggregates.sum().precision() < 19;
+    }
+
+    /**
+     * @return the unscaled average reading per hour, at the scale of the sum
+     */
+    private static long averagedCost(SeriesAggregates aggregates) {
+        long average = FixedPoint.multiplyDivideHalfUp(unscaled(aggregates.sum()), 1, aggregates.count());
+        return divideByHours(average, DecimalCostEngine.elapsedHours(aggregates));
+    }
+
+    private BigDecimal cost(long averagedCost, int scale, int pricePlanIndex) {
+        return BigDecimal.valueOf(
+                Math.multiplyExact(averagedCost, unitRates[pricePlanIndex]),
+                Math.addExact(scale, unitRateScales[pricePlanIndex]));
+    }
+
+    /**
+     * @return the unscaled value divided by the hours, at the same scale
+     */
+    private static long divideByHours(long value, double hours) {
+        String text = Double.toString(hours);
+        long unscaledHours = 0;
+        int scale = 0;
+        boolean fraction = false;
+        int position = 0;
+        for (; position < text.length(); position++) {
+            char c = text.charAt(position);
+            if (c == '.') {
+                fraction = true;
+            } else if (c == 'E') {
+                break;
+            } else {
+                unscaledHours = Math.addExact(Math.multiplyExact(unscaledHours, 10), c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            }
+        }
+        if (position < text.length()) {
+            scale -= Integer.parseInt(text, position + 1, text.length(), 10);
+        }
+        if (scale >= 0) {
+            return FixedPoint.multiplyDivideHalfUp(value, FixedPoint.powerOfTen(scale), unscaledHours);
+        }
+        return FixedPoint.multiplyDivideHalfUp(
+                value, 1, Math.multiplyExact(unscaledHours, FixedPoint.powerOfTen(-scale)));
+    }
+
+    private static long unscaled(BigDecimal value) {
+        return value.scaleByPowerOfTen(value.scale()).longValueExact();
+    }
+}
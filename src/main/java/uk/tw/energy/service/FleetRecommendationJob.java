@@ -0,0 +1,104 @@
+package uk.tw.energy.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of one run of {@link FleetRecommendationService#recommendAll}, updated by its workers while it runs.
+ */
+public final class FleetRecommendationJob {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final long id;
+    private final int meters;
+    private List<String> smartMeterIds;
+    private final long startedNanos = System.nanoTime();
+    private final LongAdder recommended = new LongAdder();
+    private final LongAdder withoutReadings = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long finishedNanos;
+    private volatile State state = State.RUNNING;
+
+    FleetRecommendationJob(long id, List<String> smartMeterIds) {
+        this.id = id;
+        this.meters = smartMeterIds.size();
+        this.smartMeterIds = smartMeterIds;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the meters to visit, which the job lets go of so that it can be retained cheaply once run
+     * @throws IllegalStateException if the job has already been run
+     */
+    synchronized List<String> takeSmartMeterIds() {
+        if (smartMeterIds == null) {
+            throw new IllegalStateException("Job " + id + " has already been run");
+        }
+        List<String> taken = smartMeterIds;
+        smartMeterIds = null;
+        return taken;
+    }
+
+    void recommended() {
+        recommended.increment();
+    }
+
+    void withoutReadings() {
+        withoutReadings.increment();
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    /**
+     * Records how the run ended; only the first call counts, so a failure is not later reported as a cancellation.
+     */
+    synchronized void finish(State finalState) {
+        if (state != State.RUNNING) {
+            return;
+        }
+        finishedNanos = System.nanoTime();
+        state = finalState;
+    }
+
+    public Progress progress() {
+        State current = state;
+        long elapsedNanos = (current == State.RUNNING ? System.nanoTime() : finishedNanos) - startedNanos;
+        long processed = recommended.sum() + withoutReadings.sum() + failed.sum();
+        return new Progress(
+                id,
+                current,
+                meters,
+                processed,
+                recommended.sum(),
+                withoutReadings.sum(),
+                failed.sum(),
+                elapsedNanos / 1_000_000,
+                elapsedNanos == 0 ? 0 : processed * 1e9 / elapsedNanos);
+    }
+
+    /**
+     * @param processed meters visited so far, whether or not a recommendation could be made
+     * @param failed meters whose costs could not be calculated, such as those with a single reading
+     */
+    public record Progress(
+            long jobId,
+            State state,
+            int meters,
+            long processed,
+            long recommended,
+            long withoutReadings,
+            long failed,
+            long elapsedMillis,
+            double metersPerSecond) {}
+}
@@ -0,0 +1,234 @@
+package uk.tw.energy.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.tw.energy.domain.FleetRecommendation;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Recommends price plans to every meter known to {@link AccountService} or {@link MeterReadingService}.
+ *
+ * <p>Meters are split into chunks that a dedicated {@link ForkJoinPool} works through on all cores. Finished chunks
+ * are handed to the caller through a bounded queue as they complete, so results stream out in no particular order and
+ * no more than a few chunks are ever held in memory. A worker that fails hands back its failure in place of a chunk,
+ * and the run fails with it.
+ */
+@Service
+public class FleetRecommendationService {
+
+    static final int CHUNK_SIZE = 256;
+    private static final int RETAINED_JOBS = 16;
+    private static final long POLL_MILLIS = 100;
+
+    private final MeterReadingService meterReadingService;
+    private final AccountService accountService;
+    private final PricePlanService pricePlanService;
+    private final ForkJoinPool pool;
+    private final AtomicLong jobIds = new AtomicLong();
+    private final Map<Long, FleetRecommendationJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FleetRecommendationJob> eldest) {
+            return size() > RETAINED_JOBS;
+        }
+    };
+
+    public FleetRecommendationService(
+            MeterReadingService meterReadingService,
+            AccountService accountService,
+            PricePlanService pricePlanService,
+            @Value("${joi.fleet.parallelism:0}") int parallelism) {
+        this.meterReadingService = meterReadingService;
+        this.accountService = accountService;
+        this.pricePlanService = pricePlanService;
+        this.pool = new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Registers a job over the meters known now. Nothing is calculated until it is passed to {@link #recommendAll}.
+     */
+    public FleetRecommendationJob createJob() {
+        FleetRecommendationJob job = new FleetRecommendationJob(jobIds.incrementAndGet(), smartMeterIds());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        return job;
+    }
+
+    public Optional<FleetRecommendationJob> getJob(long jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    /**
+     * Runs the job, handing each meter's recommendations to {@code sink} on the calling thread. If the sink throws,
+     * the job is cancelled and the workers stop at their next chunk. If a worker fails, the job fails and an
+     * {@link IllegalStateException} is thrown.
+     *
+     * @param limit maximum number of plans to recommend to each meter; {@code null} for all of them
+     */
+    public void recommendAll(FleetRecommendationJob job, Integer limit, Sink sink) throws IOException {
+        List<String> smartMeterIds = job.takeSmartMeterIds();
+        int chunks = (smartMeterIds.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        BlockingQueue<ChunkResult> completed = new ArrayBlockingQueue<>(Math.max(1, pool.getParallelism() * 2));
+        Cancellation cancellation = new Cancellation();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            List<String> chunkIds =
+                    smartMeterIds.subList(chunk * CHUNK_SIZE, Math.min(smartMeterIds.size(), (chunk + 1) * CHUNK_SIZE));
+            Runnable worker = () -> {
+                ChunkResult result = null;
+                try {
+                    result =
+                            new ChunkResult(cancellation.cancelled ? List.of() : recommend(job, chunkIds, limit), null);
+                } catch (RuntimeException e) {
+                    result = new ChunkResult(List.of(), e);
+                } finally {
+                    if (result == null) {
+                        result = new ChunkResult(List.of(), new IllegalStateException("Worker stopped"));
+                    }
+                    handOver(completed, result, cancellation);
+                }
+            };
+            try {
+                pool.execute(worker);
+            } catch (RejectedExecutionException e) {
+                cancellation.failure = e;
+                break;
+            }
+        }
+        try {
+            for (int received = 0; received < chunks; received++) {
+                ChunkResult result = next(completed, cancellation);
+                if (result.failure() != null) {
+                    cancellation.cancelled = true;
+                    job.finish(FleetRecommendationJob.State.FAILED);
+                    throw new IllegalStateException("Failed to recommend price plans", result.failure());
+                }
+                for (FleetRecommendation recommendation : result.recommendations()) {
+                    sink.accept(recommendation);
+                }
+            }
+            job.finish(FleetRecommendationJob.State.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancellation.cancelled = true;
+            job.finish(FleetRecommendationJob.State.CANCELLED);
+            throw new InterruptedIOException("Interrupted waiting for recommendations");
+        } catch (IOException | RuntimeException e) {
+            cancellation.cancelled = true;
+            job.finish(FleetRecommendationJob.State.CANCELLED);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Queues a worker's result, giving up once the run is cancelled. A worker interrupted while waiting, such as by
+     * {@link #shutdown}, leaves its failure with the run instead, as the queue may have no room.
+     */
+    private static void handOver(BlockingQueue<ChunkResult> completed, ChunkResult result, Cancellation cancellation) {
+        try {
+            while (!completed.offer(result, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancellation.cancelled) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancellation.failure = new IllegalStateException("Interrupted handing over recommendations", e);
+        }
+    }
+
+    /**
+     * Waits for the next worker's result, or for a failure left with the run when nothing more is queued. Chunks the
+     * pool dropped on shutdown never report back, so shutdown is a failure once the queue is empty.
+     */
+    private ChunkResult next(BlockingQueue<ChunkResult> completed, Cancellation cancellation)
+            throws InterruptedException {
+        while (true) {
+            ChunkResult result = completed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                return result;
+            }
+            Throwable failure = cancellation.failure;
+            if (failure != null) {
+                return new ChunkResult(List.of(), failure);
+            }
+            if (pool.isShutdown()) {
+                return new ChunkResult(List.of(), new IllegalStateException("Shut down before the run finished"));
+            }
+        }
+    }
+
+    private List<FleetRecommendation> recommend(FleetRecommendationJob job, List<String> smartMeterIds, Integer limit) {
+        List<FleetRecommendation> recommendations = new ArrayList<>(smartMeterIds.size());
+        for (String smartMeterId : smartMeterIds) {
+            Optional<ReadingSeries> series = meterReadingService.getSeries(smartMeterId);
+            if (series.isEmpty()) {
+                job.withoutReadings();
+                continue;
+            }
+            List<Map.Entry<String, BigDecimal>> cheapest;
+            try {
+                cheapest = pricePlanService.rankCheapestPricePlans(series.get(), limit);
+            } catch (ArithmeticException e) {
+                job.failed();
+                continue;
+            }
+            recommendations.add(new FleetRecommendation(
+                    smartMeterId, accountService.getPricePlanIdForSmartMeterId(smartMeterId), cheapest));
+            job.recommended();
+        }
+        return recommendations;
+    }
+
+    /**
+     * @return meters with readings followed by meters with only an account
+     */
+    private List<String> smartMeterIds() {
+        Set<String> withReadings = meterReadingService.getSmartMeterIds();
+        List<String> smartMeterIds = new ArrayList<>(withReadings);
+        for (String smartMeterId : accountService.getSmartMeterIds()) {
+            if (!withReadings.contains(smartMeterId)) {
+                smartMeterIds.add(smartMeterId);
+            }
+        }
+        return smartMeterIds;
+    }
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(FleetRecommendation recommendation) throws IOException;
+    }
+
+    /**
+     * @param failure why the chunk could not be recommended to, or {@code null} if it was
+     */
+    private record ChunkResult(List<FleetRecommendation> recommendations, Throwable failure) {}
+
+    private static final class Cancellation {
+        volatile boolean cancelled;
+        volatile Throwable failure;
+    }
+}
@@ -1,29 +1,183 @@
 package uk.tw.energy.service;
 
-import java.util.ArrayList;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.IngestStats;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+import uk.tw.energy.store.ReadingStore;
+import uk.tw.energy.store.StorageStats;
 
 @Service
 public class MeterReadingService {
 
-    private final Map<String, List<ElectricityReading>> meterAssociatedReadings;
+    private final ReadingStore readingStore;
+    private final List<Consumer<String>> readingsStoredListeners = new CopyOnWriteArrayList<>();
+    private final Counter readingsIngested;
+    private final DistributionSummary seriesLengths;
 
-    public MeterReadingService(Map<String, List<ElectricityReading>> meterAssociatedReadings) {
-        this.meterAssociatedReadings = meterAssociatedReadings;
+    /**
+     * Records metrics in a registry of its own rather than a shared one, for use outside the application context.
+     */
+    public MeterReadingService(ReadingStore readingStore) {
+        this(readingStore, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public MeterReadingService(ReadingStore readingStore, MeterRegistry meterRegistry) {
+        this.readingStore = readingStore;
+        this.readingsIngested = Counter.builder("joi.readings.ingested")
+                .description("Readings stored")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        this.seriesLengths = DistributionSummary.builder("joi.series.length")
+                .description("Readings held for a meter after each store")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        FunctionCounter.builder(
+                        "joi.readings.duplicate", readingStore, store -> ingestStat(store, IngestStats::duplicates))
+                .description("Readings dropped because their meter already had a reading at that time")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        FunctionCounter.builder("joi.readings.late", readingStore, store -> ingestStat(store, IngestStats::late))
+                .description("Readings older than their meter's latest, merged into its series")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        FunctionCounter.builder("joi.readings.expired", readingStore, store -> ingestStat(store, IngestStats::expired))
+                .description("Readings dropped because their meter had already rolled up readings that old")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        Gauge.builder("joi.meters", readingStore, store -> store.smartMeterIds().size())
+                .description("Meters with readings")
+                .register(meterRegistry);
     }
 
     public Optional<List<ElectricityReading>> getReadings(String smartMeterId) {
-        return Optional.ofNullable(meterAssociatedReadings.get(smartMeterId));
+        return getSeries(smartMeterId).map(ReadingSeries::asList);
+    }
+
+    /**
+     * @param from earliest time to return, inclusive; {@code null} for no lower bound
+     * @param to time to stop at, exclusive; {@code null} for no upper bound
+     * @param limit maximum number of readings to return, counted from {@code from}; {@code null} for no limit
+     */
+    public Optional<List<ElectricityReading>> getReadings(
+            String smartMeterId, Instant from, Instant to, Integer limit) {
+        return getReadingRange(smartMeterId, from, to, limit).map(ReadingRange::asList);
+    }
+
+    /**
+     * Finds the same readings as {@link #getReadings(String, Instant, Instant, Integer)}, as a range of the series.
+     */
+    public Optional<ReadingRange> getReadingRange(String smartMeterId, Instant from, Instant to, Integer limit) {
+        return getSeries(smartMeterId).map(series -> rangeOf(series, from, to, limit));
+    }
+
+    /**
+     * Finds the same readings as {@link #getReadingRange(String, Instant, Instant, Integer)}, in a series the caller
+     * already holds.
+     */
+    public ReadingRange rangeOf(ReadingSeries series, Instant from, Instant to, Integer limit) {
+        return rangeOf(series, from == null ? 0 : series.lowerBound(EpochNanos.ofSaturated(from)), to, limit);
+    }
+
+    /**
+     * Finds the next page of readings, starting where {@code cursor} points.
+     *
+     * @param to time to stop at, exclusive; {@code null} for no upper bound
+     * @param limit maximum number of readings to return; {@code null} for no limit
+     */
+    public ReadingRange rangeOf(ReadingSeries series, PageCursor cursor, Instant to, Integer limit) {
+        return rangeOf(series, cursor.indexIn(series), to, limit);
+    }
+
+    private static ReadingRange rangeOf(ReadingSeries series, int fromIndex, Instant to, Integer limit) {
+        int endIndex = Math.max(fromIndex, to == null ? series.size() : series.lowerBound(EpochNanos.ofSaturated(to)));
+        int toIndex = limit == null ? endIndex : (int) Math.min(endIndex, (long) fromIndex + limit);
+        return new ReadingRange(series, fromIndex, toIndex, endIndex);
+    }
+
+    private static double ingestStat(ReadingStore store, ToLongFunction<IngestStats> stat) {
+        return store.ingestStats()
+                .map(stats -> (double) stat.applyAsLong(stats))
+                .orElse(0.0);
+    }
+
+    public Optional<ReadingSeries> getSeries(String smartMeterId) {
+        return readingStore.getSeries(smartMeterId);
+    }
+
+    /**
+     * @return a live view of the ids of meters with readings
+     */
+    public Set<String> getSmartMeterIds() {
+        return readingStore.smartMeterIds();
+    }
+
+    public Optional<StorageStats> getStorageStats() {
+        return readingStore.storageStats();
     }
 
     public void storeReadings(String smartMeterId, List<ElectricityReading> electricityReadings) {
-        if (!meterAssociatedReadings.containsKey(smartMeterId)) {
-            meterAssociatedReadings.put(smartMeterId, new ArrayList<>());
+        storeReadings(smartMeterId, ReadingBuffer.of(electricityReadings));
+    }
+
+    public void storeReadings(String smartMeterId, ReadingBuffer readings) {
+        int added = readings.size();
+        int seriesLength = readingStore.append(smartMeterId, readings);
+        readingsIngested.increment(added);
+        seriesLengths.record(seriesLength);
+        readingsStoredListeners.forEach(listener -> listener.accept(smartMeterId));
+    }
+
+    /**
+     * Stores the readings of many meters in one pass.
+     */
+    public void storeReadings(List<MeterReadings> batch) {
+        for (MeterReadings meterReadings : batch) {
+            storeReadings(meterReadings.smartMeterId(), meterReadings.electricityReadings());
+        }
+    }
+
+    /**
+     * @param listener called with the smart meter id after readings have been stored for it
+     */
+    public void onReadingsStored(Consumer<String> listener) {
+        readingsStoredListeners.add(listener);
+    }
+
+    /**
+     * @param fromIndex first index of the range, inclusive
+     * @param toIndex end of the range, exclusive
+     * @param endIndex end of the readings asked for, which {@code toIndex} falls short of when they were limited
+     */
+    public record ReadingRange(ReadingSeries series, int fromIndex, int toIndex, int endIndex) {
+
+        public List<ElectricityReading> asList() {
+            return series.asList(fromIndex, toIndex);
+        }
+
+        /**
+         * @return the cursor of the page after this one, or empty if this is the last page
+         */
+        public Optional<PageCursor> next() {
+            return toIndex < endIndex ? Optional.of(PageCursor.at(series, toIndex)) : Optional.empty();
         }
-        meterAssociatedReadings.get(smartMeterId).addAll(electricityReadings);
     }
 }
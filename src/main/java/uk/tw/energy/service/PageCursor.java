@@ -0,0 +1,58 @@
+package uk.tw.energy.service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Where the next page of a meter's readings starts: the time of its first reading, and how many readings with that
+ * same time the previous pages already returned. Unlike an index, it still points at the right reading after older
+ * readings are stored in front of it.
+ *
+ * @param time epoch nanoseconds
+ */
+public record PageCursor(long time, int skip) {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * @return the cursor of the reading at {@code index}
+     */
+    public static PageCursor at(ReadingSeries series, int index) {
+        long time = series.timeAt(index);
+        return new PageCursor(time, index - series.lowerBound(time));
+    }
+
+    /**
+     * @return the index of the reading the cursor points at in {@code series}
+     */
+    public int indexIn(ReadingSeries series) {
+        return (int) Math.min(series.size(), (long) series.lowerBound(time) + skip);
+    }
+
+    /**
+     * @return an opaque, URL-safe form of the cursor
+     */
+    public String encode() {
+        byte[] bytes =
+                ByteBuffer.allocate(ENCODED_BYTES).putLong(time).putInt(skip).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code encoded} was not made by {@link #encode()}
+     */
+    public static PageCursor decode(String encoded) {
+        byte[] bytes = Base64.getUrlDecoder().decode(encoded);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long time = buffer.getLong();
+        int skip = buffer.getInt();
+        if (skip < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+        return new PageCursor(time, skip);
+    }
+}
@@ -0,0 +1,81 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, least-recently-used cache of each meter's price plan costs, tagged with the version of the series they were
+ * computed from. An entry is only served while the meter's series is still at that version.
+ */
+@Component
+public class PricePlanCostCache {
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public PricePlanCostCache(@Value("${joi.pricing.cache.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PricePlanCostCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached costs, or {@code null} if there are none for this version of the meter's series
+     */
+    public Map<String, BigDecimal> get(String smartMeterId, long seriesVersion) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(smartMeterId);
+        }
+        if (entry == null || entry.seriesVersion != seriesVersion) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.costs;
+    }
+
+    public void put(String smartMeterId, long seriesVersion, Map<String, BigDecimal> costs) {
+        synchronized (entries) {
+            entries.put(smartMeterId, new Entry(seriesVersion, costs));
+        }
+    }
+
+    public void invalidate(String smartMeterId) {
+        Entry removed;
+        synchronized (entries) {
+            removed = entries.remove(smartMeterId);
+        }
+        if (removed != null) {
+            invalidations.increment();
+        }
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(capacity, size, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private record Entry(long seriesVersion, Map<String, BigDecimal> costs) {}
+
+    public record CacheStats(int capacity, int size, long hits, long misses, long evictions, long invalidations) {}
+}
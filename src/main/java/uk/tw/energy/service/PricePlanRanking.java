@@ -0,0 +1,127 @@
+package uk.tw.energy.service;
+
+import java.util.List;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.domain.TariffTable;
+
+/**
+ * Narrows a catalogue of price plans down to the few that can be the cheapest for a meter, without costing every plan
+ * exactly.
+ *
+ * <p>Each plan's price on each day of the week is packed into a day-major matrix, so scoring every plan is a dot
+ * product of the meter's energy per day with each plan's prices, computed a day at a time over one contiguous row.
+ * When no plan has peak multipliers the score is just the unit rate. The lowest scores are picked with a bounded heap
+ * rather than a sort, and widened to any plan scoring within rounding error of the last one picked.
+ */
+final class PricePlanRanking {
+
+    private static final int DAYS = 7;
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+
+    private final int planCount;
+    private final double[][] pricesByDay;
+    private final double[] unitRates;
+
+    PricePlanRanking(List<PricePlan> pricePlans) {
+        this.planCount = pricePlans.size();
+        this.pricesByDay = new double[DAYS][planCount];
+        this.unitRates = new double[planCount];
+        for (int plan = 0; plan < planCount; plan++) {
+            TariffTable tariffTable = pricePlans.get(plan).getTariffTable();
+            unitRates[plan] = pricePlans.get(plan).getUnitRate().doubleValue();
+            for (int day = 0; day < DAYS; day++) {
+                pricesByDay[day][plan] =
+                        tariffTable.priceAt(day * TariffTable.SLOTS_PER_DAY).doubleValue();
+            }
+        }
+    }
+
+    /**
+     * @param profile the meter's consumption, or {@code null} if no plan has peak multipliers
+     * @param direction {@code 1} if a plan's cost rises with its score, {@code -1} if it falls
+     * @param limit number of cheapest plans wanted, between 1 and the number of plans
+     * @return positions of at least {@code limit} plans that include the {@code limit} cheapest, in no order
+     */
+    int[] candidates(ConsumptionProfile profile, int direction, int limit) {
+        double[] scores = scores(profile, direction);
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int plan = 0; plan < planCount; plan++) {
+            if (size < limit) {
+                heap[size] = plan;
+                siftUp(heap, size++, scores);
+            } else if (scores[plan] < scores[heap[0]]) {
+                heap[0] = plan;
+                siftDown(heap, size, scores);
+            }
+        }
+        double threshold = scores[heap[0]] + Math.abs(scores[heap[0]]) * RELATIVE_TOLERANCE;
+        int count = 0;
+        for (int plan = 0; plan < planCount; plan++) {
+            if (scores[plan] <= threshold) {
+                count++;
+            }
+        }
+        int[] candidates = new int[count];
+        count = 0;
+        for (int plan = 0; plan < planCount; plan++) {
+            if (scores[plan] <= threshold) {
+                candidates[count++] = plan;
+            }
+        }
+        return candidates;
+    }
+
+    private double[] scores(ConsumptionProfile profile, int direction) {
+        double[] scores = new double[planCount];
+        if (profile == null) {
+            for (int plan = 0; plan < planCount; plan++) {
+                scores[plan] = direction * unitRates[plan];
+            }
+            return scores;
+        }
+        for (int day = 0; day < DAYS; day++) {
+            double energy = direction * profile.energyOnDay(day);
+            if (energy != 0) {
+                double[] prices = pricesByDay[day];
+                for (int plan = 0; plan < planCount; plan++) {
+                    scores[plan] += energy * prices[plan];
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void siftUp(int[] heap, int index, double[] scores) {
+        int plan = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[heap[parent]] >= scores[plan]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = plan;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        int plan = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[heap[child + 1]] > scores[heap[child]]) {
+                child++;
+            }
+            if (scores[heap[child]] <= scores[plan]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = plan;
+    }
+}
@@ -1,65 +1,215 @@
 package uk.tw.energy.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ReadingSeries;
+import uk.tw.energy.store.SeriesAggregates;
 
 @Service
 public class PricePlanService {
 
     private final List<PricePlan> pricePlans;
     private final MeterReadingService meterReadingService;
+    private final PricePlanCostCache costCache;
+    private final CostEngine costEngine;
+    private final TimeOfUsePricing timeOfUsePricing;
+    private final PricePlanRanking ranking;
+    private final Timer costTimer;
+    private final Timer rankTimer;
 
     public PricePlanService(List<PricePlan> pricePlans, MeterReadingService meterReadingService) {
-        this.pricePlans = pricePlans;
+        this(pricePlans, meterReadingService, new PricePlanCostCache(0));
+    }
+
+    public PricePlanService(
+            List<PricePlan> pricePlans, MeterReadingService meterReadingService, PricePlanCostCache costCache) {
+        this(pricePlans, meterReadingService, costCache, CostEngine.Type.FIXED_POINT);
+    }
+
+    /**
+     * Records metrics in a registry of its own rather than a shared one, for use outside the application context.
+     */
+    public PricePlanService(
+            List<PricePlan> pricePlans,
+            MeterReadingService meterReadingService,
+            PricePlanCostCache costCache,
+            CostEngine.Type costEngineType) {
+        this(pricePlans, meterReadingService, costCache, costEngineType, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public PricePlanService(
+            List<PricePlan> pricePlans,
+            MeterReadingService meterReadingService,
+            PricePlanCostCache costCache,
+            @Value("${joi.pricing.cost-engine:fixed-point}") CostEngine.Type costEngineType,
+            MeterRegistry meterRegistry) {
+        this.pricePlans = List.copyOf(pricePlans);
         this.meterReadingService = meterReadingService;
+        this.costCache = costCache;
+        this.costEngine = costEngineType.create(pricePlans);
+        this.timeOfUsePricing = new TimeOfUsePricing(pricePlans);
+        this.ranking = new PricePlanRanking(pricePlans);
+        this.costTimer = costTimer("all", meterRegistry);
+        this.rankTimer = costTimer("cheapest", meterRegistry);
+        meterReadingService.onReadingsStored(costCache::invalidate);
     }
 
     public Optional<Map<String, BigDecimal>> getConsumptionCostOfElectricityReadingsForEachPricePlan(
             String smartMeterId) {
-        Optional<List<ElectricityReading>> electricityReadings = meterReadingService.getReadings(smartMeterId);
+        Optional<ReadingSeries> electricityReadings = meterReadingService.getSeries(smartMeterId);
 
         if (!electricityReadings.isPresent()) {
             return Optional.empty();
         }
 
-        return Optional.of(pricePlans.stream()
-                .collect(Collectors.toMap(PricePlan::getPlanName, t -> calculateCost(electricityReadings.get(), t))));
+        return Optional.of(
+                getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId, electricityReadings.get()));
     }
 
-    private BigDecimal calculateCost(List<ElectricityReading> electricityReadings, PricePlan pricePlan) {
-        BigDecimal average = calculateAverageReading(electricityReadings);
-        BigDecimal timeElapsed = calculateTimeElapsed(electricityReadings);
+    /**
+     * Costs the meter's series as the caller already holds it, going through the cost cache.
+     *
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    public Map<String, BigDecimal> getConsumptionCostOfElectricityReadingsForEachPricePlan(
+            String smartMeterId, ReadingSeries series) {
+        Map<String, BigDecimal> costs = costCache.get(smartMeterId, series.version());
+        if (costs == null) {
+            costs = calculateCostOfEachPricePlan(series);
+            costCache.put(smartMeterId, series.version(), costs);
+        }
+        return costs;
+    }
 
-        BigDecimal averagedCost = average.divide(timeElapsed, RoundingMode.HALF_UP);
-        return averagedCost.multiply(pricePlan.getUnitRate());
+    /**
+     * Calculates the series' cost under each price plan without going through the cost cache, for callers that
+     * visit many meters once and would only evict the entries of meters being asked about.
+     *
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    public Map<String, BigDecimal> calculateCostOfEachPricePlan(ReadingSeries series) {
+        long start = System.nanoTime();
+        try {
+            return Collections.unmodifiableMap(
+                    timeOfUsePricing.apply(series, costEngine.costOfEachPricePlan(series.aggregates())));
+        } finally {
+            costTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
-    private BigDecimal calculateAverageReading(List<ElectricityReading> electricityReadings) {
-        BigDecimal summedReadings = electricityReadings.stream()
-                .map(ElectricityReading::reading)
-                .reduce(BigDecimal.ZERO, (reading, accumulator) -> reading.add(accumulator));
+    /**
+     * @param limit maximum number of plans to recommend; {@code null} for all of them
+     * @return the cheapest plans for the meter, cheapest first, or empty if it has no readings
+     */
+    public Optional<List<Map.Entry<String, BigDecimal>>> recommendCheapestPricePlans(
+            String smartMeterId, Integer limit) {
+        Optional<ReadingSeries> electricityReadings = meterReadingService.getSeries(smartMeterId);
+
+        if (!electricityReadings.isPresent()) {
+            return Optional.empty();
+        }
 
-        return summedReadings.divide(BigDecimal.valueOf(electricityReadings.size()), RoundingMode.HALF_UP);
+        return Optional.of(recommendCheapestPricePlans(smartMeterId, electricityReadings.get(), limit));
     }
 
-    private BigDecimal calculateTimeElapsed(List<ElectricityReading> electricityReadings) {
-        ElectricityReading first = electricityReadings.stream()
-                .min(Comparator.comparing(ElectricityReading::time))
-                .get();
+    /**
+     * Recommends plans for the meter's series as the caller already holds it, going through the cost cache.
+     *
+     * @param limit maximum number of plans to recommend; {@code null} for all of them
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    public List<Map.Entry<String, BigDecimal>> recommendCheapestPricePlans(
+            String smartMeterId, ReadingSeries series, Integer limit) {
+        Map<String, BigDecimal> costs = costCache.get(smartMeterId, series.version());
+        if (costs != null) {
+            return cheapest(costs, limit);
+        }
+        if (!isPartial(limit)) {
+            costs = calculateCostOfEachPricePlan(series);
+            costCache.put(smartMeterId, series.version(), costs);
+            return cheapest(costs, limit);
+        }
+        return rankCheapestPricePlans(series, limit);
+    }
 
-        ElectricityReading last = electricityReadings.stream()
-                .max(Comparator.comparing(ElectricityReading::time))
-                .get();
+    /**
+     * Finds the series' cheapest plans without going through the cost cache. When only a few of many plans are
+     * wanted, plans are first ranked by an approximate score and only those that can make the cut are costed exactly.
+     *
+     * @param limit maximum number of plans to recommend; {@code null} for all of them
+     * @return the cheapest plans, cheapest first
+     * @throws ArithmeticException if no time elapsed between the first and last reading
+     */
+    public List<Map.Entry<String, BigDecimal>> rankCheapestPricePlans(ReadingSeries series, Integer limit) {
+        long start = System.nanoTime();
+        try {
+            return rank(series, limit);
+        } finally {
+            rankTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<Map.Entry<String, BigDecimal>> rank(ReadingSeries series, Integer limit) {
+        SeriesAggregates aggregates = series.aggregates();
+        int direction = aggregates.sum().signum();
+        if (!isPartial(limit) || direction == 0) {
+            return cheapest(calculateCostOfEachPricePlan(series), limit);
+        }
+        ConsumptionProfile profile = null;
+        if (timeOfUsePricing.hasPeakPricePlans()) {
+            profile = ConsumptionProfile.of(series);
+            direction *= profile.totalEnergy().signum();
+            if (direction == 0) {
+                return cheapest(calculateCostOfEachPricePlan(series), limit);
+            }
+        }
+
+        int[] candidates = ranking.candidates(profile, direction, limit);
+        BigDecimal[] costs = costEngine.costOfPricePlans(aggregates, candidates);
+        List<Map.Entry<String, BigDecimal>> cheapest = new ArrayList<>(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            PricePlan pricePlan = pricePlans.get(candidates[i]);
+            BigDecimal cost = profile == null ? costs[i] : TimeOfUsePricing.apply(pricePlan, costs[i], profile);
+            cheapest.add(Map.entry(pricePlan.getPlanName(), cost));
+        }
+        cheapest.sort(Map.Entry.comparingByValue());
+        return cheapest.subList(0, limit);
+    }
 
-        return BigDecimal.valueOf(Duration.between(first.time(), last.time()).getSeconds() / 3600.0);
+    public PricePlanCostCache.CacheStats getCostCacheStats() {
+        return costCache.stats();
+    }
+
+    private static Timer costTimer(String plans, MeterRegistry meterRegistry) {
+        return Timer.builder("joi.pricing.costs")
+                .description("Time taken to cost a meter's readings under its price plans")
+                .tag("plans", plans)
+                .register(meterRegistry);
+    }
+
+    private boolean isPartial(Integer limit) {
+        return limit != null && limit > 0 && limit < pricePlans.size();
+    }
+
+    private static List<Map.Entry<String, BigDecimal>> cheapest(Map<String, BigDecimal> costs, Integer limit) {
+        List<Map.Entry<String, BigDecimal>> cheapest = new ArrayList<>(costs.entrySet());
+        cheapest.sort(Map.Entry.comparingByValue());
+        if (limit != null && limit < cheapest.size()) {
+            cheapest = cheapest.subList(0, limit);
+        }
+        return cheapest;
     }
 }
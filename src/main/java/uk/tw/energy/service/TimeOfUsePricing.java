@@ -0,0 +1,81 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.domain.TariffTable;
+import uk.tw.energy.store.ReadingSeries;
+
+/**
+ * Applies the peak time multipliers of price plans to the costs calculated at their unit rate.
+ *
+ * <p>Energy is charged at the price of the half-hour slot it was used in, as recorded by a {@link ConsumptionProfile}.
+ * A plan's cost is scaled by its energy-weighted average multiplier and rounded back to the scale it had, so plans
+ * without multipliers keep their cost exactly.
+ */
+final class TimeOfUsePricing {
+
+    private final List<PricePlan> peakPricePlans;
+
+    TimeOfUsePricing(List<PricePlan> pricePlans) {
+        this.peakPricePlans = pricePlans.stream()
+                .filter(pricePlan -> !pricePlan.getTariffTable().isFlat())
+                .toList();
+    }
+
+    /**
+     * @return whether any plan has peak time multipliers, and so whether costs need a {@link ConsumptionProfile}
+     */
+    boolean hasPeakPricePlans() {
+        return !peakPricePlans.isEmpty();
+    }
+
+    /**
+     * @param costs costs at each plan's unit rate, keyed by plan name
+     * @return the costs with peak time multipliers applied
+     */
+    Map<String, BigDecimal> apply(ReadingSeries series, Map<String, BigDecimal> costs) {
+        if (peakPricePlans.isEmpty()) {
+            return costs;
+        }
+        ConsumptionProfile profile = ConsumptionProfile.of(series);
+        Map<String, BigDecimal> adjusted = new HashMap<>(costs);
+        for (PricePlan pricePlan : peakPricePlans) {
+            BigDecimal cost = costs.get(pricePlan.getPlanName());
+            if (cost != null) {
+                adjusted.put(pricePlan.getPlanName(), apply(pricePlan, cost, profile));
+            }
+        }
+        return adjusted;
+    }
+
+    /**
+     * @param cost the plan's cost at its unit rate
+     * @return the cost with the plan's peak time multipliers applied
+     */
+    static BigDecimal apply(PricePlan pricePlan, BigDecimal cost, ConsumptionProfile profile) {
+        TariffTable tariffTable = pricePlan.getTariffTable();
+        if (tariffTable.isFlat() || profile.totalEnergy().signum() == 0) {
+            return cost;
+        }
+        BigDecimal[] energyByRateClass = new BigDecimal[tariffTable.rateClassCount()];
+        Arrays.fill(energyByRateClass, BigDecimal.ZERO);
+        for (int slot = 0; slot < TariffTable.SLOTS_PER_WEEK; slot++) {
+            BigDecimal energy = profile.energyAt(slot);
+            if (energy != null) {
+                int rateClass = tariffTable.rateClassAt(slot);
+                energyByRateClass[rateClass] = energyByRateClass[rateClass].add(energy);
+            }
+        }
+        BigDecimal weightedEnergy = BigDecimal.ZERO;
+        for (int rateClass = 0; rateClass < energyByRateClass.length; rateClass++) {
+            weightedEnergy =
+                    weightedEnergy.add(energyByRateClass[rateClass].multiply(tariffTable.multiplier(rateClass)));
+        }
+        return cost.multiply(weightedEnergy).divide(profile.totalEnergy(), cost.scale(), RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,61 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+
+/**
+ * Accumulates fixed-point readings into a sum equal to adding them up as {@link BigDecimal}s from
+ * {@link BigDecimal#ZERO}, scale included.
+ *
+ * <p>The sum is kept as an unscaled {@code long} and only falls back to a {@link BigDecimal} once it overflows.
+ */
+public final class DecimalSum {
+
+    private long unscaled;
+    private int scale;
+    private BigDecimal overflow;
+
+    public void add(long value, int valueScale) {
+        if (overflow == null) {
+            try {
+                if (valueScale > scale) {
+                    unscaled = FixedPoint.rescale(unscaled, scale, valueScale);
+                    scale = valueScale;
+                }
+                unscaled = Math.addExact(unscaled, FixedPoint.rescale(value, valueScale, scale));
+                return;
+            } catch (ArithmeticException e) {
+                overflow = BigDecimal.valueOf(unscaled, scale);
+            }
+        }
+        overflow = overflow.add(BigDecimal.valueOf(value, valueScale));
+    }
+
+    public void add(BigDecimal value) {
+        if (overflow == null && value.unscaledValue().bitLength() < Long.SIZE) {
+            add(value.unscaledValue().longValue(), value.scale());
+        } else {
+            overflow = toBigDecimal().add(value);
+        }
+    }
+
+    /**
+     * Adds {@code value * factor}, where {@code value} has the given scale and {@code factor} is a whole number.
+     */
+    public void addProduct(long value, long factor, int valueScale) {
+        long product;
+        try {
+            product = Math.multiplyExact(value, factor);
+        } catch (ArithmeticException e) {
+            if (overflow == null) {
+                overflow = BigDecimal.valueOf(unscaled, scale);
+            }
+            overflow = overflow.add(BigDecimal.valueOf(value, valueScale).multiply(BigDecimal.valueOf(factor)));
+            return;
+        }
+        add(product, valueScale);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return overflow != null ? overflow : BigDecimal.valueOf(unscaled, scale);
+    }
+}
@@ -0,0 +1,225 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ReadingStore} that writes every batch to a {@link ReadingLog} before applying it to an in-memory store, and
+ * rebuilds that store from the latest {@link ReadingCheckpoint} and the log when it is created.
+ *
+ * <p>An append returns only once its batch is on disk, so readings acknowledged to a client survive a crash. Writes to
+ * the same meter hold its lock from logging until they are applied, so they reach memory in the order they were
+ * logged and replaying the log keeps the same readings as were served.
+ *
+ * <p>Once {@code checkpointSegments} segments have been started since the last checkpoint, a background thread writes
+ * a new one and deletes the segments it covers, which bounds both the disk used and the time taken to recover.
+ */
+public class DurableReadingStore implements ReadingStore, Closeable {
+
+    private static final int DEFAULT_CHECKPOINT_SEGMENTS = 8;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DurableReadingStore.class);
+    private static final int METER_LOCKS = 256;
+
+    private final ColumnarReadingStore delegate;
+    private final Path directory;
+    private final ReadingLog readingLog;
+    private final ReadingLog.RecoveryStats recoveryStats;
+    private final ReentrantLock[] meterLocks = new ReentrantLock[METER_LOCKS];
+    private final int checkpointSegments;
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    private volatile long checkpointedBefore;
+    private volatile Thread checkpointer;
+
+    public DurableReadingStore(ColumnarReadingStore delegate, Path directory, int segmentSize) throws IOException {
+        this(delegate, directory, segmentSize, DEFAULT_CHECKPOINT_SEGMENTS);
+    }
+
+    /**
+     * @param checkpointSegments segments started since the last checkpoint that trigger the next one, or {@code 0} to
+     *     only checkpoint when {@link #checkpoint()} is called
+     */
+    public DurableReadingStore(ColumnarReadingStore delegate, Path directory, int segmentSize, int checkpointSegments)
+            throws IOException {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.checkpointSegments = checkpointSegments;
+        for (int i = 0; i < METER_LOCKS; i++) {
+            meterLocks[i] = new ReentrantLock();
+        }
+        this.readingLog = ReadingLog.open(directory, segmentSize);
+        this.checkpointedBefore = ReadingCheckpoint.load(directory, delegate);
+        this.recoveryStats = readingLog.replay(checkpointedBefore, delegate);
+        LOGGER.info(
+                "Recovered {} meters from the checkpoint and {} readings in {} records from {} segments ({} bytes)"
+                        + " in {} ms, {} readings/s",
+                delegate.smartMeterIds().size(),
+                recoveryStats.readings(),
+                recoveryStats.records(),
+                recoveryStats.segments(),
+                recoveryStats.bytes(),
+                recoveryStats.elapsed().toMillis(),
+                Math.round(recoveryStats.readingsPerSecond()));
+    }
+
+    public ReadingLog.RecoveryStats getRecoveryStats() {
+        return recoveryStats;
+    }
+
+    @Override
+    public int append(String smartMeterId, ReadingBuffer readings) {
+        ReentrantLock lock = lockOf(smartMeterId);
+        lock.lock();
+        try {
+            readingLog.awaitDurable(readingLog.append(smartMeterId, readings));
+            return delegate.append(smartMeterId, readings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+            checkpointIfDue();
+        }
+    }
+
+    @Override
+    public int appendSamples(String smartMeterId, ReadingBuffer samples) {
+        ReentrantLock lock = lockOf(smartMeterId);
+        lock.lock();
+        try {
+            readingLog.awaitDurable(readingLog.appendSamples(smartMeterId, samples));
+            return delegate.appendSamples(smartMeterId, samples);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addAggregates(String smartMeterId, SeriesAggregates aggregates) {
+        ReentrantLock lock = lockOf(smartMeterId);
+        lock.lock();
+        try {
+            readingLog.awaitDurable(readingLog.appendAggregates(smartMeterId, aggregates));
+            delegate.addAggregates(smartMeterId, aggregates);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String smartMeterId) {
+        ReentrantLock lock = lockOf(smartMeterId);
+        lock.lock();
+        try {
+            readingLog.awaitDurable(readingLog.appendRemoval(smartMeterId));
+            return delegate.remove(smartMeterId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every meter's series to a new checkpoint and deletes the log segments it covers.
+     *
+     * <p>Every meter lock is held while the log is rolled over to a new segment and the snapshots are taken, which only
+     * copies references. The snapshots then hold exactly the writes logged to earlier segments, so replaying the new
+     * segment over the checkpoint applies each later write once, aggregates handed over by another instance included.
+     * The snapshots are written to disk after the locks are released.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long started = System.nanoTime();
+        long firstSegment;
+        Map<String, SeriesSnapshot> snapshots;
+        for (ReentrantLock lock : meterLocks) {
+            lock.lock();
+        }
+        try {
+            firstSegment = readingLog.rollOver();
+            snapshots = delegate.snapshots();
+        } finally {
+            for (ReentrantLock lock : meterLocks) {
+                lock.unlock();
+            }
+        }
+        ReadingCheckpoint.write(directory, firstSegment, snapshots);
+        int meters = snapshots.size();
+        checkpointedBefore = firstSegment;
+        int deleted = readingLog.deleteSegmentsBefore(firstSegment);
+        LOGGER.info(
+                "Checkpointed {} meters and deleted {} segments in {} ms",
+                meters,
+                deleted,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public Optional<ReadingSeries> getSeries(String smartMeterId) {
+        return delegate.getSeries(smartMeterId);
+    }
+
+    @Override
+    public Set<String> smartMeterIds() {
+        return delegate.smartMeterIds();
+    }
+
+    @Override
+    public Optional<StorageStats> storageStats() {
+        return delegate.storageStats();
+    }
+
+    @Override
+    public Optional<IngestStats> ingestStats() {
+        return delegate.ingestStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread running = checkpointer;
+        if (running != null) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        readingLog.close();
+    }
+
+    private ReentrantLock lockOf(String smartMeterId) {
+        return meterLocks[Math.floorMod(smartMeterId.hashCode(), METER_LOCKS)];
+    }
+
+    private void checkpointIfDue() {
+        if (checkpointSegments > 0
+                && readingLog.segmentsFrom(checkpointedBefore) > checkpointSegments
+                && checkpointing.compareAndSet(false, true)) {
+            Thread thread = new Thread(
+                    () -> {
+                        try {
+                            checkpoint();
+                        } catch (IOException | RuntimeException e) {
+                            LOGGER.error("Checkpoint failed; the log segments are kept", e);
+                        } finally {
+                            checkpointing.set(false);
+                        }
+                    },
+                    "reading-checkpoint");
+            thread.setDaemon(true);
+            checkpointer = thread;
+            thread.start();
+        }
+    }
+}
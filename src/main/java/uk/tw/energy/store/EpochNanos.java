@@ -0,0 +1,49 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+
+/**
+ * Converts between {@link Instant} and epoch nanoseconds held in a {@code long}, which covers the years 1677 to 2262.
+ */
+public final class EpochNanos {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final Instant EARLIEST = toInstant(Long.MIN_VALUE);
+    private static final Instant LATEST = toInstant(Long.MAX_VALUE);
+
+    private EpochNanos() {}
+
+    /**
+     * @return whether {@link #of(Instant)} can convert the instant without overflowing
+     */
+    public static boolean isInRange(Instant instant) {
+        return !instant.isBefore(EARLIEST) && !instant.isAfter(LATEST);
+    }
+
+    /**
+     * @throws ArithmeticException if the instant is not {@linkplain #isInRange(Instant) in range}
+     */
+    public static long of(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    /**
+     * @return epoch nanoseconds, clamped to the range of a {@code long}
+     */
+    public static long ofSaturated(Instant instant) {
+        try {
+            return of(instant);
+        } catch (ArithmeticException e) {
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(
+                Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    public static long toEpochSeconds(long epochNanos) {
+        return Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,168 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point representation of readings: an unscaled {@code long} and a scale that fits in a {@code byte}.
+ *
+ * <p>Readings keep the scale they were submitted with, so that they read back exactly as they were stored.
+ */
+public final class FixedPoint {
+
+    static final long[] POWERS_OF_TEN = {
+        1L,
+        10L,
+        100L,
+        1_000L,
+        10_000L,
+        100_000L,
+        1_000_000L,
+        10_000_000L,
+        100_000_000L,
+        1_000_000_000L,
+        10_000_000_000L,
+        100_000_000_000L,
+        1_000_000_000_000L,
+        10_000_000_000_000L,
+        100_000_000_000_000L,
+        1_000_000_000_000_000L,
+        10_000_000_000_000_000L,
+        100_000_000_000_000_000L,
+        1_000_000_000_000_000_000L
+    };
+
+    private FixedPoint() {}
+
+    /**
+     * @return the reading, rounded to 16 significant digits if its unscaled value or scale does not fit
+     */
+    public static BigDecimal normalise(BigDecimal reading) {
+        if (fits(reading)) {
+            return reading;
+        }
+        BigDecimal rounded = reading.round(MathContext.DECIMAL64);
+        if (rounded.scale() > Byte.MAX_VALUE) {
+            rounded = rounded.setScale(Byte.MAX_VALUE, RoundingMode.HALF_UP);
+        }
+        if (!fits(rounded)) {
+            throw new IllegalArgumentException("Reading out of range: " + reading);
+        }
+        return rounded;
+    }
+
+    /**
+     * @return whether {@link #normalise(BigDecimal)} can hold the reading, which it cannot if even rounded to 16
+     *     significant digits its exponent is beyond a {@code byte}, as in {@code 1E+9999}
+     */
+    public static boolean isInRange(BigDecimal reading) {
+        if (fits(reading)) {
+            return true;
+        }
+        long scale = (long) reading.scale() - Math.max(0, reading.precision() - MathContext.DECIMAL64.getPrecision());
+        return scale >= Byte.MIN_VALUE;
+    }
+
+    public static long unscaled(BigDecimal normalisedReading) {
+        return normalisedReading.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long unscaled, int scale) {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * @throws ArithmeticException if the power overflows a {@code long}
+     */
+    public static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("long overflow");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Calculates {@code value * multiplier / divisor} rounded {@link RoundingMode#HALF_UP}, with the product held in
+     * 128 bits so that it does not overflow.
+     *
+     * @param multiplier must be positive
+     * @param divisor must be positive
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public static long multiplyDivideHalfUp(long value, long multiplier, long divisor) {
+        long magnitude = Math.absExact(value);
+        long high = Math.multiplyHigh(magnitude, multiplier);
+        long low = magnitude * multiplier;
+        if (high >= divisor) {
+            throw new ArithmeticException("long overflow");
+        }
+        long quotient = high == 0 ? Long.divideUnsigned(low, divisor) : divideUnsigned(high, low, divisor);
+        if (quotient < 0) {
+            throw new ArithmeticException("long overflow");
+        }
+        long remainder = low - quotient * divisor;
+        if (Long.compareUnsigned(remainder, divisor - remainder) >= 0) {
+            quotient = Math.incrementExact(quotient);
+        }
+        return value < 0 ? -quotient : quotient;
+    }
+
+    /**
+     * Divides the unsigned 128-bit {@code high:low} by {@code divisor}, which must be greater than {@code high}, using
+     * the two-digit long division from Hacker's Delight, {@code divlu}.
+     */
+    private static long divideUnsigned(long high, long low, long divisor) {
+        long base = 1L << 32;
+        int shift = Long.numberOfLeadingZeros(divisor);
+        long normalised = divisor << shift;
+        long divisorHigh = normalised >>> 32;
+        long divisorLow = normalised & 0xFFFFFFFFL;
+        long numerator32 = (high << shift) | (shift == 0 ? 0 : low >>> (64 - shift));
+        long numerator10 = low << shift;
+        long numerator1 = numerator10 >>> 32;
+        long numerator0 = numerator10 & 0xFFFFFFFFL;
+
+        long quotient1 = Long.divideUnsigned(numerator32, divisorHigh);
+        long remainderEstimate = numerator32 - quotient1 * divisorHigh;
+        while (Long.compareUnsigned(quotient1, base) >= 0
+                || Long.compareUnsigned(quotient1 * divisorLow, base * remainderEstimate + numerator1) > 0) {
+            quotient1--;
+            remainderEstimate += divisorHigh;
+            if (Long.compareUnsigned(remainderEstimate, base) >= 0) {
+                break;
+            }
+        }
+
+        long numerator21 = numerator32 * base + numerator1 - quotient1 * normalised;
+        long quotient0 = Long.divideUnsigned(numerator21, divisorHigh);
+        remainderEstimate = numerator21 - quotient0 * divisorHigh;
+        while (Long.compareUnsigned(quotient0, base) >= 0
+                || Long.compareUnsigned(quotient0 * divisorLow, base * remainderEstimate + numerator0) > 0) {
+            quotient0--;
+            remainderEstimate += divisorHigh;
+            if (Long.compareUnsigned(remainderEstimate, base) >= 0) {
+                break;
+            }
+        }
+        return quotient1 * base + quotient0;
+    }
+
+    /**
+     * @return the value re-expressed at the larger {@code targetScale}
+     * @throws ArithmeticException if the rescaled value overflows a {@code long}
+     */
+    static long rescale(long unscaled, int scale, int targetScale) {
+        int shift = targetScale - scale;
+        if (shift >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("long overflow");
+        }
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[shift]);
+    }
+
+    private static boolean fits(BigDecimal reading) {
+        return reading.unscaledValue().bitLength() < Long.SIZE
+                && reading.scale() >= Byte.MIN_VALUE
+                && reading.scale() <= Byte.MAX_VALUE;
+    }
+}
@@ -0,0 +1,10 @@
+package uk.tw.energy.store;
+
+/**
+ * Readings given to a {@link ReadingStore} that did not simply extend their meter's series.
+ *
+ * @param duplicates readings dropped because the meter already had a reading at that time
+ * @param late readings kept that were older than the meter's latest reading, so were merged into its series
+ * @param expired readings dropped because they were older than the meter's readings kept at full resolution
+ */
+public record IngestStats(long duplicates, long late, long expired) {}
@@ -0,0 +1,374 @@
+package uk.tw.energy.store;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time-ordered series of one meter, stored as a sequence of chunks. Every chunk but the last holds exactly
+ * {@link #CHUNK_CAPACITY} samples, so a sample index maps straight onto its chunk.
+ *
+ * <p>Readings arriving in time order are appended to the last chunk, an open {@link ReadingChunk}. Once it is full and
+ * another reading arrives, it is sealed into a compressed {@link SealedChunk}. Older readings are merged in by
+ * rewriting the series from the chunk they belong in onwards into fresh chunks.
+ *
+ * <p>Meters resend readings after losing their connection, so a reading at a time the series already has a sample at
+ * is dropped as a duplicate, which makes storing the same batch twice idempotent. Readings later than the latest so
+ * far, the usual case, need no such check. Older ones are looked up in the one chunk they would be in.
+ *
+ * <p>Writers are serialised on the series, so meters never contend with each other. Readers take no lock: after each
+ * batch the writer publishes an immutable {@link SeriesSnapshot} through a volatile field, and never modifies a sample
+ * or chunk slot that a published snapshot can already see.
+ *
+ * <p>{@link SeriesAggregates} are updated alongside every append and published with the snapshot they describe.
+ *
+ * <p>Under a {@link RollupPolicy}, whole chunks that have aged past the raw tier are rolled up and evicted. The rolled
+ * up samples form a single chunk in front of the raw chunks, rebuilt each time more chunks age into it. A rolled up
+ * sample no longer says which readings it replaced, so a resent reading cannot be told apart from a new one there, and
+ * readings older than the raw chunks are dropped as expired instead of being counted twice. The aggregates keep
+ * counting every reading ever appended, so costs calculated from them do not change as readings are rolled up.
+ */
+final class MeterSeries {
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_CAPACITY = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_CAPACITY - 1;
+    private static final int FIRST_CHUNK_CAPACITY = 16;
+
+    private final RollupPolicy rollupPolicy;
+    private final LongAdder duplicates;
+    private final LongAdder late;
+    private final LongAdder expired;
+    private ReadingChunk rolled = new ReadingChunk(0);
+    private long rolledUntil = Long.MIN_VALUE;
+    private SealedChunk[] sealed = new SealedChunk[0];
+    private int sealedCount;
+    private ReadingChunk tail;
+    private int size;
+    private int count;
+    private final DecimalSum sum = new DecimalSum();
+    private long earliestTime = Long.MAX_VALUE;
+    private long latestTime = Long.MIN_VALUE;
+    private long version;
+    private volatile SeriesSnapshot published;
+
+    /**
+     * @param firstVersion version of the empty series, counted up from by each append
+     * @param duplicates counter of the readings dropped as duplicates
+     * @param late counter of the readings kept that were older than the latest one at the time
+     * @param expired counter of the readings dropped for being older than the raw chunks
+     */
+    MeterSeries(RollupPolicy rollupPolicy, long firstVersion, LongAdder duplicates, LongAdder late, LongAdder expired) {
+        this.rollupPolicy = rollupPolicy;
+        this.duplicates = duplicates;
+        this.late = late;
+        this.expired = expired;
+        this.version = firstVersion;
+        this.published = new SeriesSnapshot(rolled, sealed, 0, null, 0, SeriesAggregates.EMPTY, firstVersion);
+    }
+
+    /**
+     * @return the number of samples in the series afterwards
+     */
+    synchronized int append(ReadingBuffer readings) {
+        return append(readings, true);
+    }
+
+    /**
+     * Adds samples without counting them in the aggregates, as the readings they stand for are added to those with
+     * {@link #addAggregates}.
+     *
+     * @return the number of samples in the series afterwards
+     */
+    synchronized int appendSamples(ReadingBuffer samples) {
+        return append(samples, false);
+    }
+
+    private int append(ReadingBuffer readings, boolean counted) {
+        readings.sortByTime();
+        ReadingBuffer kept = dropDuplicates(readings);
+        int added = kept.size();
+        if (added == 0) {
+            return published.size();
+        }
+        if (counted) {
+            for (int i = 0; i < added; i++) {
+                sum.add(kept.values[i], kept.scales[i]);
+            }
+            count += added;
+        }
+        earliestTime = Math.min(earliestTime, kept.times[0]);
+        latestTime = Math.max(latestTime, kept.times[added - 1]);
+        appendRaw(kept);
+        if (!rollupPolicy.isEmpty()) {
+            rollUpAgedChunks();
+        }
+        publish();
+        return published.size();
+    }
+
+    /**
+     * Counts readings in the aggregates without adding samples of them.
+     */
+    synchronized void addAggregates(SeriesAggregates aggregates) {
+        if (aggregates.count() == 0) {
+            return;
+        }
+        count += aggregates.count();
+        sum.add(aggregates.sum());
+        earliestTime = Math.min(earliestTime, aggregates.earliestTime());
+        latestTime = Math.max(latestTime, aggregates.latestTime());
+        publish();
+    }
+
+    /**
+     * Fills an empty series with the samples and aggregates of a {@link SeriesSnapshot}, such as one read back from a
+     * checkpoint, leaving it as the series was when the snapshot was taken.
+     *
+     * @param samples sorted by time, at distinct times
+     * @param rolledSize the number of leading samples that had been rolled up
+     */
+    synchronized void restore(ReadingBuffer samples, int rolledSize, SeriesAggregates aggregates) {
+        if (count != 0) {
+            throw new IllegalStateException("Only an empty series can be restored");
+        }
+        rolled = new ReadingChunk(rolledSize);
+        for (int i = 0; i < rolledSize; i++) {
+            rolled.append(samples.times[i], samples.values[i], samples.scales[i]);
+        }
+        if (rolledSize > 0 && rolledSize < samples.size()) {
+            rolledUntil = samples.times[rolledSize];
+        }
+        for (int i = rolledSize; i < samples.size(); i++) {
+            appendSample(samples.times[i], samples.values[i], samples.scales[i]);
+        }
+        count = aggregates.count();
+        sum.add(aggregates.sum());
+        earliestTime = aggregates.earliestTime();
+        latestTime = aggregates.latestTime();
+        publish();
+    }
+
+    SeriesSnapshot snapshot() {
+        return published;
+    }
+
+    private void publish() {
+        published = new SeriesSnapshot(
+                rolled,
+                sealed,
+                sealedCount,
+                tail,
+                size,
+                new SeriesAggregates(count, sum.toBigDecimal(), earliestTime, latestTime),
+                ++version);
+    }
+
+    /**
+     * Drops readings at times the series, or an earlier reading in the batch, already has a sample at, and those older
+     * than the raw chunks, and counts the readings kept that are older than the latest so far.
+     *
+     * @param readings sorted by time
+     * @return {@code readings} itself if they all come after the latest reading so far and at distinct times
+     */
+    private ReadingBuffer dropDuplicates(ReadingBuffer readings) {
+        int size = readings.size();
+        boolean inOrder = size == 0 || readings.times[0] > latestTime;
+        for (int i = 1; inOrder && i < size; i++) {
+            inOrder = readings.times[i] != readings.times[i - 1];
+        }
+        if (inOrder) {
+            return readings;
+        }
+        ReadingBuffer kept = new ReadingBuffer(size);
+        int older = 0;
+        int tooOld = 0;
+        for (int i = 0; i < size; i++) {
+            long time = readings.times[i];
+            if (time < rolledUntil) {
+                tooOld++;
+                continue;
+            }
+            if (i > 0 && time == readings.times[i - 1]) {
+                continue;
+            }
+            if (time <= latestTime) {
+                if (hasSampleAt(time)) {
+                    continue;
+                }
+                older++;
+            }
+            kept.add(time, readings.values[i], readings.scales[i]);
+        }
+        duplicates.add(size - tooOld - kept.size());
+        late.add(older);
+        expired.add(tooOld);
+        return kept;
+    }
+
+    /**
+     * @return whether the raw chunks have a sample at exactly {@code time}
+     */
+    private boolean hasSampleAt(long time) {
+        int low = 0;
+        int high = sealedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sealed[middle].lastTime() < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low < sealedCount) {
+            return sealed[low].firstTime() <= time && hasSampleAt(sealed[low].decode(), time);
+        }
+        return tail != null && hasSampleAt(tail, time);
+    }
+
+    private static boolean hasSampleAt(ReadingChunk chunk, long time) {
+        int index = chunk.lowerBound(time);
+        return index < chunk.size() && chunk.times[index] == time;
+    }
+
+    private void appendRaw(ReadingBuffer readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        int insertAt =
+                size == 0 || readings.times[0] >= tail.times[tail.size() - 1] ? size : upperBound(readings.times[0]);
+        if (insertAt == size) {
+            for (int i = 0; i < readings.size(); i++) {
+                appendSample(readings.times[i], readings.values[i], readings.scales[i]);
+            }
+        } else {
+            mergeFrom(insertAt, readings);
+        }
+    }
+
+    /**
+     * Rolls up and evicts the leading chunks whose samples, up to the start of the chunk after them, are all older
+     * than the raw tier.
+     */
+    private void rollUpAgedChunks() {
+        long boundary = latestTime - rollupPolicy.rawAge();
+        int aged = 0;
+        while (aged + 1 < chunkCount() && firstTimeOf(aged + 1) <= boundary) {
+            aged++;
+        }
+        if (aged == 0) {
+            return;
+        }
+        ReadingChunk samples = rolled;
+        for (int chunk = 0; chunk < aged; chunk++) {
+            samples = Rollup.merge(samples, sealed[chunk].decode());
+        }
+        rolledUntil = firstTimeOf(aged);
+        rolled = Rollup.rollUp(samples, rolledUntil, latestTime, rollupPolicy);
+        sealed = Arrays.copyOfRange(sealed, aged, sealed.length);
+        sealedCount -= aged;
+        size -= aged << CHUNK_SHIFT;
+    }
+
+    private int chunkCount() {
+        return sealedCount + (tail == null ? 0 : 1);
+    }
+
+    private long firstTimeOf(int chunk) {
+        return chunk < sealedCount ? sealed[chunk].firstTime() : tail.times[0];
+    }
+
+    /**
+     * @return the samples of the chunk, decoded if it is sealed
+     */
+    private ReadingChunk chunkAt(int chunk) {
+        return chunk < sealedCount ? sealed[chunk].decode() : tail;
+    }
+
+    private void mergeFrom(int insertAt, ReadingBuffer readings) {
+        int tailLength = size - insertAt;
+        long[] tailTimes = new long[tailLength];
+        long[] tailValues = new long[tailLength];
+        byte[] tailScales = new byte[tailLength];
+        int chunkIndex = insertAt >>> CHUNK_SHIFT;
+        int chunkStart = chunkIndex << CHUNK_SHIFT;
+        ReadingChunk head = chunkAt(chunkIndex);
+        int copied = 0;
+        for (int chunk = chunkIndex; copied < tailLength; chunk++) {
+            ReadingChunk samples = chunk == chunkIndex ? head : chunkAt(chunk);
+            for (int offset = chunk == chunkIndex ? insertAt - chunkStart : 0; offset < samples.size(); offset++) {
+                tailTimes[copied] = samples.times[offset];
+                tailValues[copied] = samples.values[offset];
+                tailScales[copied] = samples.scales[offset];
+                copied++;
+            }
+        }
+
+        if (chunkIndex < sealedCount) {
+            sealed = Arrays.copyOf(sealed, sealed.length);
+            Arrays.fill(sealed, chunkIndex, sealed.length, null);
+            sealedCount = chunkIndex;
+        }
+        tail = null;
+        size = chunkStart;
+        if (insertAt > chunkStart) {
+            tail = head.prefix(insertAt - chunkStart);
+            size = insertAt;
+        }
+
+        int t = 0;
+        int r = 0;
+        while (t < tailLength || r < readings.size()) {
+            if (r == readings.size() || (t < tailLength && tailTimes[t] <= readings.times[r])) {
+                appendSample(tailTimes[t], tailValues[t], tailScales[t]);
+                t++;
+            } else {
+                appendSample(readings.times[r], readings.values[r], readings.scales[r]);
+                r++;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first raw sample taken after {@code time}
+     */
+    private int upperBound(long time) {
+        int low = 0;
+        int high = sealedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sealed[middle].lastTime() <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        ReadingChunk chunk = low < sealedCount ? sealed[low].decode() : tail;
+        return (low << CHUNK_SHIFT) + (chunk == null ? 0 : chunk.upperBound(time));
+    }
+
+    private void appendSample(long time, long value, int scale) {
+        tailWithRoom().append(time, value, scale);
+        size++;
+    }
+
+    private ReadingChunk tailWithRoom() {
+        if (tail == null) {
+            tail = new ReadingChunk(FIRST_CHUNK_CAPACITY);
+        } else if (tail.isFull()) {
+            if (tail.capacity() < CHUNK_CAPACITY) {
+                tail = tail.grow(Math.min(tail.capacity() * 2, CHUNK_CAPACITY));
+            } else {
+                seal(tail);
+                tail = new ReadingChunk(CHUNK_CAPACITY);
+            }
+        }
+        return tail;
+    }
+
+    private void seal(ReadingChunk chunk) {
+        if (sealedCount == sealed.length) {
+            sealed = Arrays.copyOf(sealed, Math.max(4, sealedCount * 2));
+        }
+        sealed[sealedCount++] = SealedChunk.seal(chunk);
+    }
+}
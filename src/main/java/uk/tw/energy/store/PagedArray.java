@@ -0,0 +1,47 @@
+package uk.tw.energy.store;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Array indexed by meter number that allocates its storage a page at a time as higher numbers are used. Reads take no
+ * locks and see fully constructed elements.
+ */
+public final class PagedArray<T> {
+
+    static final int PAGE_BITS = 16;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MAX_PAGES = 1 << (Integer.SIZE - 1 - PAGE_BITS);
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> pages = new AtomicReferenceArray<>(MAX_PAGES);
+
+    /**
+     * @return the element, or {@code null} if none was set
+     */
+    public T get(int index) {
+        AtomicReferenceArray<T> page = pages.get(index >>> PAGE_BITS);
+        return page == null ? null : page.get(index & PAGE_MASK);
+    }
+
+    public void set(int index, T value) {
+        page(index).set(index & PAGE_MASK, value);
+    }
+
+    public T getAndSet(int index, T value) {
+        return page(index).getAndSet(index & PAGE_MASK, value);
+    }
+
+    public boolean compareAndSet(int index, T expected, T value) {
+        return page(index).compareAndSet(index & PAGE_MASK, expected, value);
+    }
+
+    private AtomicReferenceArray<T> page(int index) {
+        int number = index >>> PAGE_BITS;
+        AtomicReferenceArray<T> page = pages.get(number);
+        if (page == null) {
+            pages.compareAndSet(number, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = pages.get(number);
+        }
+        return page;
+    }
+}
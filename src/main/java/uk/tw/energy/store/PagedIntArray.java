@@ -0,0 +1,30 @@
+package uk.tw.energy.store;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@code int} counterpart of {@link PagedArray}, four bytes an element. Elements never set read as zero.
+ */
+public final class PagedIntArray {
+
+    private static final int PAGE_MASK = PagedArray.PAGE_SIZE - 1;
+    private static final int MAX_PAGES = 1 << (Integer.SIZE - 1 - PagedArray.PAGE_BITS);
+
+    private final AtomicReferenceArray<AtomicIntegerArray> pages = new AtomicReferenceArray<>(MAX_PAGES);
+
+    public int get(int index) {
+        AtomicIntegerArray page = pages.get(index >>> PagedArray.PAGE_BITS);
+        return page == null ? 0 : page.get(index & PAGE_MASK);
+    }
+
+    public int getAndSet(int index, int value) {
+        int number = index >>> PagedArray.PAGE_BITS;
+        AtomicIntegerArray page = pages.get(number);
+        if (page == null) {
+            pages.compareAndSet(number, null, new AtomicIntegerArray(PagedArray.PAGE_SIZE));
+            page = pages.get(number);
+        }
+        return page.getAndSet(index & PAGE_MASK, value);
+    }
+}
@@ -0,0 +1,204 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Reusable, fixed-capacity batch of readings in the store's primitive representation, used to hand readings to a
+ * {@link ReadingStore} without creating an {@link ElectricityReading} per sample.
+ */
+public final class ReadingBuffer {
+
+    private static final int MAX_PARSED_DIGITS = 18;
+
+    final long[] times;
+    final long[] values;
+    final byte[] scales;
+    private int size;
+
+    public ReadingBuffer(int capacity) {
+        this.times = new long[capacity];
+        this.values = new long[capacity];
+        this.scales = new byte[capacity];
+    }
+
+    public static ReadingBuffer of(List<ElectricityReading> electricityReadings) {
+        ReadingBuffer buffer = new ReadingBuffer(electricityReadings.size());
+        for (ElectricityReading electricityReading : electricityReadings) {
+            buffer.add(electricityReading.time(), electricityReading.reading());
+        }
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == times.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long timeAt(int index) {
+        return times[index];
+    }
+
+    public long valueAt(int index) {
+        return values[index];
+    }
+
+    public int scaleAt(int index) {
+        return scales[index];
+    }
+
+    /**
+     * Sorts the buffered readings by time, keeping readings with equal times in the order they were added.
+     */
+    public void sortByTime() {
+        int unsortedFrom = 1;
+        while (unsortedFrom < size && times[unsortedFrom - 1] <= times[unsortedFrom]) {
+            unsortedFrom++;
+        }
+        if (unsortedFrom >= size) {
+            return;
+        }
+        int[] order = new int[size];
+        int[] scratch = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right == high || (left < middle && times[order[left]] <= times[order[right]])) {
+                        scratch[i] = order[left++];
+                    } else {
+                        scratch[i] = order[right++];
+                    }
+                }
+                System.arraycopy(scratch, low, order, low, high - low);
+            }
+        }
+        long[] sortedTimes = new long[size];
+        long[] sortedValues = new long[size];
+        byte[] sortedScales = new byte[size];
+        for (int i = 0; i < size; i++) {
+            sortedTimes[i] = times[order[i]];
+            sortedValues[i] = values[order[i]];
+            sortedScales[i] = scales[order[i]];
+        }
+        System.arraycopy(sortedTimes, 0, times, 0, size);
+        System.arraycopy(sortedValues, 0, values, 0, size);
+        System.arraycopy(sortedScales, 0, scales, 0, size);
+    }
+
+    public void add(Instant time, BigDecimal reading) {
+        add(EpochNanos.of(time), reading);
+    }
+
+    public void add(long time, BigDecimal reading) {
+        BigDecimal normalised = FixedPoint.normalise(reading);
+        add(time, FixedPoint.unscaled(normalised), normalised.scale());
+    }
+
+    public void add(long time, long value, int scale) {
+        if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+            add(time, BigDecimal.valueOf(value, scale));
+            return;
+        }
+        times[size] = time;
+        values[size] = value;
+        scales[size] = (byte) scale;
+        size++;
+    }
+
+    /**
+     * Adds a reading given as decimal text, such as {@code 0.0503} or {@code 5E-2}, parsing it without allocating
+     * unless it has more digits than fit in a {@code long}.
+     */
+    public void addDecimal(long time, char[] text, int offset, int length) {
+        int end = offset + length;
+        int position = offset;
+        boolean negative = false;
+        if (position < end && (text[position] == '-' || text[position] == '+')) {
+            negative = text[position] == '-';
+            position++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        boolean sawDigit = false;
+        int scale = 0;
+        boolean fraction = false;
+        boolean valid = position < end;
+        for (; position < end; position++) {
+            char c = text[position];
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                break;
+            } else {
+                valid = false;
+                break;
+            }
+        }
+        if (valid && position < end) {
+            int exponent = parseExponent(text, position + 1, end);
+            if (exponent == Integer.MIN_VALUE) {
+                valid = false;
+            } else {
+                scale -= exponent;
+            }
+        }
+        if (!valid || !sawDigit || digits > MAX_PARSED_DIGITS) {
+            add(time, new BigDecimal(text, offset, length));
+            return;
+        }
+        add(time, negative ? -unscaled : unscaled, scale);
+    }
+
+    private static int parseExponent(char[] text, int position, int end) {
+        boolean negative = false;
+        if (position < end && (text[position] == '-' || text[position] == '+')) {
+            negative = text[position] == '-';
+            position++;
+        }
+        if (position == end || end - position > 4) {
+            return Integer.MIN_VALUE;
+        }
+        int exponent = 0;
+        for (; position < end; position++) {
+            char c = text[position];
+            if (c < '0' || c > '9') {
+                return Integer.MIN_VALUE;
+            }
+            exponent = exponent * 10 + (c - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+}
@@ -0,0 +1,151 @@
+package uk.tw.energy.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot of every meter's series held by a {@link ColumnarReadingStore}, written so that the {@link ReadingLog}
+ * segments it covers can be deleted.
+ *
+ * <p>A checkpoint is numbered after the first segment it does not cover. Recovery loads the latest checkpoint and then
+ * replays the segments from that one on. It is written under a temporary name, forced to disk and only then renamed,
+ * so a crash part way through leaves the previous checkpoint in place. The file holds, big-endian:
+ *
+ * <pre>
+ * int  magic
+ * per meter: boolean true, UTF meter id, int rolled up samples, int samples,
+ *            samples x (long time, long value, byte scale), int count, UTF sum, long earliest time, long latest time
+ * boolean false, long CRC32 of everything before it
+ * </pre>
+ */
+final class ReadingCheckpoint {
+
+    private static final int MAGIC = 0x4A4F4943;
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".dat";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private ReadingCheckpoint() {}
+
+    /**
+     * Writes the snapshots, then deletes older checkpoints.
+     *
+     * @param firstSegment the first segment whose records the snapshots do not include
+     */
+    static void write(Path directory, long firstSegment, Map<String, SeriesSnapshot> snapshots) throws IOException {
+        Path path = directory.resolve(fileName(firstSegment));
+        Path temporary = directory.resolve(fileName(firstSegment) + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(
+                temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked =
+                    new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+            DataOutputStream output = new DataOutputStream(checked);
+            output.writeInt(MAGIC);
+            for (Map.Entry<String, SeriesSnapshot> meter : snapshots.entrySet()) {
+                writeSeries(output, meter.getKey(), meter.getValue());
+            }
+            output.writeBoolean(false);
+            output.writeLong(checked.getChecksum().getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path older : checkpoints(directory)) {
+            if (!older.equals(path)) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    /**
+     * Restores every meter in the latest checkpoint into the store.
+     *
+     * @return the first segment to replay after the checkpoint, which is {@code 0} if there is none
+     * @throws IOException if the checkpoint is corrupt, rather than recovering without the readings it held
+     */
+    static long load(Path directory, ColumnarReadingStore store) throws IOException {
+        List<Path> checkpoints = checkpoints(directory);
+        if (checkpoints.isEmpty()) {
+            return 0;
+        }
+        Path path = checkpoints.get(checkpoints.size() - 1);
+        try (CheckedInputStream checked =
+                new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), new CRC32())) {
+            DataInputStream input = new DataInputStream(checked);
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint: " + path);
+            }
+            while (input.readBoolean()) {
+                String smartMeterId = input.readUTF();
+                int rolledSize = input.readInt();
+                ReadingBuffer samples = new ReadingBuffer(input.readInt());
+                while (!samples.isFull()) {
+                    samples.add(input.readLong(), input.readLong(), input.readByte());
+                }
+                SeriesAggregates aggregates = new SeriesAggregates(
+                        input.readInt(), new BigDecimal(input.readUTF()), input.readLong(), input.readLong());
+                store.restore(smartMeterId, samples, rolledSize, aggregates);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (input.readLong() != checksum) {
+                throw new IOException("Checkpoint fails its checksum: " + path);
+            }
+        }
+        return checkpointNumber(path);
+    }
+
+    private static void writeSeries(DataOutputStream output, String smartMeterId, SeriesSnapshot snapshot)
+            throws IOException {
+        output.writeBoolean(true);
+        output.writeUTF(smartMeterId);
+        output.writeInt(snapshot.rolledSize());
+        output.writeInt(snapshot.size());
+        ReadingCursor cursor = snapshot.cursor();
+        while (cursor.next()) {
+            output.writeLong(cursor.time());
+            output.writeLong(cursor.value());
+            output.writeByte(cursor.scale());
+        }
+        SeriesAggregates aggregates = snapshot.aggregates();
+        output.writeInt(aggregates.count());
+        output.writeUTF(aggregates.sum().toString());
+        output.writeLong(aggregates.earliestTime());
+        output.writeLong(aggregates.latestTime());
+    }
+
+    private static String fileName(long firstSegment) {
+        return String.format("%s%020d%s", PREFIX, firstSegment, SUFFIX);
+    }
+
+    private static List<Path> checkpoints(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long checkpointNumber(Path checkpoint) {
+        String name = checkpoint.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
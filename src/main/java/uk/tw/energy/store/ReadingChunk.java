@@ -0,0 +1,106 @@
+package uk.tw.energy.store;
+
+/**
+ * Fixed-capacity block of columnar samples. Only ever appended to; a chunk that runs out of room is replaced by a
+ * larger copy rather than grown in place, so a reader holding on to a chunk never sees its arrays change.
+ */
+final class ReadingChunk {
+
+    final long[] times;
+    final long[] values;
+    final byte[] scales;
+    private int size;
+
+    ReadingChunk(int capacity) {
+        this.times = new long[capacity];
+        this.values = new long[capacity];
+        this.scales = new byte[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+
+    boolean isFull() {
+        return size == times.length;
+    }
+
+    void append(long time, long value, int scale) {
+        times[size] = time;
+        values[size] = value;
+        scales[size] = (byte) scale;
+        size++;
+    }
+
+    /**
+     * @return the index of the first sample taken at or after {@code time}, or {@link #size()} if there is none
+     */
+    int lowerBound(long time) {
+        return lowerBound(time, size);
+    }
+
+    /**
+     * Searches only the first {@code length} samples, for readers of a chunk that is still being appended to.
+     */
+    int lowerBound(long time, int length) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first sample taken after {@code time}, or {@link #size()} if there is none
+     */
+    int upperBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    ReadingChunk grow(int capacity) {
+        return copy(size, capacity);
+    }
+
+    /**
+     * @return a copy of the first {@code length} samples, with the same capacity
+     */
+    ReadingChunk prefix(int length) {
+        return copy(length, capacity());
+    }
+
+    /**
+     * @return a copy with no spare capacity
+     */
+    ReadingChunk trim() {
+        return copy(size, size);
+    }
+
+    private ReadingChunk copy(int length, int capacity) {
+        ReadingChunk copy = new ReadingChunk(capacity);
+        System.arraycopy(times, 0, copy.times, 0, length);
+        System.arraycopy(values, 0, copy.values, 0, length);
+        System.arraycopy(scales, 0, copy.scales, 0, length);
+        copy.size = length;
+        return copy;
+    }
+}
@@ -0,0 +1,21 @@
+package uk.tw.energy.store;
+
+/**
+ * Forward-only iteration over a {@link ReadingSeries}, exposing the sample under the cursor as primitives.
+ */
+public interface ReadingCursor {
+
+    /**
+     * @return {@code true} if the cursor moved onto another sample
+     */
+    boolean next();
+
+    /**
+     * @return epoch nanoseconds
+     */
+    long time();
+
+    long value();
+
+    int scale();
+}
@@ -0,0 +1,435 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of readings, split into fixed-size memory-mapped segment files.
+ *
+ * <p>Each segment starts with a magic number and holds a sequence of records:
+ *
+ * <pre>
+ * int  payload length    int  CRC32 of payload
+ * payload: short meter id length, meter id (UTF-8), int count, count x (long time, long value, byte scale)
+ * </pre>
+ *
+ * A count of {@code -1}, with no readings, records that the meter's readings were removed. A count of {@code -2} is
+ * followed by samples added without counting them in the meter's aggregates, as an int count and the samples. A
+ * count of {@code -3} is followed instead by readings counted in the aggregates only, as {@link SeriesAggregates}: int
+ * count, long earliest time, long latest time, int scale, short length and the big-endian bytes of the unscaled sum.
+ *
+ * All values are little-endian. A zero length marks the end of a segment. The length is written after the payload,
+ * so a record torn by a crash is either invisible or fails its checksum.
+ *
+ * <p>Appends only copy into the mapped segment. {@link #awaitDurable(long)} then forces the segment to disk with
+ * group commit: one caller forces everything appended so far while the others wait, and all of them return once that
+ * single force covers their records.
+ *
+ * <p>Segments are never rewritten. Once a {@link ReadingCheckpoint} covers the records of the segments before some
+ * segment, they are deleted with {@link #deleteSegmentsBefore(long)}.
+ */
+public final class ReadingLog implements Closeable {
+
+    static final int MAX_READINGS_PER_RECORD = 4096;
+    private static final int REMOVAL = -1;
+    private static final int SAMPLES = -2;
+    private static final int AGGREGATES = -3;
+    private static final int AGGREGATES_BYTES = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + Short.BYTES;
+    private static final int MAGIC = 0x4A4F4957;
+    private static final int SEGMENT_HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int SAMPLE_BYTES = 17;
+    private static final String SEGMENT_PREFIX = "readings-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Object appendLock = new Object();
+    private final Object commitLock = new Object();
+    private final CRC32 crc = new CRC32();
+    private volatile long nextSegmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long written;
+    private long durable;
+    private boolean forcing;
+
+    private ReadingLog(Path directory, int segmentSize, long nextSegmentNumber) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextSegmentNumber = nextSegmentNumber;
+    }
+
+    public static ReadingLog open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        long nextSegmentNumber = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        return new ReadingLog(directory, segmentSize, nextSegmentNumber);
+    }
+
+    /**
+     * Reads every record already in the log from segment {@code fromSegment} on, oldest first. Records that fail their
+     * checksum end the segment they are in.
+     *
+     * @param target store each record is applied to, in the order they were appended; buffers passed to it are reused
+     *     once it returns
+     */
+    public RecoveryStats replay(long fromSegment, ReadingStore target) throws IOException {
+        long started = System.nanoTime();
+        ReadingBuffer buffer = new ReadingBuffer(MAX_READINGS_PER_RECORD);
+        CRC32 checksum = new CRC32();
+        List<Path> segments = segments(directory).stream()
+                .filter(path -> segmentNumber(path) >= fromSegment)
+                .toList();
+        long records = 0;
+        long readings = 0;
+        long bytes = 0;
+        for (Path path : segments) {
+            try (FileChannel segmentChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer data = segmentChannel
+                        .map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (data.remaining() < SEGMENT_HEADER_BYTES || data.getInt() != MAGIC) {
+                    continue;
+                }
+                while (data.remaining() >= RECORD_HEADER_BYTES) {
+                    int length = data.getInt();
+                    int expectedChecksum = data.getInt();
+                    if (length <= 0 || length > data.remaining()) {
+                        break;
+                    }
+                    ByteBuffer payload = data.slice(data.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                    checksum.reset();
+                    checksum.update(payload.duplicate());
+                    if ((int) checksum.getValue() != expectedChecksum) {
+                        break;
+                    }
+                    data.position(data.position() + length);
+                    String smartMeterId = decodeMeterId(payload);
+                    int count = payload.getInt();
+                    if (count == REMOVAL) {
+                        target.remove(smartMeterId);
+                    } else if (count == AGGREGATES) {
+                        target.addAggregates(smartMeterId, decodeAggregates(payload));
+                    } else if (count == SAMPLES) {
+                        decodeReadings(payload, payload.getInt(), buffer);
+                        target.appendSamples(smartMeterId, buffer);
+                    } else {
+                        decodeReadings(payload, count, buffer);
+                        target.append(smartMeterId, buffer);
+                    }
+                    records++;
+                    readings += buffer.size();
+                    bytes += RECORD_HEADER_BYTES + length;
+                    buffer.clear();
+                }
+            }
+        }
+        return new RecoveryStats(
+                segments.size(), records, readings, bytes, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    /**
+     * Copies the readings into the log, splitting them over several records if there are many.
+     *
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long append(String smartMeterId, ReadingBuffer readings) throws IOException {
+        return append(smartMeterId, false, readings);
+    }
+
+    /**
+     * Copies samples that are not counted in the meter's aggregates into the log, like
+     * {@link #append(String, ReadingBuffer)}.
+     *
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long appendSamples(String smartMeterId, ReadingBuffer samples) throws IOException {
+        return append(smartMeterId, true, samples);
+    }
+
+    private long append(String smartMeterId, boolean samplesOnly, ReadingBuffer readings) throws IOException {
+        byte[] meterId = meterIdBytes(smartMeterId);
+        int fixedBytes =
+                RECORD_HEADER_BYTES + Short.BYTES + meterId.length + Integer.BYTES + (samplesOnly ? Integer.BYTES : 0);
+        int perRecord =
+                Math.min(MAX_READINGS_PER_RECORD, (segmentSize - SEGMENT_HEADER_BYTES - fixedBytes) / SAMPLE_BYTES);
+        if (perRecord < 1) {
+            throw new IllegalArgumentException("Segment size too small for a record");
+        }
+        synchronized (appendLock) {
+            if (readings.isEmpty()) {
+                return written;
+            }
+            int from = 0;
+            do {
+                int count = Math.min(perRecord, readings.size() - from);
+                int recordBytes = fixedBytes + count * SAMPLE_BYTES;
+                if (segment == null || segment.remaining() < recordBytes) {
+                    roll();
+                }
+                writeRecord(meterId, samplesOnly, readings, from, count, recordBytes);
+                written += recordBytes;
+                from += count;
+            } while (from < readings.size());
+            return written;
+        }
+    }
+
+    /**
+     * Records that the meter's readings were removed, so that replaying the log drops the readings before it.
+     *
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long appendRemoval(String smartMeterId) throws IOException {
+        byte[] meterId = meterIdBytes(smartMeterId);
+        int recordBytes = RECORD_HEADER_BYTES + Short.BYTES + meterId.length + Integer.BYTES;
+        synchronized (appendLock) {
+            if (segment == null || segment.remaining() < recordBytes) {
+                roll();
+            }
+            writeRecord(meterId, false, null, 0, REMOVAL, recordBytes);
+            written += recordBytes;
+            return written;
+        }
+    }
+
+    /**
+     * Records readings counted in the meter's aggregates only, so that replaying the log counts them again.
+     *
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long appendAggregates(String smartMeterId, SeriesAggregates aggregates) throws IOException {
+        byte[] meterId = meterIdBytes(smartMeterId);
+        byte[] unscaledSum = aggregates.sum().unscaledValue().toByteArray();
+        if (unscaledSum.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Sum of readings too large");
+        }
+        int recordBytes = RECORD_HEADER_BYTES
+                + Short.BYTES
+                + meterId.length
+                + Integer.BYTES
+                + AGGREGATES_BYTES
+                + unscaledSum.length;
+        synchronized (appendLock) {
+            if (segment == null || segment.remaining() < recordBytes) {
+                roll();
+            }
+            int start = segment.position();
+            segment.position(start + RECORD_HEADER_BYTES);
+            segment.putShort((short) meterId.length);
+            segment.put(meterId);
+            segment.putInt(AGGREGATES);
+            segment.putInt(aggregates.count());
+            segment.putLong(aggregates.earliestTime());
+            segment.putLong(aggregates.latestTime());
+            segment.putInt(aggregates.sum().scale());
+            segment.putShort((short) unscaledSum.length);
+            segment.put(unscaledSum);
+            seal(start, recordBytes);
+            written += recordBytes;
+            return written;
+        }
+    }
+
+    /**
+     * Starts a new segment, so that every record appended from now on is in it or a later one.
+     *
+     * @return the number of the new segment
+     */
+    public long rollOver() throws IOException {
+        synchronized (appendLock) {
+            roll();
+            return nextSegmentNumber - 1;
+        }
+    }
+
+    /**
+     * @return the number of segments started from segment {@code segmentNumber} on, the current one included
+     */
+    public long segmentsFrom(long segmentNumber) {
+        return nextSegmentNumber - segmentNumber;
+    }
+
+    /**
+     * Deletes the segments numbered below {@code segmentNumber}, whose records must be covered by a checkpoint.
+     *
+     * @return the number of segments deleted
+     */
+    public int deleteSegmentsBefore(long segmentNumber) throws IOException {
+        int deleted = 0;
+        for (Path path : segments(directory)) {
+            if (segmentNumber(path) < segmentNumber && Files.deleteIfExists(path)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Blocks until everything appended up to {@code position} has been forced to disk.
+     */
+    public void awaitDurable(long position) throws IOException {
+        while (true) {
+            synchronized (commitLock) {
+                while (forcing && durable < position) {
+                    try {
+                        commitLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for the reading log");
+                    }
+                }
+                if (durable >= position) {
+                    return;
+                }
+                forcing = true;
+            }
+            long target = durable;
+            try {
+                MappedByteBuffer toForce;
+                synchronized (appendLock) {
+                    toForce = segment;
+                    target = written;
+                }
+                if (toForce != null) {
+                    toForce.force();
+                }
+            } finally {
+                synchronized (commitLock) {
+                    durable = Math.max(durable, target);
+                    forcing = false;
+                    commitLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (segment != null) {
+                segment.force();
+                segment = null;
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void writeRecord(
+            byte[] meterId, boolean samplesOnly, ReadingBuffer readings, int from, int count, int recordBytes) {
+        int start = segment.position();
+        segment.position(start + RECORD_HEADER_BYTES);
+        segment.putShort((short) meterId.length);
+        segment.put(meterId);
+        if (samplesOnly) {
+            segment.putInt(SAMPLES);
+        }
+        segment.putInt(count);
+        for (int i = from; i < from + Math.max(0, count); i++) {
+            segment.putLong(readings.timeAt(i));
+            segment.putLong(readings.valueAt(i));
+            segment.put((byte) readings.scaleAt(i));
+        }
+        seal(start, recordBytes);
+    }
+
+    /**
+     * Writes the checksum and then the length of the record starting at {@code start}, whose payload is written.
+     */
+    private void seal(int start, int recordBytes) {
+        int payloadBytes = recordBytes - RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(segment.slice(start + RECORD_HEADER_BYTES, payloadBytes));
+        segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(start, payloadBytes);
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+            channel.close();
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        channel = FileChannel.open(
+                path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC);
+    }
+
+    private static byte[] meterIdBytes(String smartMeterId) {
+        byte[] meterId = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        if (meterId.length > 0xFFFF) {
+            throw new IllegalArgumentException("Smart meter id too long");
+        }
+        return meterId;
+    }
+
+    private static String decodeMeterId(ByteBuffer payload) {
+        byte[] meterId = new byte[Short.toUnsignedInt(payload.getShort())];
+        payload.get(meterId);
+        return new String(meterId, StandardCharsets.UTF_8);
+    }
+
+    private static void decodeReadings(ByteBuffer payload, int count, ReadingBuffer buffer) {
+        for (int i = 0; i < count; i++) {
+            buffer.add(payload.getLong(), payload.getLong(), payload.get());
+        }
+    }
+
+    private static SeriesAggregates decodeAggregates(ByteBuffer payload) {
+        int count = payload.getInt();
+        long earliestTime = payload.getLong();
+        long latestTime = payload.getLong();
+        int scale = payload.getInt();
+        byte[] unscaledSum = new byte[payload.getShort()];
+        payload.get(unscaledSum);
+        return new SeriesAggregates(
+                count, new BigDecimal(new BigInteger(unscaledSum), scale), earliestTime, latestTime);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @param bytes bytes of valid records read
+     */
+    public record RecoveryStats(long segments, long records, long readings, long bytes, Duration elapsed) {
+
+        public double readingsPerSecond() {
+            return elapsed.isZero() ? 0 : readings / (elapsed.toNanos() / 1e9);
+        }
+    }
+}
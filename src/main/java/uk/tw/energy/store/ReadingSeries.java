@@ -0,0 +1,77 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Read-only view over the readings of one smart meter, in time order.
+ *
+ * <p>Times are epoch nanoseconds and readings are fixed-point values, an unscaled {@code long} plus its decimal scale,
+ * so that callers can walk a series without allocating an {@link ElectricityReading} per sample.
+ */
+public interface ReadingSeries {
+
+    int size();
+
+    long timeAt(int index);
+
+    long valueAt(int index);
+
+    int scaleAt(int index);
+
+    /**
+     * @return a number that changes every time readings are stored for the meter
+     */
+    long version();
+
+    SeriesAggregates aggregates();
+
+    default ReadingCursor cursor() {
+        return cursor(0);
+    }
+
+    /**
+     * @return a cursor positioned just before the sample at {@code fromIndex}
+     */
+    ReadingCursor cursor(int fromIndex);
+
+    /**
+     * Binary searches the series.
+     *
+     * @return the index of the first sample taken at or after {@code time}, or {@link #size()} if there is none
+     */
+    default int lowerBound(long time) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timeAt(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    default Instant instantAt(int index) {
+        return EpochNanos.toInstant(timeAt(index));
+    }
+
+    default BigDecimal readingAt(int index) {
+        return BigDecimal.valueOf(valueAt(index), scaleAt(index));
+    }
+
+    /**
+     * @return a list view materialising {@link ElectricityReading}s lazily as they are accessed
+     */
+    default List<ElectricityReading> asList() {
+        return asList(0, size());
+    }
+
+    default List<ElectricityReading> asList(int fromIndex, int toIndex) {
+        return new ReadingSeriesList(this, fromIndex, toIndex);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.tw.energy.store;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * List of {@link ElectricityReading}s backed by a {@link ReadingSeries}, creating each record only when it is read.
+ * Serialisers can skip the records altogether by walking {@link #series()} from {@link #fromIndex()}.
+ */
+public final class ReadingSeriesList extends AbstractList<ElectricityReading> {
+
+    private final ReadingSeries series;
+    private final int fromIndex;
+    private final int size;
+
+    ReadingSeriesList(ReadingSeries series, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > series.size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("[" + fromIndex + ", " + toIndex + ") of " + series.size());
+        }
+        this.series = series;
+        this.fromIndex = fromIndex;
+        this.size = toIndex - fromIndex;
+    }
+
+    public ReadingSeries series() {
+        return series;
+    }
+
+    public int fromIndex() {
+        return fromIndex;
+    }
+
+    @Override
+    public ElectricityReading get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new ElectricityReading(series.instantAt(fromIndex + index), series.readingAt(fromIndex + index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<ElectricityReading> iterator() {
+        ReadingCursor cursor = series.cursor(fromIndex);
+        return new Iterator<>() {
+            private int remaining = size;
+            private boolean advanced;
+            private boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (!advanced) {
+                    hasNext = remaining > 0 && cursor.next();
+                    if (hasNext) {
+                        remaining--;
+                    }
+                    advanced = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public ElectricityReading next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                advanced = false;
+                return new ElectricityReading(
+                        EpochNanos.toInstant(cursor.time()), FixedPoint.toBigDecimal(cursor.value(), cursor.scale()));
+            }
+        };
+    }
+}
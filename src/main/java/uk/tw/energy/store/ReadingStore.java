@@ -0,0 +1,67 @@
+package uk.tw.energy.store;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Storage engine holding the electricity readings of each smart meter as a series kept in time order.
+ */
+public interface ReadingStore {
+
+    default int append(String smartMeterId, List<ElectricityReading> electricityReadings) {
+        return append(smartMeterId, ReadingBuffer.of(electricityReadings));
+    }
+
+    /**
+     * Adds the buffered readings to the meter's time-ordered series. The store copies them, possibly after sorting
+     * the buffer by time, so the caller can reuse the buffer. Readings at a time the meter already has a reading at
+     * may be dropped as duplicates.
+     *
+     * @return the number of readings held for the meter afterwards
+     */
+    int append(String smartMeterId, ReadingBuffer readings);
+
+    /**
+     * Adds samples like {@link #append(String, ReadingBuffer)} but without counting them in the meter's aggregates,
+     * such as the possibly rolled up samples of a meter handed over by another instance. The readings they stand for
+     * are counted with {@link #addAggregates}, so costs calculated from the aggregates stay the same.
+     *
+     * @return the number of readings held for the meter afterwards
+     */
+    int appendSamples(String smartMeterId, ReadingBuffer samples);
+
+    /**
+     * Counts readings in the meter's aggregates without adding samples of them.
+     */
+    void addAggregates(String smartMeterId, SeriesAggregates aggregates);
+
+    Optional<ReadingSeries> getSeries(String smartMeterId);
+
+    /**
+     * @return a live, unmodifiable view of the ids of meters with readings
+     */
+    Set<String> smartMeterIds();
+
+    /**
+     * Drops the meter's readings, such as when another instance takes the meter over.
+     *
+     * @return whether the meter had readings
+     */
+    boolean remove(String smartMeterId);
+
+    /**
+     * @return the memory taken by the stored samples, if the store keeps track of it
+     */
+    default Optional<StorageStats> storageStats() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return counts of the duplicate and late readings given to the store, if it keeps track of them
+     */
+    default Optional<IngestStats> ingestStats() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,89 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Rolls samples up into one sample per bucket of their {@link RollupPolicy} tier.
+ *
+ * <p>Each sample is taken to last until the next one, as when costing a series. A bucket's sample is timed at its
+ * first sample and holds the time-weighted mean of the samples in it, so it lasts as long as they did together and
+ * stands for the same energy, up to rounding. Rolling up samples that were already rolled up at a finer resolution
+ * therefore gives the same result as rolling up the original readings.
+ */
+final class Rollup {
+
+    private static final int MIN_SCALE = 6;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private Rollup() {}
+
+    /**
+     * @param samples samples in time order
+     * @param endTime time the last sample lasts until
+     * @param latestTime time of the meter's latest reading, which the tiers' ages are measured back from
+     * @return a chunk of exactly the rolled up samples
+     */
+    static ReadingChunk rollUp(ReadingChunk samples, long endTime, long latestTime, RollupPolicy policy) {
+        int size = samples.size();
+        ReadingChunk rolled = new ReadingChunk(size);
+        int start = 0;
+        while (start < size) {
+            int tier = Math.max(0, policy.tierOf(samples.times[start], latestTime));
+            long bucket = Math.floorDiv(samples.times[start], policy.resolution(tier));
+            int end = start + 1;
+            while (end < size
+                    && Math.max(0, policy.tierOf(samples.times[end], latestTime)) == tier
+                    && Math.floorDiv(samples.times[end], policy.resolution(tier)) == bucket) {
+                end++;
+            }
+            if (end - start == 1) {
+                rolled.append(samples.times[start], samples.values[start], samples.scales[start]);
+            } else {
+                BigDecimal mean =
+                        FixedPoint.normalise(mean(samples, start, end, end < size ? samples.times[end] : endTime));
+                rolled.append(samples.times[start], FixedPoint.unscaled(mean), mean.scale());
+            }
+            start = end;
+        }
+        return rolled.size() == size ? rolled : rolled.trim();
+    }
+
+    /**
+     * @return a chunk of the samples of both chunks, in time order; samples with equal times keep {@code first}'s
+     *     before {@code second}'s
+     */
+    static ReadingChunk merge(ReadingChunk first, ReadingChunk second) {
+        ReadingChunk merged = new ReadingChunk(first.size() + second.size());
+        int f = 0;
+        int s = 0;
+        while (f < first.size() || s < second.size()) {
+            if (s == second.size() || (f < first.size() && first.times[f] <= second.times[s])) {
+                merged.append(first.times[f], first.values[f], first.scales[f]);
+                f++;
+            } else {
+                merged.append(second.times[s], second.values[s], second.scales[s]);
+                s++;
+            }
+        }
+        return merged;
+    }
+
+    private static BigDecimal mean(ReadingChunk samples, int start, int end, long endTime) {
+        DecimalSum weighted = new DecimalSum();
+        DecimalSum plain = new DecimalSum();
+        long totalMillis = 0;
+        int scale = MIN_SCALE;
+        for (int i = start; i < end; i++) {
+            long next = i + 1 < end ? samples.times[i + 1] : endTime;
+            long millis = (next - samples.times[i]) / NANOS_PER_MILLI;
+            weighted.addProduct(samples.values[i], millis, samples.scales[i]);
+            plain.add(samples.values[i], samples.scales[i]);
+            totalMillis += millis;
+            scale = Math.max(scale, samples.scales[i]);
+        }
+        return totalMillis > 0
+                ? weighted.toBigDecimal().divide(BigDecimal.valueOf(totalMillis), scale, RoundingMode.HALF_UP)
+                : plain.toBigDecimal().divide(BigDecimal.valueOf(end - start), scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,114 @@
+package uk.tw.energy.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ages after which a meter's readings are kept at a coarser resolution. Readings younger than the first tier's age,
+ * measured back from the meter's latest reading, are kept as they arrived; older ones are rolled up to the resolution
+ * of the oldest tier they have reached.
+ */
+public final class RollupPolicy {
+
+    public static final RollupPolicy NONE = new RollupPolicy(List.of());
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([smhd])");
+
+    private final List<Tier> tiers;
+    private final long[] ages;
+    private final long[] resolutions;
+
+    /**
+     * @param tiers in order of increasing age and resolution
+     */
+    public RollupPolicy(List<Tier> tiers) {
+        this.tiers = List.copyOf(tiers);
+        this.ages = new long[tiers.size()];
+        this.resolutions = new long[tiers.size()];
+        for (int tier = 0; tier < tiers.size(); tier++) {
+            ages[tier] = tiers.get(tier).age().toNanos();
+            resolutions[tier] = tiers.get(tier).resolution().toNanos();
+            if (ages[tier] <= 0 || resolutions[tier] <= 0) {
+                throw new IllegalArgumentException("Rollup ages and resolutions must be positive");
+            }
+            if (tier > 0 && (ages[tier] <= ages[tier - 1] || resolutions[tier] <= resolutions[tier - 1])) {
+                throw new IllegalArgumentException("Rollup tiers must increase in age and resolution");
+            }
+        }
+    }
+
+    /**
+     * Parses tiers written as {@code age:resolution} pairs separated by commas, such as {@code 7d:15m,90d:1h}.
+     * Durations are a whole number of seconds, minutes, hours or days.
+     *
+     * @param tiers the tiers, or a blank string for none
+     */
+    public static RollupPolicy parse(String tiers) {
+        if (tiers == null || tiers.isBlank()) {
+            return NONE;
+        }
+        List<Tier> parsed = new ArrayList<>();
+        for (String tier : tiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rollup tier must be age:resolution: " + tier);
+            }
+            parsed.add(new Tier(parseDuration(parts[0]), parseDuration(parts[1])));
+        }
+        return new RollupPolicy(parsed);
+    }
+
+    public List<Tier> tiers() {
+        return tiers;
+    }
+
+    boolean isEmpty() {
+        return ages.length == 0;
+    }
+
+    /**
+     * @return age in nanoseconds after which readings stop being kept as they arrived
+     */
+    long rawAge() {
+        return ages[0];
+    }
+
+    /**
+     * @return the oldest tier reached by a reading at {@code time}, or {@code -1} if it is younger than every tier
+     */
+    int tierOf(long time, long latestTime) {
+        long age = latestTime - time;
+        int tier = -1;
+        while (tier + 1 < ages.length && age > ages[tier + 1]) {
+            tier++;
+        }
+        return tier;
+    }
+
+    long resolution(int tier) {
+        return resolutions[tier];
+    }
+
+    private static Duration parseDuration(String text) {
+        Matcher matcher = DURATION.matcher(text.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unrecognised rollup duration: " + text);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+    }
+
+    /**
+     * @param age how long after the latest reading the tier starts
+     * @param resolution length of the buckets readings are rolled up into
+     */
+    public record Tier(Duration age, Duration resolution) {}
+}
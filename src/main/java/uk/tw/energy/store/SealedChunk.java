@@ -0,0 +1,296 @@
+package uk.tw.energy.store;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, compressed copy of a full {@link ReadingChunk}, in the style of Gorilla.
+ *
+ * <p>Samples after the first are written to a bit stream. Each time is stored as its delta-of-delta, the change in the
+ * gap since the previous sample, which is zero for readings taken at a fixed interval:
+ *
+ * <pre>
+ * 0                     same gap as before
+ * 10   + 20 bits        zigzag delta-of-delta (up to about half a millisecond)
+ * 110  + 36 bits        zigzag delta-of-delta (up to about half a minute)
+ * 111  + 64 bits        delta-of-delta
+ * </pre>
+ *
+ * Each value with the same scale as the previous one is stored as the zigzag difference of the unscaled values:
+ *
+ * <pre>
+ * 0                     unchanged
+ * 10    + 8 bits        110   + 16 bits        1110  + 32 bits        11110 + 64 bits
+ * 11111 + 8 bits scale + 64 bits unscaled value, when the scale changes
+ * </pre>
+ *
+ * A regular series of slowly changing readings takes a bit for each time and around a byte for each value, against
+ * 17 bytes for a sample in a {@link ReadingChunk}.
+ */
+final class SealedChunk {
+
+    private final long[] words;
+    private final int size;
+    private final long firstTime;
+    private final long lastTime;
+    private final long firstValue;
+    private final byte firstScale;
+
+    private SealedChunk(long[] words, int size, long firstTime, long lastTime, long firstValue, byte firstScale) {
+        this.words = words;
+        this.size = size;
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.firstValue = firstValue;
+        this.firstScale = firstScale;
+    }
+
+    static SealedChunk seal(ReadingChunk chunk) {
+        int size = chunk.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("Cannot seal an empty chunk");
+        }
+        BitWriter writer = new BitWriter(size);
+        long previousTime = chunk.times[0];
+        long previousDelta = 0;
+        long previousValue = chunk.values[0];
+        byte previousScale = chunk.scales[0];
+        for (int i = 1; i < size; i++) {
+            long delta = chunk.times[i] - previousTime;
+            writeTime(writer, zigzag(delta - previousDelta));
+            previousTime = chunk.times[i];
+            previousDelta = delta;
+            if (chunk.scales[i] == previousScale) {
+                writeValue(writer, zigzag(chunk.values[i] - previousValue));
+            } else {
+                writer.write(0b11111, 5);
+                writer.write(chunk.scales[i] & 0xFF, 8);
+                writer.write(chunk.values[i], 64);
+                previousScale = chunk.scales[i];
+            }
+            previousValue = chunk.values[i];
+        }
+        return new SealedChunk(
+                writer.toWords(), size, chunk.times[0], chunk.times[size - 1], chunk.values[0], chunk.scales[0]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long firstTime() {
+        return firstTime;
+    }
+
+    long lastTime() {
+        return lastTime;
+    }
+
+    /**
+     * @return bytes taken by the encoded samples, including the fields kept outside the bit stream
+     */
+    long encodedBytes() {
+        return (long) words.length * Long.BYTES + 4 * Long.BYTES + Integer.BYTES + 1;
+    }
+
+    Decoder decoder() {
+        return new Decoder();
+    }
+
+    /**
+     * @return an uncompressed copy, with room for a full chunk
+     */
+    ReadingChunk decode() {
+        ReadingChunk chunk = new ReadingChunk(MeterSeries.CHUNK_CAPACITY);
+        Decoder decoder = decoder();
+        while (decoder.next()) {
+            chunk.append(decoder.time(), decoder.value(), decoder.scale());
+        }
+        return chunk;
+    }
+
+    private static void writeTime(BitWriter writer, long zigzag) {
+        if (zigzag == 0) {
+            writer.write(0, 1);
+        } else if (zigzag >>> 20 == 0) {
+            writer.write(0b10, 2);
+            writer.write(zigzag, 20);
+        } else if (zigzag >>> 36 == 0) {
+            writer.write(0b110, 3);
+            writer.write(zigzag, 36);
+        } else {
+            writer.write(0b111, 3);
+            writer.write(zigzag, 64);
+        }
+    }
+
+    private static void writeValue(BitWriter writer, long zigzag) {
+        if (zigzag == 0) {
+            writer.write(0, 1);
+        } else if (zigzag >>> 8 == 0) {
+            writer.write(0b10, 2);
+            writer.write(zigzag, 8);
+        } else if (zigzag >>> 16 == 0) {
+            writer.write(0b110, 3);
+            writer.write(zigzag, 16);
+        } else if (zigzag >>> 32 == 0) {
+            writer.write(0b1110, 4);
+            writer.write(zigzag, 32);
+        } else {
+            writer.write(0b11110, 5);
+            writer.write(zigzag, 64);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long zigzag) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Streams the samples of the chunk in order, decoding each as the decoder moves onto it.
+     */
+    final class Decoder implements ReadingCursor {
+
+        private final long[] words = SealedChunk.this.words;
+        private int index = -1;
+        private long position;
+        private long time;
+        private long delta;
+        private long value;
+        private int scale;
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            if (index == 0) {
+                time = firstTime;
+                value = firstValue;
+                scale = firstScale;
+                return true;
+            }
+            delta += unzigzag(readTime());
+            time += delta;
+            int prefix = leadingOnes(5);
+            if (prefix == 5) {
+                scale = (byte) read(8);
+                value = read(64);
+            } else {
+                value += unzigzag(readValue(prefix));
+            }
+            return true;
+        }
+
+        /**
+         * Moves past the next {@code count} samples.
+         */
+        void skip(int count) {
+            int skipped = 0;
+            while (skipped < count && next()) {
+                skipped++;
+            }
+        }
+
+        @Override
+        public long time() {
+            return time;
+        }
+
+        @Override
+        public long value() {
+            return value;
+        }
+
+        @Override
+        public int scale() {
+            return scale;
+        }
+
+        private long readTime() {
+            int prefix = leadingOnes(3);
+            return switch (prefix) {
+                case 0 -> 0;
+                case 1 -> read(20);
+                case 2 -> read(36);
+                default -> read(64);
+            };
+        }
+
+        /**
+         * @return the number of one bits before the next zero bit, reading at most {@code max} bits
+         */
+        private int leadingOnes(int max) {
+            int ones = Math.min(max, Long.numberOfLeadingZeros(~peek()));
+            position += ones < max ? ones + 1 : max;
+            return ones;
+        }
+
+        private long readValue(int prefix) {
+            return switch (prefix) {
+                case 0 -> 0;
+                case 1 -> read(8);
+                case 2 -> read(16);
+                case 3 -> read(32);
+                default -> read(64);
+            };
+        }
+
+        private long read(int bits) {
+            long result = peek();
+            position += bits;
+            return bits == 64 ? result : result >>> (64 - bits);
+        }
+
+        /**
+         * @return the next 64 bits of the stream, padded with zeros past its end
+         */
+        private long peek() {
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            long window = words[word] << offset;
+            if (offset > 0 && word + 1 < words.length) {
+                window |= words[word + 1] >>> (64 - offset);
+            }
+            return window;
+        }
+    }
+
+    /**
+     * Appends bit fields, most significant bit first, to a growing array of words.
+     */
+    private static final class BitWriter {
+
+        private long[] words;
+        private long position;
+
+        private BitWriter(int samples) {
+            this.words = new long[Math.max(1, samples / 16)];
+        }
+
+        void write(long value, int bits) {
+            long field = bits == 64 ? value : value & ((1L << bits) - 1);
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            if (word + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2 + 2);
+            }
+            int free = 64 - offset;
+            if (bits <= free) {
+                words[word] |= field << (free - bits);
+            } else {
+                words[word] |= field >>> (bits - free);
+                words[word + 1] |= field << (64 - (bits - free));
+            }
+            position += bits;
+        }
+
+        long[] toWords() {
+            return Arrays.copyOf(words, (int) ((position + 63) >>> 6));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals of a series, maintained as readings are appended so they never need a pass over the samples.
+ *
+ * @param count number of readings
+ * @param sum sum of all readings, with the scale {@link BigDecimal} addition would give it
+ * @param earliestTime epoch nanoseconds of the earliest reading
+ * @param latestTime epoch nanoseconds of the latest reading
+ */
+public record SeriesAggregates(int count, BigDecimal sum, long earliestTime, long latestTime) {
+
+    static final SeriesAggregates EMPTY = new SeriesAggregates(0, BigDecimal.ZERO, Long.MAX_VALUE, Long.MIN_VALUE);
+}
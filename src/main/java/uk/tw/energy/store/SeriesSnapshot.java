@@ -0,0 +1,221 @@
+package uk.tw.energy.store;
+
+import static uk.tw.energy.store.MeterSeries.CHUNK_MASK;
+import static uk.tw.energy.store.MeterSeries.CHUNK_SHIFT;
+
+import java.util.NoSuchElementException;
+
+/**
+ * The rolled up samples of a {@link MeterSeries} followed by its first {@code rawSize} raw samples, held in sealed
+ * chunks and an open tail chunk, at the time the snapshot was taken.
+ *
+ * <p>Cursors decode sealed chunks as they stream through them. Access by index decodes the whole chunk, and keeps the
+ * last chunk decoded so that neighbouring samples do not decode it again.
+ */
+final class SeriesSnapshot implements ReadingSeries {
+
+    private final ReadingChunk rolled;
+    private final int rolledSize;
+    private final SealedChunk[] sealed;
+    private final int sealedCount;
+    private final ReadingChunk tail;
+    private final int size;
+    private final SeriesAggregates aggregates;
+    private final long version;
+    private volatile DecodedChunk decoded;
+
+    SeriesSnapshot(
+            ReadingChunk rolled,
+            SealedChunk[] sealed,
+            int sealedCount,
+            ReadingChunk tail,
+            int rawSize,
+            SeriesAggregates aggregates,
+            long version) {
+        this.rolled = rolled;
+        this.rolledSize = rolled.size();
+        this.sealed = sealed;
+        this.sealedCount = sealedCount;
+        this.tail = tail;
+        this.size = rolledSize + rawSize;
+        this.aggregates = aggregates;
+        this.version = version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long timeAt(int index) {
+        return chunkOf(index).times[offsetOf(index)];
+    }
+
+    @Override
+    public long valueAt(int index) {
+        return chunkOf(index).values[offsetOf(index)];
+    }
+
+    @Override
+    public int scaleAt(int index) {
+        return chunkOf(index).scales[offsetOf(index)];
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public SeriesAggregates aggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public ReadingCursor cursor(int fromIndex) {
+        if (fromIndex < 0 || fromIndex > size) {
+            throw new IndexOutOfBoundsException(fromIndex);
+        }
+        return new Cursor(fromIndex - 1);
+    }
+
+    /**
+     * Searches the chunks by their first and last times, then decodes only the chunk holding the answer.
+     */
+    @Override
+    public int lowerBound(long time) {
+        if (rolledSize > 0 && rolled.times[rolledSize - 1] >= time) {
+            return rolled.lowerBound(time);
+        }
+        int low = 0;
+        int high = sealedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sealed[middle].lastTime() < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int chunkStart = rolledSize + (low << CHUNK_SHIFT);
+        if (low < sealedCount) {
+            return chunkStart + decoded(low).lowerBound(time);
+        }
+        return tail == null ? chunkStart : chunkStart + tail.lowerBound(time, size - chunkStart);
+    }
+
+    /**
+     * @return the number of samples held at rolled-up resolution, which come before the raw ones
+     */
+    int rolledSize() {
+        return rolledSize;
+    }
+
+    /**
+     * @return the number of samples held in sealed chunks
+     */
+    int sealedSamples() {
+        return sealedCount << CHUNK_SHIFT;
+    }
+
+    long sealedBytes() {
+        long bytes = 0;
+        for (int chunk = 0; chunk < sealedCount; chunk++) {
+            bytes += sealed[chunk].encodedBytes();
+        }
+        return bytes;
+    }
+
+    private ReadingChunk chunkOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index < rolledSize) {
+            return rolled;
+        }
+        int chunk = (index - rolledSize) >>> CHUNK_SHIFT;
+        return chunk < sealedCount ? decoded(chunk) : tail;
+    }
+
+    private int offsetOf(int index) {
+        return index < rolledSize ? index : (index - rolledSize) & CHUNK_MASK;
+    }
+
+    private ReadingChunk decoded(int chunk) {
+        DecodedChunk last = decoded;
+        if (last == null || last.chunk() != chunk) {
+            last = new DecodedChunk(chunk, sealed[chunk].decode());
+            decoded = last;
+        }
+        return last.samples();
+    }
+
+    private record DecodedChunk(int chunk, ReadingChunk samples) {}
+
+    private final class Cursor implements ReadingCursor {
+
+        private int index;
+        private int chunk = -1;
+        private ReadingChunk samples;
+        private SealedChunk.Decoder decoder;
+        private int offset;
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            if (index < rolledSize) {
+                samples = rolled;
+                offset = index;
+                return true;
+            }
+            int raw = index - rolledSize;
+            if (raw >>> CHUNK_SHIFT != chunk) {
+                chunk = raw >>> CHUNK_SHIFT;
+                if (chunk < sealedCount) {
+                    decoder = sealed[chunk].decoder();
+                    decoder.skip(raw & CHUNK_MASK);
+                    samples = null;
+                } else {
+                    decoder = null;
+                    samples = tail;
+                }
+            }
+            if (decoder != null) {
+                decoder.next();
+            } else {
+                offset = raw & CHUNK_MASK;
+            }
+            return true;
+        }
+
+        @Override
+        public long time() {
+            return decoder != null ? decoder.time() : current().times[offset];
+        }
+
+        @Override
+        public long value() {
+            return decoder != null ? decoder.value() : current().values[offset];
+        }
+
+        @Override
+        public int scale() {
+            return decoder != null ? decoder.scale() : current().scales[offset];
+        }
+
+        private ReadingChunk current() {
+            if (samples == null) {
+                throw new NoSuchElementException();
+            }
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uk.tw.energy.store;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+
+/**
+ * Interns each smart meter id to a dense number, {@code 0} upwards, so that the reading store and the accounts can
+ * keep per-meter state in {@link PagedArray}s instead of maps of their own keyed by the id. Numbers are never reused,
+ * even once a meter's readings are removed.
+ */
+public final class SmartMeterRegistry {
+
+    public static final int UNKNOWN = -1;
+
+    private final ConcurrentHashMap<String, Integer> numbers = new ConcurrentHashMap<>();
+    private final PagedArray<String> smartMeterIds = new PagedArray<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @return the meter's number, assigning the next one if the meter is new
+     */
+    public int register(String smartMeterId) {
+        Integer number = numbers.get(smartMeterId);
+        if (number == null) {
+            number = numbers.computeIfAbsent(smartMeterId, id -> {
+                int next = size.getAndIncrement();
+                smartMeterIds.set(next, id);
+                return next;
+            });
+        }
+        return number;
+    }
+
+    /**
+     * @return the meter's number, or {@link #UNKNOWN} if it was never registered
+     */
+    public int numberOf(String smartMeterId) {
+        Integer number = numbers.get(smartMeterId);
+        return number == null ? UNKNOWN : number;
+    }
+
+    public String smartMeterId(int number) {
+        return smartMeterIds.get(number);
+    }
+
+    /**
+     * @return the number of meters registered; the id of one being registered right now may not be readable yet
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return a live, unmodifiable view of the ids of the meters whose numbers {@code present} accepts, of which there
+     *     are {@code count}
+     */
+    public Set<String> smartMeterIds(IntPredicate present, IntSupplier count) {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return count.getAsInt();
+            }
+
+            @Override
+            public boolean contains(Object smartMeterId) {
+                if (!(smartMeterId instanceof String id)) {
+                    return false;
+                }
+                int number = numberOf(id);
+                return number != UNKNOWN && present.test(number);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private final int end = SmartMeterRegistry.this.size();
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int number = from;
+                        while (number < end && !present.test(number)) {
+                            number++;
+                        }
+                        return number;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < end;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= end) {
+                            throw new NoSuchElementException();
+                        }
+                        String smartMeterId = smartMeterIds.get(next);
+                        next = advance(next + 1);
+                        return smartMeterId;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package uk.tw.energy.store;
+
+/**
+ * Memory taken by the samples of a {@link ReadingStore}.
+ *
+ * @param samples samples held, including rolled up ones
+ * @param sealedSamples samples held compressed in sealed chunks
+ * @param bytes bytes taken by the samples, sealed and open
+ * @param uncompressedBytes bytes the samples would take if none were sealed
+ * @param compressionRatio {@code uncompressedBytes} divided by {@code bytes}
+ */
+public record StorageStats(
+        long meters, long samples, long sealedSamples, long bytes, long uncompressedBytes, double compressionRatio) {
+
+    static final int OPEN_SAMPLE_BYTES = Long.BYTES + Long.BYTES + Byte.BYTES;
+
+    static StorageStats of(long meters, long samples, long sealedSamples, long sealedBytes) {
+        long bytes = sealedBytes + (samples - sealedSamples) * OPEN_SAMPLE_BYTES;
+        long uncompressedBytes = samples * OPEN_SAMPLE_BYTES;
+        return new StorageStats(
+                meters,
+                samples,
+                sealedSamples,
+                bytes,
+                uncompressedBytes,
+                bytes == 0 ? 1 : (double) uncompressedBytes / bytes);
+    }
+}
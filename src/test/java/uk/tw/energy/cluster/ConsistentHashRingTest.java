@@ -0,0 +1,64 @@
+package uk.tw.energy.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int METERS = 30_000;
+    private static final List<String> THREE_NODES =
+            List.of("http://node-a:8080", "http://node-b:8080", "http://node-c:8080");
+
+    @Test
+    public void givenNodesInAnyOrderShouldAssignMetersTheSameWay() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE_NODES, 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(THREE_NODES.reversed(), 128);
+
+        for (int meter = 0; meter < METERS; meter++) {
+            assertThat(reordered.ownerOf("smart-meter-" + meter)).isEqualTo(ring.ownerOf("smart-meter-" + meter));
+        }
+    }
+
+    @Test
+    public void givenThreeNodesShouldGiveEachAboutAThirdOfTheMeters() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE_NODES, 128);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int meter = 0; meter < METERS; meter++) {
+            owned.merge(ring.ownerOf("smart-meter-" + meter), 1, Integer::sum);
+        }
+
+        assertThat(owned).containsOnlyKeys(THREE_NODES);
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(METERS / 4, METERS * 5 / 12));
+    }
+
+    @Test
+    public void givenAddedNodeShouldOnlyMoveMetersToTheNewNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE_NODES, 128);
+        String added = "http://node-d:8080";
+        ConsistentHashRing grown =
+                new ConsistentHashRing(List.of(THREE_NODES.get(0), THREE_NODES.get(1), THREE_NODES.get(2), added), 128);
+
+        int moved = 0;
+        for (int meter = 0; meter < METERS; meter++) {
+            String before = ring.ownerOf("smart-meter-" + meter);
+            String after = grown.ownerOf("smart-meter-" + meter);
+            if (!after.equals(before)) {
+                assertThat(after).isEqualTo(added);
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(METERS / 6, METERS / 3);
+    }
+
+    @Test
+    public void givenNoNodesShouldThrow() {
+        assertThatThrownBy(() -> new ConsistentHashRing(List.of(), 128)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,112 @@
+package uk.tw.energy.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import uk.tw.energy.domain.Account;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+
+public class AccountControllerTest {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+
+    private AccountService accountService;
+    private AccountController accountController;
+
+    @BeforeEach
+    public void setUp() {
+        accountService = new AccountService(Map.of(SMART_METER_ID, "price-plan-0"));
+        List<PricePlan> pricePlans = List.of(
+                new PricePlan("price-plan-0", null, BigDecimal.TEN, List.of()),
+                new PricePlan("price-plan-1", null, BigDecimal.ONE, List.of()));
+        accountController = new AccountController(accountService, pricePlans, new ObjectMapper());
+    }
+
+    @Test
+    public void givenKnownMeterShouldReturnItsAccount() {
+        ResponseEntity<Account> response = accountController.getAccount(SMART_METER_ID);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(new Account(SMART_METER_ID, "price-plan-0"));
+    }
+
+    @Test
+    public void givenUnknownMeterShouldReturnNotFound() {
+        assertThat(accountController.getAccount("unknown").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void givenAccountsShouldOpenNewOnesUpdateExistingOnesAndRejectUnknownPlans() throws IOException {
+        ResponseEntity<Map<String, Object>> response = accountController.importAccounts(
+                json(
+                        """
+                [
+                  {"smartMeterId": "smart-meter-0", "pricePlanId": "price-plan-1"},
+                  {"smartMeterId": "smart-meter-9", "pricePlanId": "price-plan-0"},
+                  {"smartMeterId": "smart-meter-8", "pricePlanId": "no-such-plan"},
+                  {"pricePlanId": "price-plan-0"}
+                ]
+                """));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isEqualTo(Map.of(
+                        AccountController.OPENED_KEY, 1,
+                        AccountController.UPDATED_KEY, 1,
+                        AccountController.REJECTED_KEY, 2));
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo("price-plan-1");
+        assertThat(accountService.getPricePlanIdForSmartMeterId("smart-meter-9"))
+                .isEqualTo("price-plan-0");
+        assertThat(accountService.getPricePlanIdForSmartMeterId("smart-meter-8"))
+                .isNull();
+    }
+
+    @Test
+    public void givenAccountWithoutPricePlanShouldRejectItAndCarryOnImporting() throws IOException {
+        ResponseEntity<Map<String, Object>> response = accountController.importAccounts(
+                json(
+                        """
+                [
+                  {"smartMeterId": "smart-meter-7"},
+                  {"smartMeterId": "smart-meter-8", "pricePlanId": null},
+                  {"smartMeterId": "smart-meter-9", "pricePlanId": "price-plan-0"}
+                ]
+                """));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isEqualTo(Map.of(
+                        AccountController.OPENED_KEY, 1,
+                        AccountController.UPDATED_KEY, 0,
+                        AccountController.REJECTED_KEY, 2));
+        assertThat(accountService.getPricePlanIdForSmartMeterId("smart-meter-7"))
+                .isNull();
+    }
+
+    @Test
+    public void givenMalformedAccountsShouldReturnBadRequestAfterImportingThoseBeforeTheError() throws IOException {
+        ResponseEntity<Map<String, Object>> response = accountController.importAccounts(
+                json("[{\"smartMeterId\": \"smart-meter-9\", \"pricePlanId\": \"price-plan-1\"}, {\"smartMeterId\": "));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).containsEntry(AccountController.OPENED_KEY, 1);
+        assertThat(accountService.getPricePlanIdForSmartMeterId("smart-meter-9"))
+                .isEqualTo("price-plan-1");
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package uk.tw.energy.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.FleetRecommendationJob;
+import uk.tw.energy.service.FleetRecommendationService;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.PricePlanService;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class FleetRecommendationControllerTest {
+
+    private FleetRecommendationService fleetRecommendationService;
+    private FleetRecommendationController controller;
+
+    @BeforeEach
+    public void setUp() {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        for (String smartMeterId : List.of("smart-meter-0", "smart-meter-1")) {
+            meterReadingService.storeReadings(
+                    smartMeterId,
+                    List.of(
+                            new ElectricityReading(Instant.parse("2024-04-26T00:00:00Z"), BigDecimal.ONE),
+                            new ElectricityReading(Instant.parse("2024-04-26T01:00:00Z"), BigDecimal.ONE)));
+        }
+        List<PricePlan> pricePlans = List.of(
+                new PricePlan("price-plan-0", null, BigDecimal.TEN, List.of()),
+                new PricePlan("price-plan-1", null, BigDecimal.ONE, List.of()));
+        fleetRecommendationService = new FleetRecommendationService(
+                meterReadingService,
+                new AccountService(Map.of("smart-meter-0", "price-plan-0")),
+                new PricePlanService(pricePlans, meterReadingService),
+                2);
+        controller = new FleetRecommendationController(fleetRecommendationService, new ObjectMapper());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fleetRecommendationService.shutdown();
+    }
+
+    @Test
+    public void givenFleetShouldStreamOneRecommendationPerLine() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = controller.recommendAll(1);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body.toString(StandardCharsets.UTF_8).lines().sorted())
+                .containsExactly(
+                        "{\"smartMeterId\":\"smart-meter-0\",\"pricePlanId\":\"price-plan-0\","
+                                + "\"recommendations\":[{\"price-plan-1\":1}]}",
+                        "{\"smartMeterId\":\"smart-meter-1\",\"pricePlanId\":null,"
+                                + "\"recommendations\":[{\"price-plan-1\":1}]}");
+        assertThat(body.toString(StandardCharsets.UTF_8)).endsWith("\n");
+
+        long jobId = Long.parseLong(response.getHeaders().getFirst(FleetRecommendationController.JOB_ID_HEADER));
+        FleetRecommendationJob.Progress progress =
+                controller.recommendAllProgress(jobId).getBody();
+        assertThat(progress.state()).isEqualTo(FleetRecommendationJob.State.COMPLETED);
+        assertThat(progress.recommended()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenNegativeLimitShouldReturnBadRequest() {
+        assertThat(controller.recommendAll(-1).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void givenUnknownJobShouldReturnNotFound() {
+        assertThat(controller.recommendAllProgress(42).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
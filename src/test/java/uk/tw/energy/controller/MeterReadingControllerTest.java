@@ -2,17 +2,34 @@ package uk.tw.energy.controller;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import uk.tw.energy.builders.MeterReadingsBuilder;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.StoredMeterReadings;
+import uk.tw.energy.ingest.PackedReadingsFormat;
+import uk.tw.energy.ingest.ReadingIngestQueue;
 import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.StorageStats;
 
 public class MeterReadingControllerTest {
 
@@ -22,7 +39,7 @@ public class MeterReadingControllerTest {
 
     @BeforeEach
     public void setUp() {
-        this.meterReadingService = new MeterReadingService(new HashMap<>());
+        this.meterReadingService = new MeterReadingService(new ColumnarReadingStore());
         this.meterReadingController = new MeterReadingController(meterReadingService);
     }
 
@@ -47,6 +64,25 @@ public class MeterReadingControllerTest {
                 .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @Test
+    public void givenReadingsThatCannotBeStoredShouldReturnBadRequest() {
+        Instant now = Instant.now();
+        List<MeterReadings> unstorable = List.of(
+                new MeterReadings(SMART_METER_ID, List.of(new ElectricityReading(Instant.MAX, BigDecimal.ONE))),
+                new MeterReadings(SMART_METER_ID, List.of(new ElectricityReading(now, new BigDecimal("1E+9999")))),
+                new MeterReadings(SMART_METER_ID, List.of(new ElectricityReading(null, BigDecimal.ONE))));
+
+        for (MeterReadings meterReadings : unstorable) {
+            assertThat(meterReadingController.storeReadings(meterReadings).getStatusCode())
+                    .isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+        for (StoredMeterReadings result :
+                meterReadingController.storeReadingsBatch(unstorable).getBody()) {
+            assertThat(result.stored()).isFalse();
+        }
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).isEmpty();
+    }
+
     @Test
     public void givenMultipleBatchesOfMeterReadingsShouldStore() {
         MeterReadings meterReadings = new MeterReadingsBuilder()
@@ -65,6 +101,7 @@ public class MeterReadingControllerTest {
         List<ElectricityReading> expectedElectricityReadings = new ArrayList<>();
         expectedElectricityReadings.addAll(meterReadings.electricityReadings());
         expectedElectricityReadings.addAll(otherMeterReadings.electricityReadings());
+        expectedElectricityReadings.sort(Comparator.comparing(ElectricityReading::time));
 
         assertThat(meterReadingService.getReadings(SMART_METER_ID).get()).isEqualTo(expectedElectricityReadings);
     }
@@ -88,9 +125,271 @@ public class MeterReadingControllerTest {
                 .isEqualTo(meterReadings.electricityReadings());
     }
 
+    @Test
+    public void givenBatchOfMeterReadingsShouldStoreValidEntriesAndReportEachOne() {
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(3)
+                .build();
+        MeterReadings otherMeterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId("00001")
+                .generateElectricityReadings(2)
+                .build();
+        MeterReadings invalidMeterReadings = new MeterReadings(null, Collections.emptyList());
+
+        ResponseEntity<List<StoredMeterReadings>> response = meterReadingController.storeReadingsBatch(
+                List.of(meterReadings, invalidMeterReadings, otherMeterReadings));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isEqualTo(List.of(
+                        new StoredMeterReadings(0, SMART_METER_ID, true, 3),
+                        new StoredMeterReadings(1, null, false, 0),
+                        new StoredMeterReadings(2, "00001", true, 2)));
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(meterReadings.electricityReadings());
+        assertThat(meterReadingService.getReadings("00001").get()).isEqualTo(otherMeterReadings.electricityReadings());
+    }
+
+    @Test
+    public void givenEmptyBatchShouldReturnErrorResponse() {
+        assertThat(meterReadingController
+                        .storeReadingsBatch(Collections.emptyList())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void givenNdjsonStreamShouldStoreEveryReading() throws IOException {
+        String ndjson = "{\"smartMeterId\":\"" + SMART_METER_ID + "\",\"time\":1606636800,\"reading\":0.0503}\n"
+                + "{\"smartMeterId\":\"" + SMART_METER_ID + "\",\"time\":1606636860,\"reading\":0.0621}\n";
+
+        ResponseEntity<Map<String, Object>> response = meterReadingController.storeReadingsStream(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(Map.of(MeterReadingController.READINGS_KEY, 2L));
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(List.of(
+                        new ElectricityReading(Instant.ofEpochSecond(1606636800), new BigDecimal("0.0503")),
+                        new ElectricityReading(Instant.ofEpochSecond(1606636860), new BigDecimal("0.0621"))));
+    }
+
+    @Test
+    public void givenMalformedNdjsonStreamShouldReturnBadRequest() throws IOException {
+        String ndjson = "{\"smartMeterId\":\"" + SMART_METER_ID + "\"}\n";
+
+        ResponseEntity<Map<String, Object>> response = meterReadingController.storeReadingsStream(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void givenIngestQueueShouldAcceptReadingsAndStoreThemLater() throws InterruptedException {
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(meterReadingService, 2, 10, 16);
+        MeterReadingController controller = new MeterReadingController(meterReadingService, Optional.of(ingestQueue));
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(3)
+                .build();
+
+        assertThat(controller.storeReadings(meterReadings).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        ingestQueue.shutdown();
+
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(meterReadings.electricityReadings());
+        assertThat(controller.ingestStats().getBody().stored()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenIngestQueueRefusingReadingsShouldReturnServiceUnavailable() throws InterruptedException {
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(meterReadingService, 1, 10, 16);
+        ingestQueue.shutdown();
+        MeterReadingController controller = new MeterReadingController(meterReadingService, Optional.of(ingestQueue));
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(3)
+                .build();
+
+        ResponseEntity<Map<String, Object>> response = controller.storeReadings(meterReadings);
+        ResponseEntity<List<StoredMeterReadings>> batchResponse =
+                controller.storeReadingsBatch(List.of(meterReadings, new MeterReadings(null, null)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(batchResponse.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(batchResponse.getBody())
+                .isEqualTo(List.of(
+                        new StoredMeterReadings(0, SMART_METER_ID, false, 0),
+                        new StoredMeterReadings(1, null, false, 0)));
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).isEmpty();
+    }
+
+    @Test
+    public void givenNoIngestQueueShouldNotFindIngestStats() {
+        assertThat(meterReadingController.ingestStats().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void givenPackedReadingsShouldStoreThemAndReadThemBackPacked() throws IOException {
+        List<ElectricityReading> readings = new MeterReadingsBuilder()
+                .generateElectricityReadings(5)
+                .build()
+                .electricityReadings();
+        ColumnarReadingStore source = new ColumnarReadingStore();
+        source.append(SMART_METER_ID, readings);
+        byte[] packed = new PackedReadingsFormat()
+                .write(SMART_METER_ID, source.getSeries(SMART_METER_ID).get(), 0, 5);
+
+        ResponseEntity<Map<String, Object>> stored =
+                meterReadingController.storePackedReadings(new ByteArrayInputStream(packed));
+        ResponseEntity<byte[]> read =
+                meterReadingController.readPackedReadings(SMART_METER_ID, null, null, null, null, request());
+
+        assertThat(stored.getBody()).isEqualTo(Map.of(MeterReadingController.READINGS_KEY, 5));
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(source.getSeries(SMART_METER_ID).get().asList());
+        assertThat(read.getBody()).isEqualTo(packed);
+        assertThat(meterReadingController
+                        .readPackedReadings("unknown", null, null, null, null, request())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void givenMalformedPackedReadingsShouldReturnBadRequest() throws IOException {
+        ResponseEntity<Map<String, Object>> response =
+                meterReadingController.storePackedReadings(new ByteArrayInputStream(new byte[3]));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void givenStoredReadingsShouldReportStorageStats() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                new MeterReadingsBuilder()
+                        .generateElectricityReadings(3)
+                        .build()
+                        .electricityReadings());
+
+        ResponseEntity<StorageStats> response = meterReadingController.storageStats();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().meters()).isEqualTo(1);
+        assertThat(response.getBody().samples()).isEqualTo(3);
+    }
+
+    @Test
+    public void givenTimeRangeShouldReturnOnlyReadingsWithinIt() {
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            readings.add(new ElectricityReading(start.plusSeconds(i * 10L), BigDecimal.valueOf(i)));
+        }
+        meterReadingController.storeReadings(new MeterReadings(SMART_METER_ID, readings));
+
+        ResponseEntity<List<ElectricityReading>> response = meterReadingController.readReadings(
+                SMART_METER_ID, start.plusSeconds(20), start.plusSeconds(60), null, null, request());
+        ResponseEntity<List<ElectricityReading>> limited =
+                meterReadingController.readReadings(SMART_METER_ID, start.plusSeconds(15), null, 2, null, request());
+
+        assertThat(response.getBody()).isEqualTo(readings.subList(2, 6));
+        assertThat(limited.getBody()).isEqualTo(readings.subList(2, 4));
+    }
+
+    @Test
+    public void givenLimitBelowOneShouldReturnBadRequest() {
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, -1, null, request())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, 0, null, request())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     public void givenMeterIdThatIsNotRecognisedShouldReturnNotFound() {
-        assertThat(meterReadingController.readReadings(SMART_METER_ID).getStatusCode())
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, null, null, request())
+                        .getStatusCode())
                 .isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    public void givenTagOfUnchangedReadingsShouldReturnNotModifiedUntilMoreAreStored() {
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(new ElectricityReading(start, BigDecimal.ONE)));
+
+        String tag = meterReadingController
+                .readReadings(SMART_METER_ID, null, null, null, null, request())
+                .getHeaders()
+                .getETag();
+        ResponseEntity<List<ElectricityReading>> unchanged =
+                meterReadingController.readReadings(SMART_METER_ID, null, null, null, null, request(tag));
+        ResponseEntity<List<ElectricityReading>> otherRange =
+                meterReadingController.readReadings(SMART_METER_ID, start, null, null, null, request(tag));
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(new ElectricityReading(start.plusSeconds(10), BigDecimal.TEN)));
+        ResponseEntity<List<ElectricityReading>> changed =
+                meterReadingController.readReadings(SMART_METER_ID, null, null, null, null, request(tag));
+
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+        assertThat(otherRange.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(tag);
+    }
+
+    @Test
+    public void givenLimitShouldPageThroughAllReadingsWithCursors() {
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            readings.add(new ElectricityReading(start.plusSeconds(i * 10L), BigDecimal.valueOf(i)));
+        }
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+
+        List<ElectricityReading> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ResponseEntity<List<ElectricityReading>> page =
+                    meterReadingController.readReadings(SMART_METER_ID, null, null, 3, cursor, request());
+            paged.addAll(page.getBody());
+            cursor = page.getHeaders().getFirst(MeterReadingController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(4);
+        assertThat(paged).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenCursorThatIsMalformedOrWithFromShouldReturnBadRequest() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(new ElectricityReading(Instant.now(), BigDecimal.ONE)));
+
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, 1, "not a cursor", request())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, Instant.now(), null, 1, "AAAAAAAAAAAAAAAA", request())
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
 }
@@ -5,18 +5,22 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.AbstractMap;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.PricePlan;
 import uk.tw.energy.service.AccountService;
 import uk.tw.energy.service.MeterReadingService;
 import uk.tw.energy.service.PricePlanService;
+import uk.tw.energy.store.ColumnarReadingStore;
 
 public class PricePlanComparatorControllerTest {
     private static final String WORST_PLAN_ID = "worst-supplier";
@@ -29,7 +33,7 @@ public class PricePlanComparatorControllerTest {
 
     @BeforeEach
     public void setUp() {
-        meterReadingService = new MeterReadingService(new HashMap<>());
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
 
         PricePlan pricePlan1 = new PricePlan(WORST_PLAN_ID, null, BigDecimal.TEN, null);
         PricePlan pricePlan2 = new PricePlan(BEST_PLAN_ID, null, BigDecimal.ONE, null);
@@ -39,7 +43,7 @@ public class PricePlanComparatorControllerTest {
 
         accountService = new AccountService(Map.of(SMART_METER_ID, WORST_PLAN_ID));
 
-        controller = new PricePlanComparatorController(pricePlanService, accountService);
+        controller = new PricePlanComparatorController(pricePlanService, accountService, meterReadingService);
     }
 
     @Test
@@ -48,7 +52,8 @@ public class PricePlanComparatorControllerTest {
         var otherReading = new ElectricityReading(Instant.now(), BigDecimal.valueOf(5.0));
         meterReadingService.storeReadings(SMART_METER_ID, List.of(electricityReading, otherReading));
 
-        ResponseEntity<Map<String, Object>> response = controller.calculatedCostForEachPricePlan(SMART_METER_ID);
+        ResponseEntity<Map<String, Object>> response =
+                controller.calculatedCostForEachPricePlan(SMART_METER_ID, request());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         Map<String, Object> expected = Map.of(
@@ -64,7 +69,8 @@ public class PricePlanComparatorControllerTest {
 
     @Test
     public void calculatedCostForEachPricePlan_noReadings() {
-        ResponseEntity<Map<String, Object>> response = controller.calculatedCostForEachPricePlan("not-found");
+        ResponseEntity<Map<String, Object>> response =
+                controller.calculatedCostForEachPricePlan("not-found", request());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
@@ -76,7 +82,7 @@ public class PricePlanComparatorControllerTest {
         meterReadingService.storeReadings(SMART_METER_ID, List.of(electricityReading, otherReading));
 
         ResponseEntity<List<Map.Entry<String, BigDecimal>>> response =
-                controller.recommendCheapestPricePlans(SMART_METER_ID, null);
+                controller.recommendCheapestPricePlans(SMART_METER_ID, null, request());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         var expectedPricePlanToCost = List.of(
@@ -93,7 +99,7 @@ public class PricePlanComparatorControllerTest {
         meterReadingService.storeReadings(SMART_METER_ID, List.of(electricityReading, otherReading));
 
         ResponseEntity<List<Map.Entry<String, BigDecimal>>> response =
-                controller.recommendCheapestPricePlans(SMART_METER_ID, 2);
+                controller.recommendCheapestPricePlans(SMART_METER_ID, 2, request());
 
         var expectedPricePlanToCost = List.of(
                 new AbstractMap.SimpleEntry<>(BEST_PLAN_ID, BigDecimal.valueOf(16.7)),
@@ -108,7 +114,7 @@ public class PricePlanComparatorControllerTest {
         meterReadingService.storeReadings(SMART_METER_ID, List.of(reading0, reading1));
 
         ResponseEntity<List<Map.Entry<String, BigDecimal>>> response =
-                controller.recommendCheapestPricePlans(SMART_METER_ID, 5);
+                controller.recommendCheapestPricePlans(SMART_METER_ID, 5, request());
 
         var expectedPricePlanToCost = List.of(
                 new AbstractMap.SimpleEntry<>(BEST_PLAN_ID, BigDecimal.valueOf(14.0)),
@@ -116,4 +122,37 @@ public class PricePlanComparatorControllerTest {
                 new AbstractMap.SimpleEntry<>(WORST_PLAN_ID, BigDecimal.valueOf(140.0)));
         assertThat(response.getBody()).isEqualTo(expectedPricePlanToCost);
     }
+
+    @Test
+    public void calculatedCostForEachPricePlan_notModifiedUntilPricePlanChanges() {
+        var electricityReading = new ElectricityReading(Instant.now().minusSeconds(3600), BigDecimal.valueOf(15.0));
+        var otherReading = new ElectricityReading(Instant.now(), BigDecimal.valueOf(5.0));
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(electricityReading, otherReading));
+
+        String tag = controller
+                .calculatedCostForEachPricePlan(SMART_METER_ID, request())
+                .getHeaders()
+                .getETag();
+        ResponseEntity<Map<String, Object>> unchanged =
+                controller.calculatedCostForEachPricePlan(SMART_METER_ID, request(tag));
+        accountService.assignPricePlan(SMART_METER_ID, BEST_PLAN_ID);
+        ResponseEntity<Map<String, Object>> changed =
+                controller.calculatedCostForEachPricePlan(SMART_METER_ID, request(tag));
+
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getBody().get(PricePlanComparatorController.PRICE_PLAN_ID_KEY))
+                .isEqualTo(BEST_PLAN_ID);
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
 }
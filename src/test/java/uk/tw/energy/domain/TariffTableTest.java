@@ -0,0 +1,54 @@
+package uk.tw.energy.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TariffTableTest {
+
+    @Test
+    public void givenEpochSecondsShouldFindTheSameSlotAsTheUtcDateTime() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long epochSecond = random.nextLong(-4_000_000_000L, 8_000_000_000L);
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+
+            assertThat(TariffTable.slotOfEpochSecond(epochSecond))
+                    .as("%s", dateTime)
+                    .isEqualTo(TariffTable.slotOf(dateTime));
+        }
+    }
+
+    @Test
+    public void givenMultipliersShouldPriceEachSlotAndShareRateClassesBetweenEqualMultipliers() {
+        TariffTable tariffTable = TariffTable.compile(
+                new BigDecimal("0.20"),
+                List.of(
+                        new PricePlan.PeakTimeMultiplier(DayOfWeek.MONDAY, BigDecimal.TEN),
+                        new PricePlan.PeakTimeMultiplier(DayOfWeek.FRIDAY, BigDecimal.TEN),
+                        new PricePlan.PeakTimeMultiplier(DayOfWeek.MONDAY, BigDecimal.ONE)));
+
+        assertThat(tariffTable.isFlat()).isFalse();
+        assertThat(tariffTable.rateClassCount()).isEqualTo(2);
+        assertThat(tariffTable.priceAt(TariffTable.slotOf(LocalDateTime.of(2024, 4, 22, 23, 59))))
+                .isEqualTo(new BigDecimal("2.00"));
+        assertThat(tariffTable.priceAt(TariffTable.slotOf(LocalDateTime.of(2024, 4, 23, 0, 0))))
+                .isEqualTo(new BigDecimal("0.20"));
+        assertThat(tariffTable.rateClassAt(TariffTable.slotOf(LocalDateTime.of(2024, 4, 26, 12, 0))))
+                .isEqualTo(tariffTable.rateClassAt(TariffTable.slotOf(LocalDateTime.of(2024, 4, 22, 12, 0))));
+    }
+
+    @Test
+    public void givenNoMultipliersShouldBeFlat() {
+        TariffTable tariffTable = TariffTable.compile(BigDecimal.ONE, List.of());
+
+        assertThat(tariffTable.isFlat()).isTrue();
+        assertThat(tariffTable.priceAt(TariffTable.SLOTS_PER_WEEK - 1)).isEqualTo(BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,75 @@
+package uk.tw.energy.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingSeries;
+
+public class FleetSeederTest {
+
+    private static final long LAST_TIME = EpochNanos.of(Instant.parse("2024-04-26T00:00:00Z"));
+    private static final long TEN_SECONDS = 10_000_000_000L;
+
+    @Test
+    public void givenSameSeedShouldSeedTheSameFleetWhateverTheParallelism() {
+        int meters = 2 * FleetSeeder.METERS_PER_TASK + 3;
+        ColumnarReadingStore onOneThread = new ColumnarReadingStore();
+        ColumnarReadingStore onFourThreads = new ColumnarReadingStore();
+
+        new FleetSeeder(meters, 30, Duration.ofSeconds(10), 7, 1).seed(onOneThread, LAST_TIME, id -> true);
+        new FleetSeeder(meters, 30, Duration.ofSeconds(10), 7, 4).seed(onFourThreads, LAST_TIME, id -> true);
+
+        assertThat(onFourThreads.smartMeterIds()).isEqualTo(onOneThread.smartMeterIds());
+        for (String smartMeterId : onOneThread.smartMeterIds()) {
+            assertThat(onFourThreads.getSeries(smartMeterId).get().asList())
+                    .isEqualTo(onOneThread.getSeries(smartMeterId).get().asList());
+        }
+    }
+
+    @Test
+    public void givenDifferentSeedsShouldSeedDifferentReadings() {
+        ColumnarReadingStore first = new ColumnarReadingStore();
+        ColumnarReadingStore second = new ColumnarReadingStore();
+
+        new FleetSeeder(1, 20, Duration.ofSeconds(10), 1, 1).seed(first, LAST_TIME, id -> true);
+        new FleetSeeder(1, 20, Duration.ofSeconds(10), 2, 1).seed(second, LAST_TIME, id -> true);
+
+        assertThat(first.getSeries("smart-meter-0").get().asList())
+                .isNotEqualTo(second.getSeries("smart-meter-0").get().asList());
+    }
+
+    @Test
+    public void givenMoreReadingsThanABatchShouldStoreThemInTimeOrderEndingAtTheLastTime() {
+        int readingsPerMeter = FleetSeeder.BATCH_SIZE * 2 + 5;
+        ColumnarReadingStore readingStore = new ColumnarReadingStore();
+
+        FleetSeeder.SeedingStats stats = new FleetSeeder(2, readingsPerMeter, Duration.ofSeconds(10), 42, 2)
+                .seed(readingStore, LAST_TIME, id -> true);
+
+        assertThat(stats.meters()).isEqualTo(2);
+        assertThat(stats.readings()).isEqualTo(2L * readingsPerMeter);
+        ReadingSeries series = readingStore.getSeries("smart-meter-1").get();
+        assertThat(series.size()).isEqualTo(readingsPerMeter);
+        assertThat(series.timeAt(readingsPerMeter - 1)).isEqualTo(LAST_TIME);
+        for (int i = 1; i < readingsPerMeter; i++) {
+            assertThat(series.timeAt(i) - series.timeAt(i - 1)).isEqualTo(TEN_SECONDS);
+            assertThat(series.valueAt(i)).isNotNegative();
+        }
+    }
+
+    @Test
+    public void givenFilterShouldOnlySeedTheMetersItAccepts() {
+        ColumnarReadingStore readingStore = new ColumnarReadingStore();
+
+        FleetSeeder.SeedingStats stats = new FleetSeeder(5, 20, Duration.ofSeconds(10), 42, 2)
+                .seed(readingStore, LAST_TIME, id -> id.endsWith("1") || id.endsWith("3"));
+
+        assertThat(stats.meters()).isEqualTo(2);
+        assertThat(readingStore.smartMeterIds()).isEqualTo(Set.of("smart-meter-1", "smart-meter-3"));
+    }
+}
@@ -0,0 +1,95 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.EpochNanos;
+import uk.tw.energy.store.ReadingBuffer;
+
+public class NdjsonReadingsReaderTest {
+
+    private final List<String> batchMeterIds = new ArrayList<>();
+    private final List<ElectricityReading> readings = new ArrayList<>();
+
+    @Test
+    public void givenReadingsShouldParseEveryTimeAndReadingFormat() throws IOException {
+        String ndjson =
+                """
+                {"smartMeterId":"meter-0","time":1606636800,"reading":0.0503}
+                {"smartMeterId":"meter-0","time":1606636860.5,"reading":5E-2}
+                {"time":"2020-11-29T08:02:00Z","reading":"1.50","smartMeterId":"meter-0","extra":{"a":[1,2]}}
+                {"smartMeterId":"meter-0","time":1606636980,"reading":1.234567890123456789012}
+                """;
+
+        long count = new NdjsonReadingsReader().read(input(ndjson), this::collect);
+
+        assertThat(count).isEqualTo(4);
+        assertThat(readings)
+                .containsExactly(
+                        new ElectricityReading(Instant.ofEpochSecond(1606636800), new BigDecimal("0.0503")),
+                        new ElectricityReading(Instant.ofEpochSecond(1606636860, 500_000_000), new BigDecimal("5E-2")),
+                        new ElectricityReading(Instant.parse("2020-11-29T08:02:00Z"), new BigDecimal("1.50")),
+                        new ElectricityReading(Instant.ofEpochSecond(1606636980), new BigDecimal("1.234567890123457")));
+    }
+
+    @Test
+    public void givenReadingsOfManyMetersShouldBatchByMeterAndBatchSize() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            ndjson.append(line("meter-0", i));
+        }
+        ndjson.append(line("meter-1", 5));
+        ndjson.append(line("meter-0", 6));
+
+        long count = new NdjsonReadingsReader(new JsonFactory(), 2).read(input(ndjson.toString()), this::collect);
+
+        assertThat(count).isEqualTo(7);
+        assertThat(batchMeterIds).containsExactly("meter-0", "meter-0", "meter-0", "meter-1", "meter-0");
+        assertThat(readings).hasSize(7);
+    }
+
+    @Test
+    public void givenMalformedLineShouldStillHandOverTheReadingsBeforeIt() {
+        String ndjson = line("meter-0", 0) + line("meter-0", 1) + "{\"smartMeterId\":\"meter-0\",\"reading\":1}\n";
+
+        assertThatThrownBy(() -> new NdjsonReadingsReader().read(input(ndjson), this::collect))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class)
+                .hasMessageContaining("Line 3");
+        assertThat(readings).hasSize(2);
+    }
+
+    @Test
+    public void givenNonNumericReadingShouldRejectIt() {
+        String ndjson = "{\"smartMeterId\":\"meter-0\",\"time\":1,\"reading\":\"lots\"}\n";
+
+        assertThatThrownBy(() -> new NdjsonReadingsReader().read(input(ndjson), this::collect))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class);
+    }
+
+    private void collect(String smartMeterId, ReadingBuffer buffer) {
+        batchMeterIds.add(smartMeterId);
+        for (int i = 0; i < buffer.size(); i++) {
+            readings.add(new ElectricityReading(
+                    EpochNanos.toInstant(buffer.timeAt(i)), BigDecimal.valueOf(buffer.valueAt(i), buffer.scaleAt(i))));
+        }
+    }
+
+    private static String line(String smartMeterId, int second) {
+        return "{\"smartMeterId\":\"" + smartMeterId + "\",\"time\":" + second + ",\"reading\":0.1}\n";
+    }
+
+    private static InputStream input(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+
+public class PackedReadingsFormatTest {
+
+    private final PackedReadingsFormat format = new PackedReadingsFormat();
+
+    @Test
+    public void givenSeriesShouldWriteAndReadBackTheRequestedRange() throws IOException {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.ofEpochSecond(1606636800), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.ofEpochSecond(1606636810, 500_000_000), new BigDecimal("1.50")),
+                new ElectricityReading(Instant.ofEpochSecond(1606636820), new BigDecimal("-2")),
+                new ElectricityReading(Instant.ofEpochSecond(1606636830), new BigDecimal("12E+3")));
+        ColumnarReadingStore store = new ColumnarReadingStore();
+        store.append("meter-é", readings);
+        ReadingSeries series = store.getSeries("meter-é").get();
+
+        PackedReadingsFormat.PackedReadings packed =
+                format.read(new ByteArrayInputStream(format.write("meter-é", series, 1, 4)));
+
+        assertThat(packed.smartMeterId()).isEqualTo("meter-é");
+        assertThat(toList(packed.readings())).isEqualTo(readings.subList(1, 4));
+    }
+
+    @Test
+    public void givenPackedReadingsShouldBeLittleEndianColumns() {
+        ColumnarReadingStore store = new ColumnarReadingStore();
+        store.append("m", List.of(new ElectricityReading(Instant.ofEpochSecond(1), new BigDecimal("0.25"))));
+
+        byte[] packed = format.write("m", store.getSeries("m").get(), 0, 1);
+
+        ByteBuffer expected = ByteBuffer.allocate(4 + 1 + 4 + 17).order(ByteOrder.LITTLE_ENDIAN);
+        expected.putInt(1)
+                .put((byte) 'm')
+                .putInt(1)
+                .putLong(1_000_000_000L)
+                .putLong(25)
+                .put((byte) 2);
+        assertThat(packed).isEqualTo(expected.array());
+    }
+
+    @Test
+    public void givenTruncatedOrOverlongInputShouldThrow() {
+        ColumnarReadingStore store = new ColumnarReadingStore();
+        store.append("m", List.of(new ElectricityReading(Instant.ofEpochSecond(1), BigDecimal.ONE)));
+        byte[] packed = format.write("m", store.getSeries("m").get(), 0, 1);
+
+        assertThatThrownBy(() -> format.read(new ByteArrayInputStream(Arrays.copyOf(packed, packed.length - 1))))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class);
+        assertThatThrownBy(() -> format.read(new ByteArrayInputStream(Arrays.copyOf(packed, packed.length + 1))))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class);
+        assertThatThrownBy(() -> format.read(new ByteArrayInputStream(new byte[] {-1, -1, -1, -1})))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class);
+        assertThatThrownBy(() -> format.read(new ByteArrayInputStream(new byte[2])))
+                .isInstanceOf(NdjsonReadingsReader.MalformedReadingException.class);
+    }
+
+    private static List<ElectricityReading> toList(ReadingBuffer buffer) {
+        ColumnarReadingStore store = new ColumnarReadingStore();
+        store.append("copy", buffer);
+        return store.getSeries("copy").get().asList();
+    }
+}
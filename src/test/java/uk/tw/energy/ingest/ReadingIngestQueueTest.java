@@ -0,0 +1,166 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBuffer;
+import uk.tw.energy.store.ReadingSeries;
+import uk.tw.energy.store.ReadingStore;
+import uk.tw.energy.store.SeriesAggregates;
+
+public class ReadingIngestQueueTest {
+
+    @Test
+    public void givenQueuedReadingsShouldStoreEachMetersReadingsInOrder() throws InterruptedException {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        // Room for every reading, so no offer is refused however far the writers fall behind
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(meterReadingService, 3, 7 * 500, 16);
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(500);
+
+        for (int i = 0; i < readings.size(); i += 5) {
+            for (int meter = 0; meter < 7; meter++) {
+                assertThat(ingestQueue.offer("smart-meter-" + meter, ReadingBuffer.of(readings.subList(i, i + 5))))
+                        .isTrue();
+            }
+        }
+        ingestQueue.shutdown();
+
+        for (int meter = 0; meter < 7; meter++) {
+            assertThat(meterReadingService.getReadings("smart-meter-" + meter).orElseThrow())
+                    .containsExactlyElementsOf(readings);
+        }
+        ReadingIngestQueue.IngestStats stats = ingestQueue.stats();
+        assertThat(stats.accepted()).isEqualTo(700);
+        assertThat(stats.stored()).isEqualTo(700);
+        assertThat(stats.depth()).isZero();
+        assertThat(stats.maxDrainMillis()).isGreaterThanOrEqualTo(stats.averageDrainMillis());
+    }
+
+    @Test
+    public void givenFullPartitionShouldRefuseReadings() throws InterruptedException {
+        BlockingReadingStore readingStore = new BlockingReadingStore();
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(new MeterReadingService(readingStore), 1, 5, 16);
+
+        assertThat(ingestQueue.offer("smart-meter-0", readings(1))).isTrue();
+        assertThat(readingStore.appending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ingestQueue.offer("smart-meter-1", readings(3))).isTrue();
+        assertThat(ingestQueue.offer("smart-meter-3", readings(2))).isFalse();
+        assertThat(ingestQueue.offer("smart-meter-2", readings(1))).isTrue();
+
+        ReadingIngestQueue.IngestStats stats = ingestQueue.stats();
+        assertThat(stats.depth()).isEqualTo(5);
+        assertThat(stats.maxPartitionDepth()).isEqualTo(5);
+        assertThat(stats.rejected()).isEqualTo(1);
+
+        readingStore.release.countDown();
+        ingestQueue.shutdown();
+        assertThat(readingStore.smartMeterIds())
+                .containsExactlyInAnyOrder("smart-meter-0", "smart-meter-1", "smart-meter-2");
+    }
+
+    @Test
+    public void givenRequestLargerThanThePartitionShouldQueueItOnlyWhenThePartitionIsEmpty()
+            throws InterruptedException {
+        BlockingReadingStore readingStore = new BlockingReadingStore();
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(new MeterReadingService(readingStore), 1, 5, 16);
+
+        assertThat(ingestQueue.offer("smart-meter-0", readings(8))).isTrue();
+        assertThat(readingStore.appending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ingestQueue.offer("smart-meter-1", readings(1))).isFalse();
+
+        readingStore.release.countDown();
+        ingestQueue.shutdown();
+        assertThat(ingestQueue.stats().depth()).isZero();
+        assertThat(readingStore.smartMeterIds()).containsExactly("smart-meter-0");
+    }
+
+    @Test
+    public void givenShutDownQueueShouldRefuseReadings() throws InterruptedException {
+        ReadingIngestQueue ingestQueue =
+                new ReadingIngestQueue(new MeterReadingService(new ColumnarReadingStore()), 1, 10, 16);
+        ingestQueue.shutdown();
+
+        assertThat(ingestQueue.offer("smart-meter-0", readings())).isFalse();
+    }
+
+    @Test
+    public void givenFailingStoreShouldCountFailuresAndKeepDraining() throws InterruptedException {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore() {
+            @Override
+            public int append(String smartMeterId, ReadingBuffer readings) {
+                if (smartMeterId.equals("broken")) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.append(smartMeterId, readings);
+            }
+        });
+        ReadingIngestQueue ingestQueue = new ReadingIngestQueue(meterReadingService, 1, 10, 16);
+
+        ingestQueue.offer("broken", readings());
+        ingestQueue.offer("smart-meter-0", readings());
+        ingestQueue.shutdown();
+
+        assertThat(ingestQueue.stats().failed()).isEqualTo(1);
+        assertThat(meterReadingService.getReadings("smart-meter-0")).isPresent();
+    }
+
+    private static ReadingBuffer readings() {
+        return readings(1);
+    }
+
+    private static ReadingBuffer readings(int count) {
+        return ReadingBuffer.of(new ElectricityReadingsGenerator().generate(count));
+    }
+
+    private static final class BlockingReadingStore implements ReadingStore {
+
+        private final ColumnarReadingStore delegate = new ColumnarReadingStore();
+        private final CountDownLatch appending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public int append(String smartMeterId, ReadingBuffer readings) {
+            appending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return delegate.append(smartMeterId, readings);
+        }
+
+        @Override
+        public int appendSamples(String smartMeterId, ReadingBuffer samples) {
+            return delegate.appendSamples(smartMeterId, samples);
+        }
+
+        @Override
+        public void addAggregates(String smartMeterId, SeriesAggregates aggregates) {
+            delegate.addAggregates(smartMeterId, aggregates);
+        }
+
+        @Override
+        public Optional<ReadingSeries> getSeries(String smartMeterId) {
+            return delegate.getSeries(smartMeterId);
+        }
+
+        @Override
+        public Set<String> smartMeterIds() {
+            return delegate.smartMeterIds();
+        }
+
+        @Override
+        public boolean remove(String smartMeterId) {
+            return delegate.remove(smartMeterId);
+        }
+    }
+}
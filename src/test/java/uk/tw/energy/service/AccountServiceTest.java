@@ -1,15 +1,20 @@
 package uk.tw.energy.service;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.RollupPolicy;
+import uk.tw.energy.store.SmartMeterRegistry;
 
 public class AccountServiceTest {
 
     private static final String PRICE_PLAN_ID = "price-plan-id";
+    private static final String OTHER_PRICE_PLAN_ID = "other-price-plan-id";
     private static final String SMART_METER_ID = "smart-meter-id";
 
     private AccountService accountService;
@@ -26,4 +31,35 @@ public class AccountServiceTest {
     public void givenTheSmartMeterIdReturnsThePricePlanId() throws Exception {
         assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo(PRICE_PLAN_ID);
     }
+
+    @Test
+    public void givenUnknownSmartMeterIdShouldReturnNoPricePlan() {
+        assertThat(accountService.getPricePlanIdForSmartMeterId("unknown-id")).isNull();
+    }
+
+    @Test
+    public void givenAssignedPricePlansShouldOpenNewAccountsAndUpdateExistingOnes() {
+        assertThat(accountService.assignPricePlan("new-meter", OTHER_PRICE_PLAN_ID))
+                .isTrue();
+        assertThat(accountService.assignPricePlan(SMART_METER_ID, OTHER_PRICE_PLAN_ID))
+                .isFalse();
+
+        assertThat(accountService.getPricePlanIdForSmartMeterId("new-meter")).isEqualTo(OTHER_PRICE_PLAN_ID);
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo(OTHER_PRICE_PLAN_ID);
+        assertThat(accountService.getSmartMeterIds()).containsExactlyInAnyOrder(SMART_METER_ID, "new-meter");
+    }
+
+    @Test
+    public void givenRegistrySharedWithTheReadingStoreShouldOnlyListMetersWithAccounts() {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        ColumnarReadingStore readingStore = new ColumnarReadingStore(registry, RollupPolicy.NONE);
+        readingStore.append("meter-with-readings", new ElectricityReadingsGenerator().generate(2));
+        AccountService sharedAccounts = new AccountService(registry, Map.of(SMART_METER_ID, PRICE_PLAN_ID));
+
+        assertThat(sharedAccounts.getSmartMeterIds()).containsExactly(SMART_METER_ID);
+        assertThat(sharedAccounts.getPricePlanIdForSmartMeterId("meter-with-readings"))
+                .isNull();
+        assertThat(readingStore.smartMeterIds()).containsExactly("meter-with-readings");
+        assertThat(registry.size()).isEqualTo(2);
+    }
 }
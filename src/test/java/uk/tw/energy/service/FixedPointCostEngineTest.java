@@ -0,0 +1,76 @@
+package uk.tw.energy.service;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.SeriesAggregates;
+
+public class FixedPointCostEngineTest {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long START = 1_714_089_600L * NANOS_PER_SECOND;
+
+    @Test
+    public void givenRandomSeriesAndPlansShouldMatchDecimalEngineExactly() {
+        Random random = new Random(2024);
+        for (int i = 0; i < 2_000; i++) {
+            List<PricePlan> pricePlans = randomPricePlans(random);
+            CostEngine decimal = CostEngine.Type.DECIMAL.create(pricePlans);
+            CostEngine fixedPoint = CostEngine.Type.FIXED_POINT.create(pricePlans);
+            for (int j = 0; j < 50; j++) {
+                SeriesAggregates aggregates = randomAggregates(random);
+
+                assertThat(fixedPoint.costOfEachPricePlan(aggregates))
+                        .as("%s", aggregates)
+                        .isEqualTo(decimal.costOfEachPricePlan(aggregates));
+            }
+        }
+    }
+
+    @Test
+    public void givenSumTooLargeForLongShouldMatchDecimalEngine() {
+        List<PricePlan> pricePlans = randomPricePlans(new Random(7));
+        SeriesAggregates aggregates = new SeriesAggregates(
+                3, new BigDecimal("123456789012345678901234.5678"), START, START + 3_600 * NANOS_PER_SECOND);
+
+        assertThat(CostEngine.Type.FIXED_POINT.create(pricePlans).costOfEachPricePlan(aggregates))
+                .isEqualTo(CostEngine.Type.DECIMAL.create(pricePlans).costOfEachPricePlan(aggregates));
+    }
+
+    @Test
+    public void givenNoElapsedTimeShouldFailLikeDecimalEngine() {
+        List<PricePlan> pricePlans = randomPricePlans(new Random(7));
+        SeriesAggregates aggregates = new SeriesAggregates(1, new BigDecimal("0.5"), START, START);
+
+        assertThatThrownBy(() -> CostEngine.Type.DECIMAL.create(pricePlans).costOfEachPricePlan(aggregates))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> CostEngine.Type.FIXED_POINT.create(pricePlans).costOfEachPricePlan(aggregates))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    private static List<PricePlan> randomPricePlans(Random random) {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        int count = 1 + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            BigDecimal unitRate = BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(6));
+            pricePlans.add(new PricePlan("price-plan-" + i, "supplier-" + i, unitRate, emptyList()));
+        }
+        return pricePlans;
+    }
+
+    private static SeriesAggregates randomAggregates(Random random) {
+        int count = 1 + random.nextInt(random.nextBoolean() ? 100 : 10_000_000);
+        int scale = random.nextInt(12);
+        long unscaledSum = (random.nextLong() >>> random.nextInt(1, 64)) * (random.nextInt(20) == 0 ? -1 : 1);
+        long elapsedSeconds = 1 + (random.nextLong() >>> random.nextInt(34, 64));
+        long elapsed = Math.multiplyExact(elapsedSeconds, NANOS_PER_SECOND) + random.nextInt(1_000_000_000);
+        return new SeriesAggregates(count, BigDecimal.valueOf(unscaledSum, scale), START, START + elapsed);
+    }
+}
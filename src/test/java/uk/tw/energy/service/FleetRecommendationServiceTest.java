@@ -0,0 +1,160 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.FleetRecommendation;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingSeries;
+
+public class FleetRecommendationServiceTest {
+
+    private static final int METERS = FleetRecommendationService.CHUNK_SIZE * 3 + 17;
+
+    private MeterReadingService meterReadingService;
+    private FleetRecommendationService fleetRecommendationService;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        Map<String, String> accounts = new HashMap<>();
+        for (int i = 0; i < METERS; i++) {
+            meterReadingService.storeReadings(
+                    "smart-meter-" + i,
+                    List.of(
+                            new ElectricityReading(Instant.parse("2024-04-26T00:00:00Z"), BigDecimal.valueOf(i)),
+                            new ElectricityReading(Instant.parse("2024-04-26T01:00:00Z"), BigDecimal.valueOf(i))));
+            accounts.put("smart-meter-" + i, "expensive");
+        }
+        meterReadingService.storeReadings(
+                "single-reading",
+                List.of(new ElectricityReading(Instant.parse("2024-04-26T00:00:00Z"), BigDecimal.ONE)));
+        accounts.put("no-readings", "cheap");
+        List<PricePlan> pricePlans = List.of(
+                new PricePlan("expensive", null, BigDecimal.TEN, List.of()),
+                new PricePlan("cheap", null, BigDecimal.ONE, List.of()),
+                new PricePlan("middle", null, BigDecimal.valueOf(2), List.of()));
+        fleetRecommendationService = new FleetRecommendationService(
+                meterReadingService,
+                new AccountService(accounts),
+                new PricePlanService(pricePlans, meterReadingService),
+                4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fleetRecommendationService.shutdown();
+    }
+
+    @Test
+    public void givenFleetShouldRecommendToEveryMeterWithReadingsAndReportProgress() throws IOException {
+        Map<String, FleetRecommendation> recommendations = new ConcurrentHashMap<>();
+        FleetRecommendationJob job = fleetRecommendationService.createJob();
+
+        fleetRecommendationService.recommendAll(
+                job, 2, recommendation -> recommendations.put(recommendation.smartMeterId(), recommendation));
+
+        assertThat(recommendations).hasSize(METERS);
+        FleetRecommendation recommendation = recommendations.get("smart-meter-7");
+        assertThat(recommendation.pricePlanId()).isEqualTo("expensive");
+        assertThat(recommendation.recommendations())
+                .containsExactly(Map.entry("cheap", new BigDecimal("7")), Map.entry("middle", new BigDecimal("14")));
+        FleetRecommendationJob.Progress progress =
+                fleetRecommendationService.getJob(job.getId()).orElseThrow().progress();
+        assertThat(progress.state()).isEqualTo(FleetRecommendationJob.State.COMPLETED);
+        assertThat(progress.meters()).isEqualTo(METERS + 2);
+        assertThat(progress.processed()).isEqualTo(METERS + 2);
+        assertThat(progress.recommended()).isEqualTo(METERS);
+        assertThat(progress.withoutReadings()).isEqualTo(1);
+        assertThat(progress.failed()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenSinkFailsShouldCancelTheJob() {
+        FleetRecommendationJob job = fleetRecommendationService.createJob();
+
+        assertThatThrownBy(() -> fleetRecommendationService.recommendAll(job, null, recommendation -> {
+                    throw new IOException("Client went away");
+                }))
+                .isInstanceOf(IOException.class);
+        assertThat(job.progress().state()).isEqualTo(FleetRecommendationJob.State.CANCELLED);
+    }
+
+    @Test
+    public void givenWorkerFailsShouldFailTheJob() {
+        MeterReadingService brokenReadings = new MeterReadingService(new ColumnarReadingStore() {
+            @Override
+            public Optional<ReadingSeries> getSeries(String smartMeterId) {
+                if (smartMeterId.equals("smart-meter-300")) {
+                    throw new IllegalStateException("broken");
+                }
+                return meterReadingService.getSeries(smartMeterId);
+            }
+
+            @Override
+            public Set<String> smartMeterIds() {
+                return meterReadingService.getSmartMeterIds();
+            }
+        });
+        FleetRecommendationService brokenService = new FleetRecommendationService(
+                brokenReadings,
+                new AccountService(Map.of()),
+                new PricePlanService(List.of(new PricePlan("cheap", null, BigDecimal.ONE, List.of())), brokenReadings),
+                2);
+        try {
+            FleetRecommendationJob job = brokenService.createJob();
+
+            assertThatThrownBy(() -> brokenService.recommendAll(job, null, recommendation -> {}))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("broken");
+            assertThat(job.progress().state()).isEqualTo(FleetRecommendationJob.State.FAILED);
+        } finally {
+            brokenService.shutdown();
+        }
+    }
+
+    @Test
+    public void givenShutdownDuringRunShouldFailTheJob() {
+        // One worker queues at most two chunks ahead, so the last of the four is still outstanding at shutdown
+        FleetRecommendationService singleWorkerService = new FleetRecommendationService(
+                meterReadingService,
+                new AccountService(Map.of()),
+                new PricePlanService(
+                        List.of(new PricePlan("cheap", null, BigDecimal.ONE, List.of())), meterReadingService),
+                1);
+        FleetRecommendationJob job = singleWorkerService.createJob();
+
+        assertThatThrownBy(() ->
+                        singleWorkerService.recommendAll(job, null, recommendation -> singleWorkerService.shutdown()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(job.progress().state()).isEqualTo(FleetRecommendationJob.State.FAILED);
+    }
+
+    @Test
+    public void givenJobAlreadyRunShouldRefuseToRunItAgain() throws IOException {
+        FleetRecommendationJob job = fleetRecommendationService.createJob();
+        fleetRecommendationService.recommendAll(job, null, recommendation -> {});
+
+        assertThatThrownBy(() -> fleetRecommendationService.recommendAll(job, null, recommendation -> {}))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void givenUnknownJobShouldReturnEmpty() {
+        assertThat(fleetRecommendationService.getJob(42)).isEmpty();
+    }
+}
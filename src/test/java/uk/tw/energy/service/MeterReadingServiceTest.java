@@ -2,11 +2,24 @@ package uk.tw.energy.service;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingSeries;
 
 public class MeterReadingServiceTest {
 
@@ -14,7 +27,7 @@ public class MeterReadingServiceTest {
 
     @BeforeEach
     public void setUp() {
-        meterReadingService = new MeterReadingService(new HashMap<>());
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
     }
 
     @Test
@@ -27,4 +40,120 @@ public class MeterReadingServiceTest {
         meterReadingService.storeReadings("random-id", new ArrayList<>());
         assertThat(meterReadingService.getReadings("random-id")).isEqualTo(Optional.of(new ArrayList<>()));
     }
+
+    @Test
+    public void givenStoredReadingsShouldRecordIngestMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MeterReadingService service = new MeterReadingService(new ColumnarReadingStore(), meterRegistry);
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+
+        service.storeReadings("meter-0", List.of(new ElectricityReading(start, BigDecimal.ONE)));
+        service.storeReadings(
+                "meter-0",
+                List.of(
+                        new ElectricityReading(start.plusSeconds(10), BigDecimal.ONE),
+                        new ElectricityReading(start.plusSeconds(20), BigDecimal.ONE)));
+        service.storeReadings("meter-1", List.of(new ElectricityReading(start, BigDecimal.ONE)));
+
+        assertThat(meterRegistry.get("joi.readings.ingested").counter().count()).isEqualTo(4.0);
+        assertThat(meterRegistry.get("joi.meters").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("joi.series.length").summary().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("joi.series.length").summary().max()).isEqualTo(3.0);
+    }
+
+    @Test
+    public void givenDuplicateAndLateReadingsShouldCountThem() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MeterReadingService service = new MeterReadingService(new ColumnarReadingStore(), meterRegistry);
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(start, BigDecimal.ONE),
+                new ElectricityReading(start.plusSeconds(20), BigDecimal.ONE));
+
+        service.storeReadings("meter-0", readings);
+        service.storeReadings("meter-0", readings);
+        service.storeReadings("meter-0", List.of(new ElectricityReading(start.plusSeconds(10), BigDecimal.ONE)));
+
+        assertThat(service.getReadings("meter-0").get().size()).isEqualTo(3);
+        assertThat(meterRegistry.get("joi.readings.duplicate").functionCounter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("joi.readings.late").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    public void givenConcurrentWritersAndReadersShouldNotLoseOrCorruptReadings() throws Exception {
+        int writers = 8;
+        int readers = 2;
+        int meters = 64;
+        int batchesPerWriter = 2_000;
+        int readingsPerBatch = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        List<Future<?>> writerResults = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int writerId = writer;
+            writerResults.add(executor.submit(() -> {
+                start.await();
+                for (int batch = 0; batch < batchesPerWriter; batch++) {
+                    List<ElectricityReading> readings = new ArrayList<>(readingsPerBatch);
+                    for (int i = 0; i < readingsPerBatch; i++) {
+                        readings.add(new ElectricityReading(
+                                Instant.ofEpochSecond(1 + batch * readingsPerBatch + i), BigDecimal.valueOf(writerId)));
+                    }
+                    meterReadingService.storeReadings("meter-" + (batch + writerId) % meters, readings);
+                }
+                return null;
+            }));
+        }
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int reader = 0; reader < readers; reader++) {
+            readerResults.add(executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    for (int meter = 0; meter < meters; meter++) {
+                        Optional<ReadingSeries> series = meterReadingService.getSeries("meter-" + meter);
+                        if (series.isPresent()) {
+                            assertThat(series.get().size() % readingsPerBatch).isEqualTo(0);
+                            ReadingCursor cursor = series.get().cursor();
+                            int visited = 0;
+                            while (cursor.next()) {
+                                assertThat(cursor.time()).isPositive();
+                                visited++;
+                            }
+                            assertThat(visited).isEqualTo(series.get().size());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> result : writerResults) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        writing.set(false);
+        for (Future<?> result : readerResults) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        long stored = 0;
+        long[] perWriter = new long[writers];
+        for (int meter = 0; meter < meters; meter++) {
+            ReadingCursor cursor =
+                    meterReadingService.getSeries("meter-" + meter).get().cursor();
+            while (cursor.next()) {
+                perWriter[(int) cursor.value()]++;
+                stored++;
+            }
+        }
+        assertThat(stored).isEqualTo((long) writers * batchesPerWriter * readingsPerBatch);
+        for (long writerCount : perWriter) {
+            assertThat(writerCount).isEqualTo((long) batchesPerWriter * readingsPerBatch);
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class PricePlanCostCacheTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final Map<String, BigDecimal> COSTS = Map.of("plan", BigDecimal.ONE);
+
+    private PricePlanCostCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new PricePlanCostCache(2);
+    }
+
+    @Test
+    public void givenSameSeriesVersionShouldHit() {
+        cache.put(SMART_METER_ID, 3, COSTS);
+
+        assertThat(cache.get(SMART_METER_ID, 3)).isEqualTo(COSTS);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenNewerSeriesVersionShouldMiss() {
+        cache.put(SMART_METER_ID, 3, COSTS);
+
+        assertThat(cache.get(SMART_METER_ID, 4)).isNull();
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenMoreMetersThanCapacityShouldEvictLeastRecentlyUsed() {
+        cache.put("meter-0", 1, COSTS);
+        cache.put("meter-1", 1, COSTS);
+        cache.get("meter-0", 1);
+        cache.put("meter-2", 1, COSTS);
+
+        assertThat(cache.get("meter-1", 1)).isNull();
+        assertThat(cache.get("meter-0", 1)).isEqualTo(COSTS);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenReadingsStoredShouldInvalidateOnlyThatMeter() {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        PricePlanService pricePlanService = new PricePlanService(
+                List.of(new PricePlan("plan", null, BigDecimal.ONE, null)), meterReadingService, cache);
+        storeTwoReadings(meterReadingService, SMART_METER_ID);
+        storeTwoReadings(meterReadingService, "other-meter");
+        pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+        pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan("other-meter");
+
+        storeTwoReadings(meterReadingService, SMART_METER_ID);
+        pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+        pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan("other-meter");
+
+        PricePlanCostCache.CacheStats stats = cache.stats();
+        assertThat(stats.invalidations()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.hits()).isEqualTo(1);
+    }
+
+    private static void storeTwoReadings(MeterReadingService meterReadingService, String smartMeterId) {
+        Instant now = Instant.now();
+        meterReadingService.storeReadings(
+                smartMeterId,
+                List.of(
+                        new ElectricityReading(now.minusSeconds(3600), BigDecimal.ONE),
+                        new ElectricityReading(now, BigDecimal.TEN)));
+    }
+}
@@ -0,0 +1,93 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingSeries;
+
+public class PricePlanRankingTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final int PLANS = 300;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void givenFlatPlansShouldRankTheSameCostsAsSortingEveryPlan() {
+        assertRanksLikeFullSort(pricePlans(false), readings(false));
+    }
+
+    @Test
+    public void givenPeakPlansShouldRankTheSameCostsAsSortingEveryPlan() {
+        assertRanksLikeFullSort(pricePlans(true), readings(false));
+    }
+
+    @Test
+    public void givenNegativeReadingsShouldRankTheSameCostsAsSortingEveryPlan() {
+        assertRanksLikeFullSort(pricePlans(true), readings(true));
+    }
+
+    @Test
+    public void givenCatalogueWithTiedUnitRatesShouldRankTheSameCostsAsSortingEveryPlan() {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int plan = 0; plan < PLANS; plan++) {
+            pricePlans.add(new PricePlan("plan-" + plan, "supplier", BigDecimal.valueOf(plan % 7 + 1), List.of()));
+        }
+        assertRanksLikeFullSort(pricePlans, readings(false));
+    }
+
+    private void assertRanksLikeFullSort(List<PricePlan> pricePlans, List<ElectricityReading> readings) {
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+        PricePlanService pricePlanService = new PricePlanService(pricePlans, meterReadingService);
+        ReadingSeries series = meterReadingService.getSeries(SMART_METER_ID).orElseThrow();
+
+        List<BigDecimal> allCosts = pricePlanService.calculateCostOfEachPricePlan(series).values().stream()
+                .sorted()
+                .toList();
+        for (int limit : new int[] {1, 2, 5, 50, PLANS - 1}) {
+            List<Map.Entry<String, BigDecimal>> ranked = pricePlanService.rankCheapestPricePlans(series, limit);
+
+            assertThat(ranked).extracting(Map.Entry::getValue).containsExactlyElementsOf(allCosts.subList(0, limit));
+        }
+    }
+
+    private List<PricePlan> pricePlans(boolean withPeaks) {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int plan = 0; plan < PLANS; plan++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers = new ArrayList<>();
+            if (withPeaks && random.nextBoolean()) {
+                for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                    if (random.nextInt(3) == 0) {
+                        multipliers.add(new PricePlan.PeakTimeMultiplier(
+                                dayOfWeek, BigDecimal.valueOf(random.nextInt(50, 300), 2)));
+                    }
+                }
+            }
+            pricePlans.add(new PricePlan(
+                    "plan-" + plan, "supplier", BigDecimal.valueOf(random.nextInt(1, 100_000), 4), multipliers));
+        }
+        return pricePlans;
+    }
+
+    private List<ElectricityReading> readings(boolean negative) {
+        List<ElectricityReading> readings = new ArrayList<>();
+        Instant time = Instant.parse("2024-04-22T00:00:00Z");
+        for (int reading = 0; reading < 1000; reading++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextInt(1, 20_000), 4);
+            readings.add(new ElectricityReading(
+                    time.plusSeconds(reading * 900L + random.nextInt(600)), negative ? value.negate() : value));
+        }
+        return readings;
+    }
+}
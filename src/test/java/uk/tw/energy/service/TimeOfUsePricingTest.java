@@ -0,0 +1,99 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class TimeOfUsePricingTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final String FLAT_PLAN_ID = "flat";
+    private static final String PEAK_PLAN_ID = "peak-on-wednesday";
+
+    private MeterReadingService meterReadingService;
+    private PricePlanService pricePlanService;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        PricePlan flatPlan = new PricePlan(FLAT_PLAN_ID, "supplier", BigDecimal.ONE, List.of());
+        PricePlan peakPlan = new PricePlan(
+                PEAK_PLAN_ID,
+                "supplier",
+                BigDecimal.ONE,
+                List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.WEDNESDAY, BigDecimal.TEN)));
+        pricePlanService = new PricePlanService(List.of(flatPlan, peakPlan), meterReadingService);
+    }
+
+    @Test
+    public void givenReadingsOffPeakShouldCostTheSameAsAtTheUnitRate() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID, readings("2024-04-25T00:00:00Z", "2024-04-25T12:00:00Z", "2024-04-26T00:00:00Z"));
+
+        Map<String, BigDecimal> costs = costs();
+
+        assertThat(costs.get(PEAK_PLAN_ID)).isEqualTo(costs.get(FLAT_PLAN_ID));
+    }
+
+    @Test
+    public void givenReadingsAtPeakShouldApplyTheMultiplier() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID, readings("2024-04-24T00:00:00Z", "2024-04-24T12:00:00Z", "2024-04-25T00:00:00Z"));
+
+        Map<String, BigDecimal> costs = costs();
+
+        assertThat(costs.get(PEAK_PLAN_ID)).isEqualTo(costs.get(FLAT_PLAN_ID).multiply(BigDecimal.TEN));
+    }
+
+    @Test
+    public void givenReadingsSpanningPeakAndOffPeakShouldWeightTheMultiplierByEnergy() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                readings(
+                        "2024-04-24T00:00:00Z",
+                        "2024-04-24T12:00:00Z",
+                        "2024-04-25T00:00:00Z",
+                        "2024-04-25T12:00:00Z",
+                        "2024-04-26T00:00:00Z"));
+
+        Map<String, BigDecimal> costs = costs();
+
+        BigDecimal flatCost = costs.get(FLAT_PLAN_ID);
+        assertThat(costs.get(PEAK_PLAN_ID))
+                .isEqualTo(flatCost.multiply(new BigDecimal("5.5")).setScale(flatCost.scale(), RoundingMode.HALF_UP));
+    }
+
+    @Test
+    public void givenReadingLastingIntoPeakShouldChargeEachPartAtItsOwnRate() {
+        meterReadingService.storeReadings(SMART_METER_ID, readings("2024-04-23T23:00:00Z", "2024-04-24T01:00:00Z"));
+
+        Map<String, BigDecimal> costs = costs();
+
+        BigDecimal flatCost = costs.get(FLAT_PLAN_ID);
+        assertThat(costs.get(PEAK_PLAN_ID))
+                .isEqualTo(flatCost.multiply(new BigDecimal("5.5")).setScale(flatCost.scale(), RoundingMode.HALF_UP));
+    }
+
+    private Map<String, BigDecimal> costs() {
+        return pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                .orElseThrow();
+    }
+
+    private static List<ElectricityReading> readings(String... times) {
+        return Arrays.stream(times)
+                .map(time -> new ElectricityReading(Instant.parse(time), new BigDecimal("1.5")))
+                .toList();
+    }
+}
@@ -0,0 +1,338 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class ColumnarReadingStoreTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private ColumnarReadingStore readingStore;
+
+    @BeforeEach
+    public void setUp() {
+        readingStore = new ColumnarReadingStore();
+    }
+
+    @Test
+    public void givenUnknownMeterShouldReturnEmpty() {
+        assertThat(readingStore.getSeries("unknown-id")).isEmpty();
+    }
+
+    @Test
+    public void givenReadingsShouldReadThemBackWithTimeAndScaleIntact() {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("1970-01-01T00:00:00Z"), new BigDecimal("1.50")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.123456789Z"), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal(20)));
+
+        readingStore.append(SMART_METER_ID, readings);
+
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().asList()).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenMeterRemovedAndStoredAgainShouldNotReuseAnEarlierVersion() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3);
+        readingStore.append(SMART_METER_ID, readings);
+        long removedVersion = readingStore.getSeries(SMART_METER_ID).get().version();
+
+        readingStore.remove(SMART_METER_ID);
+        readingStore.append(SMART_METER_ID, readings);
+
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().version()).isNotEqualTo(removedVersion);
+    }
+
+    @Test
+    public void givenReadingsSpanningManyChunksShouldKeepThemInOrder() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(5000);
+
+        readingStore.append(SMART_METER_ID, readings.subList(0, 17));
+        readingStore.append(SMART_METER_ID, readings.subList(17, readings.size()));
+
+        ReadingSeries series = readingStore.getSeries(SMART_METER_ID).get();
+        assertThat(series.size()).isEqualTo(readings.size());
+        assertThat(series.asList()).isEqualTo(readings);
+        assertThat(series.readingAt(4321)).isEqualTo(readings.get(4321).reading());
+        assertThat(series.instantAt(1024)).isEqualTo(readings.get(1024).time());
+    }
+
+    @Test
+    public void givenCursorShouldVisitEverySampleAsPrimitives() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(2000);
+        readingStore.append(SMART_METER_ID, readings);
+
+        ReadingCursor cursor = readingStore.getSeries(SMART_METER_ID).get().cursor();
+        List<ElectricityReading> visited = new ArrayList<>();
+        while (cursor.next()) {
+            visited.add(new ElectricityReading(
+                    EpochNanos.toInstant(cursor.time()), BigDecimal.valueOf(cursor.value(), cursor.scale())));
+        }
+
+        assertThat(visited).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenSnapshotShouldNotSeeLaterAppends() {
+        readingStore.append(SMART_METER_ID, new ElectricityReadingsGenerator().generate(10));
+        ReadingSeries snapshot = readingStore.getSeries(SMART_METER_ID).get();
+
+        readingStore.append(SMART_METER_ID, new ElectricityReadingsGenerator().generate(10));
+
+        assertThat(snapshot.size()).isEqualTo(10);
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().size()).isEqualTo(20);
+    }
+
+    @Test
+    public void givenReadingTooPreciseForALongShouldRoundItTo16Digits() {
+        BigDecimal tooPrecise = new BigDecimal("1.23456789012345678901234567890");
+        readingStore.append(SMART_METER_ID, List.of(new ElectricityReading(Instant.EPOCH, tooPrecise)));
+
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().readingAt(0))
+                .isEqualTo(new BigDecimal("1.234567890123457"));
+    }
+
+    @Test
+    public void givenAppendsShouldMaintainAggregatesWithoutScanningTheSeries() {
+        readingStore.append(
+                SMART_METER_ID,
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal("1.5")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("0.25"))));
+        readingStore.append(
+                SMART_METER_ID,
+                List.of(new ElectricityReading(Instant.parse("2024-04-26T00:00:30Z"), new BigDecimal(2))));
+
+        SeriesAggregates aggregates =
+                readingStore.getSeries(SMART_METER_ID).get().aggregates();
+
+        assertThat(aggregates.count()).isEqualTo(3);
+        assertThat(aggregates.sum()).isEqualTo(new BigDecimal("3.75"));
+        assertThat(EpochNanos.toInstant(aggregates.earliestTime())).isEqualTo(Instant.parse("2024-04-26T00:00:10Z"));
+        assertThat(EpochNanos.toInstant(aggregates.latestTime())).isEqualTo(Instant.parse("2024-04-26T00:00:30Z"));
+    }
+
+    @Test
+    public void givenReadingsArrivingOutOfOrderShouldKeepTheSeriesInTimeOrder() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3000);
+        List<ElectricityReading> shuffled = new ArrayList<>(readings);
+        Collections.shuffle(shuffled, new Random(42));
+
+        for (int from = 0; from < shuffled.size(); from += 250) {
+            readingStore.append(SMART_METER_ID, shuffled.subList(from, Math.min(from + 250, shuffled.size())));
+        }
+
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().asList()).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenRetransmittedAndOverlappingBatchesShouldDropDuplicatesAndCountLateReadings() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3000);
+        List<ElectricityReading> withGap = new ArrayList<>(readings);
+        ElectricityReading missed = withGap.remove(500);
+
+        readingStore.append(SMART_METER_ID, withGap.subList(0, 2000));
+        readingStore.append(SMART_METER_ID, withGap.subList(1000, withGap.size()));
+        long version = readingStore.getSeries(SMART_METER_ID).get().version();
+        List<ElectricityReading> retransmitted = new ArrayList<>(withGap);
+        Collections.shuffle(retransmitted, new Random(42));
+        readingStore.append(SMART_METER_ID, retransmitted);
+        ReadingSeries afterRetransmission =
+                readingStore.getSeries(SMART_METER_ID).get();
+        readingStore.append(SMART_METER_ID, List.of(missed, missed));
+
+        ReadingSeries series = readingStore.getSeries(SMART_METER_ID).get();
+        assertThat(afterRetransmission.version()).isEqualTo(version);
+        assertThat(series.asList()).isEqualTo(readings);
+        assertThat(series.aggregates().count()).isEqualTo(readings.size());
+        assertThat(readingStore.ingestStats()).contains(new IngestStats(1000 + 2999 + 1, 1, 0));
+    }
+
+    @Test
+    public void givenLateReadingsShouldNotChangeEarlierSnapshots() {
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(start.plusSeconds(10), BigDecimal.ONE),
+                new ElectricityReading(start.plusSeconds(30), BigDecimal.ONE));
+        ElectricityReading late = new ElectricityReading(start.plusSeconds(20), BigDecimal.TEN);
+        readingStore.append(SMART_METER_ID, readings);
+        ReadingSeries snapshot = readingStore.getSeries(SMART_METER_ID).get();
+
+        readingStore.append(SMART_METER_ID, List.of(late));
+
+        assertThat(snapshot.asList()).isEqualTo(readings);
+        assertThat(readingStore.getSeries(SMART_METER_ID).get().asList())
+                .containsExactly(readings.get(0), late, readings.get(1));
+    }
+
+    @Test
+    public void givenTimeShouldBinarySearchForTheFirstReadingAtOrAfterIt() {
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            readings.add(new ElectricityReading(start.plusSeconds(i * 10L), BigDecimal.ONE));
+        }
+        readingStore.append(SMART_METER_ID, readings);
+        ReadingSeries series = readingStore.getSeries(SMART_METER_ID).get();
+
+        assertThat(series.lowerBound(EpochNanos.of(start.minusSeconds(1)))).isEqualTo(0);
+        assertThat(series.lowerBound(EpochNanos.of(start.plusSeconds(12_000)))).isEqualTo(1200);
+        assertThat(series.lowerBound(EpochNanos.of(start.plusSeconds(12_001)))).isEqualTo(1201);
+        assertThat(series.lowerBound(EpochNanos.of(start.plusSeconds(100_000)))).isEqualTo(2500);
+        assertThat(series.asList(1200, 1203)).isEqualTo(readings.subList(1200, 1203));
+    }
+
+    @Test
+    public void givenFullChunksShouldSealThemAndReadAcrossSealedAndOpenChunks() {
+        List<ElectricityReading> readings = readingsEveryTenSeconds(Instant.parse("2024-04-22T00:00:00Z"), 5000);
+        readingStore.append(SMART_METER_ID, readings);
+        readingStore.append("other-meter", readings.subList(0, 10));
+
+        ReadingSeries series = readingStore.getSeries(SMART_METER_ID).get();
+        StorageStats stats = readingStore.storageStats().orElseThrow();
+
+        assertThat(series.asList()).isEqualTo(readings);
+        assertThat(series.asList(2047, 2049)).isEqualTo(readings.subList(2047, 2049));
+        assertThat(series.cursor(4095).next()).isTrue();
+        assertThat(series.lowerBound(EpochNanos.of(readings.get(3000).time()))).isEqualTo(3000);
+        assertThat(series.lowerBound(EpochNanos.of(readings.get(4999).time()) + 1))
+                .isEqualTo(5000);
+        assertThat(stats.meters()).isEqualTo(2);
+        assertThat(stats.samples()).isEqualTo(5010);
+        assertThat(stats.sealedSamples()).isEqualTo(4 * 1024);
+        assertThat(stats.compressionRatio()).isGreaterThan(2);
+    }
+
+    @Test
+    public void givenRollupPolicyShouldRollUpReadingsOlderThanTheRawTier() {
+        ColumnarReadingStore rollupStore = new ColumnarReadingStore(RollupPolicy.parse("1d:15m,2d:1h"));
+        List<ElectricityReading> readings = readingsEveryTenSeconds(Instant.parse("2024-04-22T00:00:00Z"), 3 * 8640);
+        for (int from = 0; from < readings.size(); from += 500) {
+            rollupStore.append(SMART_METER_ID, readings.subList(from, Math.min(from + 500, readings.size())));
+        }
+
+        ReadingSeries series = rollupStore.getSeries(SMART_METER_ID).get();
+        Instant latest = readings.get(readings.size() - 1).time();
+        List<ElectricityReading> rawTier = readings.stream()
+                .filter(reading -> reading.time().isAfter(latest.minusSeconds(86_400)))
+                .toList();
+        List<ElectricityReading> stored = series.asList();
+
+        assertThat(series.size()).isLessThan(readings.size() / 2);
+        assertThat(stored.subList(stored.size() - rawTier.size(), stored.size()))
+                .isEqualTo(rawTier);
+        assertThat(hoursWithMoreThanOneSample(stored, latest.minusSeconds(2 * 86_400 + 3600)))
+                .isZero();
+        assertThat(series.aggregates().count()).isEqualTo(readings.size());
+        assertThat(series.aggregates().sum())
+                .isEqualTo(readings.stream().map(ElectricityReading::reading).reduce(BigDecimal.ZERO, BigDecimal::add));
+        assertThat(energy(stored)).isCloseTo(energy(readings), within(energy(readings) * 1e-7));
+        ReadingCursor cursor = series.cursor();
+        for (ElectricityReading reading : stored) {
+            assertThat(cursor.next()).isTrue();
+            assertThat(EpochNanos.toInstant(cursor.time())).isEqualTo(reading.time());
+            assertThat(BigDecimal.valueOf(cursor.value(), cursor.scale())).isEqualTo(reading.reading());
+        }
+        assertThat(cursor.next()).isFalse();
+    }
+
+    @Test
+    public void givenReadingOlderThanTheRawTierShouldDropItAsExpired() {
+        ColumnarReadingStore rollupStore = new ColumnarReadingStore(RollupPolicy.parse("1h:15m"));
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        rollupStore.append(SMART_METER_ID, readingsEveryTenSeconds(start, 3000));
+        ReadingSeries before = rollupStore.getSeries(SMART_METER_ID).get();
+        ElectricityReading late = new ElectricityReading(start.minusSeconds(3600), BigDecimal.ONE);
+
+        rollupStore.append(SMART_METER_ID, List.of(late));
+
+        ReadingSeries series = rollupStore.getSeries(SMART_METER_ID).get();
+        assertThat(series.asList()).isEqualTo(before.asList());
+        assertThat(series.aggregates()).isEqualTo(before.aggregates());
+        assertThat(rollupStore.ingestStats()).contains(new IngestStats(0, 0, 1));
+    }
+
+    @Test
+    public void givenRolledUpReadingsResentShouldNotChangeTheAggregates() {
+        ColumnarReadingStore rollupStore = new ColumnarReadingStore(RollupPolicy.parse("1h:15m"));
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        List<ElectricityReading> readings = readingsEveryTenSeconds(start, 3000);
+        rollupStore.append(SMART_METER_ID, readings);
+        ReadingSeries before = rollupStore.getSeries(SMART_METER_ID).get();
+        List<ElectricityReading> samples = before.asList();
+        int raw = 0;
+        while (samples.get(samples.size() - 1 - raw).equals(readings.get(readings.size() - 1 - raw))) {
+            raw++;
+        }
+        List<ElectricityReading> rolledUp = readings.subList(0, readings.size() - raw);
+        assertThat(rolledUp.size()).isGreaterThan(samples.size() - raw);
+
+        rollupStore.append(SMART_METER_ID, rolledUp);
+
+        ReadingSeries series = rollupStore.getSeries(SMART_METER_ID).get();
+        assertThat(series.aggregates()).isEqualTo(before.aggregates());
+        assertThat(series.asList()).isEqualTo(before.asList());
+        assertThat(rollupStore.ingestStats()).contains(new IngestStats(0, 0, rolledUp.size()));
+    }
+
+    @Test
+    public void givenRolledUpSeriesHandedOverAsUncountedSamplesAndAggregatesShouldKeepItsAggregates() {
+        ColumnarReadingStore rollupStore = new ColumnarReadingStore(RollupPolicy.parse("1h:15m"));
+        rollupStore.append(SMART_METER_ID, readingsEveryTenSeconds(Instant.parse("2024-04-26T00:00:00Z"), 3000));
+        ReadingSeries handedOff = rollupStore.getSeries(SMART_METER_ID).get();
+        ColumnarReadingStore newOwner = new ColumnarReadingStore(RollupPolicy.parse("1h:15m"));
+
+        newOwner.appendSamples(SMART_METER_ID, ReadingBuffer.of(handedOff.asList()));
+        newOwner.addAggregates(SMART_METER_ID, handedOff.aggregates());
+
+        ReadingSeries series = newOwner.getSeries(SMART_METER_ID).get();
+        assertThat(series.aggregates()).isEqualTo(handedOff.aggregates());
+        assertThat(series.asList()).isEqualTo(handedOff.asList());
+    }
+
+    private static List<ElectricityReading> readingsEveryTenSeconds(Instant start, int count) {
+        Random random = new Random(42);
+        List<ElectricityReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(new ElectricityReading(
+                    start.plusSeconds(i * 10L), BigDecimal.valueOf(random.nextInt(1, 20_000), 4)));
+        }
+        return readings;
+    }
+
+    private static long hoursWithMoreThanOneSample(List<ElectricityReading> readings, Instant before) {
+        return readings.stream()
+                .filter(reading -> reading.time().isBefore(before))
+                .collect(
+                        Collectors.groupingBy(reading -> reading.time().getEpochSecond() / 3600, Collectors.counting()))
+                .values()
+                .stream()
+                .filter(samples -> samples > 1)
+                .count();
+    }
+
+    /**
+     * @return kW seconds, taking each reading to last until the next
+     */
+    private static double energy(List<ElectricityReading> readings) {
+        double energy = 0;
+        for (int i = 0; i + 1 < readings.size(); i++) {
+            long seconds = readings.get(i + 1).time().getEpochSecond()
+                    - readings.get(i).time().getEpochSecond();
+            energy += readings.get(i).reading().doubleValue() * seconds;
+        }
+        return energy;
+    }
+}
@@ -0,0 +1,300 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class DurableReadingStoreTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void givenEmptyLogShouldRecoverNothing() throws IOException {
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getRecoveryStats().readings()).isZero();
+            assertThat(readingStore.getSeries(SMART_METER_ID)).isEmpty();
+        }
+    }
+
+    @Test
+    public void givenStoredReadingsShouldRecoverThemAfterReopening() throws IOException {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.123456789Z"), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal("1.50")));
+        try (DurableReadingStore readingStore = open()) {
+            readingStore.append(SMART_METER_ID, readings);
+            readingStore.append("other-meter", readings.subList(0, 1));
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getRecoveryStats().readings()).isEqualTo(3);
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(readings);
+            assertThat(readingStore.getSeries("other-meter").orElseThrow().asList())
+                    .containsExactlyElementsOf(readings.subList(0, 1));
+        }
+    }
+
+    @Test
+    public void givenRemovedMeterShouldRecoverOnlyReadingsStoredAfterTheRemoval() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3);
+        try (DurableReadingStore readingStore = open()) {
+            readingStore.append(SMART_METER_ID, readings);
+            readingStore.append("other-meter", readings);
+            assertThat(readingStore.remove(SMART_METER_ID)).isTrue();
+            assertThat(readingStore.remove("unknown-meter")).isFalse();
+            readingStore.append(SMART_METER_ID, readings.subList(2, 3));
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(readings.subList(2, 3));
+            assertThat(readingStore.getSeries("other-meter").orElseThrow().asList())
+                    .containsExactlyElementsOf(readings);
+            assertThat(readingStore.getSeries("unknown-meter")).isEmpty();
+        }
+    }
+
+    @Test
+    public void givenMoreReadingsThanFitInASegmentShouldRollOverAndRecoverThemAll() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(1000);
+        try (DurableReadingStore readingStore = open()) {
+            readingStore.append(SMART_METER_ID, readings);
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getRecoveryStats().segments()).isGreaterThan(1);
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(readings);
+        }
+    }
+
+    @Test
+    public void givenTornRecordAtEndOfSegmentShouldRecoverRecordsBeforeIt() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(2);
+        try (DurableReadingStore readingStore = open()) {
+            readingStore.append(SMART_METER_ID, readings.subList(0, 1));
+            readingStore.append(SMART_METER_ID, readings.subList(1, 2));
+        }
+        Path segment = onlySegment();
+        int secondRecordValue = 4 + (8 + 2 + SMART_METER_ID.length() + 4 + 17) + 8 + 2 + SMART_METER_ID.length() + 4;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), secondRecordValue);
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getRecoveryStats().readings()).isEqualTo(1);
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(readings.subList(0, 1));
+            readingStore.append(SMART_METER_ID, readings.subList(1, 2));
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(readings);
+        }
+    }
+
+    @Test
+    public void givenConcurrentWritersShouldRecoverEveryAcknowledgedReading() throws Exception {
+        int writers = 8;
+        int batches = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (DurableReadingStore readingStore = new DurableReadingStore(
+                new ColumnarReadingStore(), directory, ReadingLog.MAX_READINGS_PER_RECORD * 64)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String smartMeterId = "smart-meter-" + writer;
+                futures.add(executor.submit(() -> {
+                    ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+                    for (int batch = 0; batch < batches; batch++) {
+                        readingStore.append(smartMeterId, generator.generate(10));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getRecoveryStats().readings()).isEqualTo((long) writers * batches * 10);
+            for (int writer = 0; writer < writers; writer++) {
+                assertThat(readingStore
+                                .getSeries("smart-meter-" + writer)
+                                .orElseThrow()
+                                .size())
+                        .isEqualTo(batches * 10);
+            }
+        }
+    }
+
+    @Test
+    public void givenConcurrentWritersToOneMeterShouldRecoverTheReadingsServedBeforeTheRestart() throws Exception {
+        int writers = 8;
+        Instant start = Instant.parse("2024-04-26T00:00:00Z");
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<ElectricityReading> served;
+        try (DurableReadingStore readingStore = open()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                BigDecimal value = BigDecimal.valueOf(writer);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        readingStore.append(
+                                SMART_METER_ID, List.of(new ElectricityReading(start.plusSeconds(i), value)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            served = readingStore.getSeries(SMART_METER_ID).orElseThrow().asList();
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().asList())
+                    .containsExactlyElementsOf(served);
+        }
+    }
+
+    @Test
+    public void givenUncountedSamplesAndAggregatesShouldRecoverThemAfterReopening() throws IOException {
+        List<ElectricityReading> samples = new ElectricityReadingsGenerator().generate(3);
+        SeriesAggregates aggregates = new SeriesAggregates(
+                10, new BigDecimal("12.3456789"), EpochNanos.of(samples.get(0).time()), EpochNanos.of(Instant.now()));
+        try (DurableReadingStore readingStore = open()) {
+            readingStore.appendSamples(SMART_METER_ID, ReadingBuffer.of(samples));
+            readingStore.addAggregates(SMART_METER_ID, aggregates);
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            ReadingSeries series = readingStore.getSeries(SMART_METER_ID).orElseThrow();
+            assertThat(series.asList()).containsExactlyElementsOf(samples);
+            assertThat(series.aggregates()).isEqualTo(aggregates);
+        }
+    }
+
+    @Test
+    public void givenAggregatesAddedDuringCheckpointsShouldRecoverThemCountedOnce() throws Exception {
+        int additions = 500;
+        SeriesAggregates one = new SeriesAggregates(1, BigDecimal.ONE, 0, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (DurableReadingStore readingStore = open()) {
+            Future<?> adding = executor.submit(() -> {
+                for (int i = 0; i < additions; i++) {
+                    readingStore.addAggregates(SMART_METER_ID, one);
+                }
+            });
+            while (!adding.isDone()) {
+                readingStore.checkpoint();
+            }
+            adding.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DurableReadingStore readingStore = open()) {
+            assertThat(readingStore.getSeries(SMART_METER_ID).orElseThrow().aggregates())
+                    .isEqualTo(new SeriesAggregates(additions, BigDecimal.valueOf(additions), 0, 1));
+        }
+    }
+
+    @Test
+    public void givenCheckpointShouldDeleteTheSegmentsItCoversAndRecoverTheSameSeries() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3000);
+        ReadingSeries before;
+        try (DurableReadingStore readingStore = openRollingUp(0)) {
+            readingStore.append(SMART_METER_ID, readings.subList(0, 2000));
+            readingStore.append("other-meter", readings.subList(0, 10));
+            readingStore.checkpoint();
+            readingStore.append(SMART_METER_ID, readings.subList(1990, 3000));
+            readingStore.remove("other-meter");
+            before = readingStore.getSeries(SMART_METER_ID).orElseThrow();
+        }
+        assertThat(files("readings-")).hasSizeLessThan(10);
+        assertThat(files("checkpoint-")).hasSize(1);
+
+        try (DurableReadingStore readingStore = openRollingUp(0)) {
+            ReadingSeries series = readingStore.getSeries(SMART_METER_ID).orElseThrow();
+            assertThat(series.asList()).containsExactlyElementsOf(before.asList());
+            assertThat(series.aggregates()).isEqualTo(before.aggregates());
+            assertThat(series.aggregates().count()).isEqualTo(3000);
+            assertThat(readingStore.getSeries("other-meter")).isEmpty();
+        }
+    }
+
+    @Test
+    public void givenManySegmentsWrittenShouldCheckpointAndRecoverEveryReading() throws IOException {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        long start = EpochNanos.of(Instant.parse("2024-04-26T00:00:00Z"));
+        int batches = 20;
+        int perBatch = 200;
+        try (DurableReadingStore readingStore = openRollingUp(2)) {
+            for (int batch = 0; batch < batches; batch++) {
+                ReadingBuffer buffer = new ReadingBuffer(perBatch);
+                generator.generate(buffer, start + batch * perBatch * 10_000_000_000L, 10_000_000_000L, perBatch);
+                readingStore.append(SMART_METER_ID, buffer);
+            }
+        }
+        assertThat(files("checkpoint-")).hasSize(1);
+
+        try (DurableReadingStore readingStore = openRollingUp(2)) {
+            assertThat(readingStore
+                            .getSeries(SMART_METER_ID)
+                            .orElseThrow()
+                            .aggregates()
+                            .count())
+                    .isEqualTo(batches * perBatch);
+        }
+    }
+
+    private DurableReadingStore open() throws IOException {
+        return new DurableReadingStore(new ColumnarReadingStore(), directory, SEGMENT_SIZE);
+    }
+
+    private DurableReadingStore openRollingUp(int checkpointSegments) throws IOException {
+        return new DurableReadingStore(
+                new ColumnarReadingStore(RollupPolicy.parse("1h:15m")), directory, SEGMENT_SIZE, checkpointSegments);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertThat(segments).hasSize(1);
+            return segments.get(0);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class FixedPointTest {
+
+    @Test
+    public void givenReadingShouldBeInRangeExactlyWhenItCanBeNormalised() {
+        for (String reading : new String[] {
+            "0.0503", "1E-200", "1E+120", "1E+127", "1E+142", "1E+143", "1E+9999", "123456789012345678901234567890E+120"
+        }) {
+            BigDecimal value = new BigDecimal(reading);
+            boolean normalises;
+            try {
+                FixedPoint.normalise(value);
+                normalises = true;
+            } catch (IllegalArgumentException e) {
+                normalises = false;
+            }
+            assertThat(FixedPoint.isInRange(value)).as(reading).isEqualTo(normalises);
+        }
+        assertThat(FixedPoint.isInRange(new BigDecimal("1E+9999"))).isFalse();
+    }
+
+    @Test
+    public void givenRandomOperandsShouldMultiplyAndDivideAsBigDecimalDoes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long value = randomMagnitude(random) * (random.nextBoolean() ? 1 : -1);
+            long multiplier = Math.max(1, randomMagnitude(random));
+            long divisor = Math.max(1, randomMagnitude(random));
+            BigDecimal expected = BigDecimal.valueOf(value)
+                    .multiply(BigDecimal.valueOf(multiplier))
+                    .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP);
+
+            if (expected.unscaledValue().bitLength() < Long.SIZE) {
+                assertThat(FixedPoint.multiplyDivideHalfUp(value, multiplier, divisor))
+                        .as("%d * %d / %d", value, multiplier, divisor)
+                        .isEqualTo(expected.longValueExact());
+            } else {
+                assertThatThrownBy(() -> FixedPoint.multiplyDivideHalfUp(value, multiplier, divisor))
+                        .isInstanceOf(ArithmeticException.class);
+            }
+        }
+    }
+
+    @Test
+    public void givenExactHalfShouldRoundAwayFromZero() {
+        assertThat(FixedPoint.multiplyDivideHalfUp(5, 1, 2)).isEqualTo(3);
+        assertThat(FixedPoint.multiplyDivideHalfUp(-5, 1, 2)).isEqualTo(-3);
+        assertThat(FixedPoint.multiplyDivideHalfUp(Long.MAX_VALUE, 10, 20)).isEqualTo(Long.MAX_VALUE / 2 + 1);
+    }
+
+    private static long randomMagnitude(Random random) {
+        return random.nextLong() >>> random.nextInt(64);
+    }
+}
@@ -0,0 +1,43 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class RollupPolicyTest {
+
+    @Test
+    public void givenTiersShouldParseAgesAndResolutions() {
+        assertThat(RollupPolicy.parse("7d:15m, 90d:1h").tiers())
+                .containsExactly(
+                        new RollupPolicy.Tier(Duration.ofDays(7), Duration.ofMinutes(15)),
+                        new RollupPolicy.Tier(Duration.ofDays(90), Duration.ofHours(1)));
+    }
+
+    @Test
+    public void givenBlankTiersShouldRollNothingUp() {
+        assertThat(RollupPolicy.parse("")).isSameAs(RollupPolicy.NONE);
+    }
+
+    @Test
+    public void givenReadingAgeShouldFindTheOldestTierItHasReached() {
+        RollupPolicy policy = RollupPolicy.parse("10s:1s,20s:5s");
+        long latest = Duration.ofSeconds(100).toNanos();
+
+        assertThat(policy.tierOf(latest - Duration.ofSeconds(5).toNanos(), latest))
+                .isEqualTo(-1);
+        assertThat(policy.tierOf(latest - Duration.ofSeconds(15).toNanos(), latest))
+                .isZero();
+        assertThat(policy.tierOf(latest - Duration.ofSeconds(25).toNanos(), latest))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void givenTiersOutOfOrderShouldRejectThem() {
+        assertThatThrownBy(() -> RollupPolicy.parse("90d:1h,7d:15m")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RollupPolicy.parse("7d")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RollupPolicy.parse("7w:1h")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SealedChunkTest {
+
+    private static final long TEN_SECONDS = 10_000_000_000L;
+
+    @Test
+    public void givenRegularSlowlyChangingReadingsShouldTakeAboutTwoBytesEach() {
+        ReadingChunk chunk = new ReadingChunk(MeterSeries.CHUNK_CAPACITY);
+        Random random = new Random(42);
+        long value = 5000;
+        for (int i = 0; i < MeterSeries.CHUNK_CAPACITY; i++) {
+            value += random.nextInt(-20, 21);
+            chunk.append(1_714_089_600_000_000_000L + i * TEN_SECONDS, value, 4);
+        }
+
+        SealedChunk sealed = SealedChunk.seal(chunk);
+
+        assertThat(sealed.encodedBytes()).isLessThan(2L * MeterSeries.CHUNK_CAPACITY);
+        assertDecodesTo(sealed, chunk);
+    }
+
+    @Test
+    public void givenIrregularTimesExtremeValuesAndChangingScalesShouldDecodeExactly() {
+        ReadingChunk chunk = new ReadingChunk(MeterSeries.CHUNK_CAPACITY);
+        Random random = new Random(7);
+        long time = -TEN_SECONDS;
+        for (int i = 0; i < MeterSeries.CHUNK_CAPACITY; i++) {
+            time += switch (i % 4) {
+                case 0 -> TEN_SECONDS;
+                case 1 -> random.nextInt(1000);
+                case 2 -> random.nextLong(1L << 40);
+                default -> 0;};
+            long value =
+                    switch (i % 5) {
+                        case 0 -> Long.MAX_VALUE;
+                        case 1 -> Long.MIN_VALUE;
+                        case 2 -> random.nextLong();
+                        default -> random.nextInt(-300, 300);
+                    };
+            chunk.append(time, value, random.nextInt(3) == 0 ? random.nextInt(-128, 128) : 4);
+        }
+
+        assertDecodesTo(SealedChunk.seal(chunk), chunk);
+    }
+
+    @Test
+    public void givenSealedChunkShouldKeepItsFirstAndLastTimes() {
+        ReadingChunk chunk = new ReadingChunk(3);
+        chunk.append(10, 1, 0);
+        chunk.append(20, 2, 0);
+        chunk.append(35, 3, 0);
+
+        SealedChunk sealed = SealedChunk.seal(chunk);
+
+        assertThat(sealed.size()).isEqualTo(3);
+        assertThat(sealed.firstTime()).isEqualTo(10);
+        assertThat(sealed.lastTime()).isEqualTo(35);
+    }
+
+    @Test
+    public void givenDecoderSkippingSamplesShouldContinueFromTheRightOne() {
+        ReadingChunk chunk = new ReadingChunk(100);
+        for (int i = 0; i < 100; i++) {
+            chunk.append(i * TEN_SECONDS, i * i, 2);
+        }
+        SealedChunk.Decoder decoder = SealedChunk.seal(chunk).decoder();
+
+        decoder.skip(42);
+
+        assertThat(decoder.next()).isTrue();
+        assertThat(decoder.time()).isEqualTo(42 * TEN_SECONDS);
+        assertThat(decoder.value()).isEqualTo(42 * 42);
+    }
+
+    private static void assertDecodesTo(SealedChunk sealed, ReadingChunk chunk) {
+        ReadingChunk decoded = sealed.decode();
+        assertThat(decoded.size()).isEqualTo(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            assertThat(decoded.times[i]).as("time %d", i).isEqualTo(chunk.times[i]);
+            assertThat(decoded.values[i]).as("value %d", i).isEqualTo(chunk.values[i]);
+            assertThat(decoded.scales[i]).as("scale %d", i).isEqualTo(chunk.scales[i]);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+public class SmartMeterRegistryTest {
+
+    @Test
+    public void givenMetersShouldNumberEachOnceFromZero() {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+
+        assertThat(registry.register("meter-a")).isEqualTo(0);
+        assertThat(registry.register("meter-b")).isEqualTo(1);
+        assertThat(registry.register("meter-a")).isEqualTo(0);
+
+        assertThat(registry.numberOf("meter-b")).isEqualTo(1);
+        assertThat(registry.numberOf("unknown")).isEqualTo(SmartMeterRegistry.UNKNOWN);
+        assertThat(registry.smartMeterId(1)).isEqualTo("meter-b");
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenMetersRegisteredFromManyThreadsShouldGiveEachAUniqueNumber() throws InterruptedException {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int meter = 0; meter < 100_000; meter++) {
+                    numbers.add(registry.register("meter-" + meter));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(registry.size()).isEqualTo(100_000);
+        assertThat(numbers).hasSize(100_000).allMatch(number -> number >= 0 && number < 100_000);
+        for (int number = 0; number < 100_000; number++) {
+            assertThat(registry.numberOf(registry.smartMeterId(number))).isEqualTo(number);
+        }
+    }
+
+    @Test
+    public void givenViewShouldOnlyContainMetersThatArePresent() {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        for (int meter = 0; meter < 5; meter++) {
+            registry.register("meter-" + meter);
+        }
+
+        Set<String> evenMeters = registry.smartMeterIds(number -> number % 2 == 0, () -> 3);
+
+        assertThat(evenMeters).containsExactly("meter-0", "meter-2", "meter-4");
+        assertThat(evenMeters.contains("meter-2")).isTrue();
+        assertThat(evenMeters.contains("meter-1")).isFalse();
+        assertThat(evenMeters.contains("unknown")).isFalse();
+    }
+}